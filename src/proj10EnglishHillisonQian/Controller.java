@@ -25,6 +25,9 @@ import javafx.scene.paint.Color;
 import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.StyleClassedTextArea;
+import proj10EnglishHillisonQian.bantam.lexer.IncrementalLexer;
+import proj10EnglishHillisonQian.bantam.lexer.TokenBuffer;
+import proj10EnglishHillisonQian.bantam.parser.ASTCache;
 import proj10EnglishHillisonQian.bantam.printer.Converter;
 import proj10EnglishHillisonQian.bantam.semant.SemanticAnalyzer;
 import proj10EnglishHillisonQian.bantam.util.Error;
@@ -36,6 +39,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -104,6 +108,9 @@ public class Controller {
     /** SemanticAnalyzer to run scan/parse/analyze */
     private SemanticAnalyzer analyzer;
 
+    /** Keeps the tokens of each CodeArea that has been checked up to date as it is edited */
+    private final WeakHashMap<CodeArea, IncrementalLexer> lexers = new WeakHashMap<>();
+
     /**
      *
      * Loads initial content on launch.
@@ -125,8 +132,15 @@ public class Controller {
         // assign to the style filed a default style
         this.fontFamily = tabHelper.getCurrentTab().getStyle();
 
+        // saved files that have not changed are loaded from the AST cache
+        // instead of parsed
+        ASTCache cache = new ASTCache(ASTCache.defaultDirectory());
         this.printer = new PrettyPrinter();
+        this.printer.setCache(cache);
         this.analyzer = new SemanticAnalyzer(new ErrorHandler());
+        this.analyzer.setCache(cache);
+        // checking again after an edit only rechecks what the edit affects
+        this.analyzer.setIncremental(true);
     }
 
     /**
@@ -400,35 +414,12 @@ public class Controller {
     @FXML
     /** Handles compile button*/
     private Thread compile() {
-        File currentFile = tabFileMap.get(tabHelper.getCurrentTab());
-
-        // if the current file hasn't been saved before, save it first
-        if (currentFile == null) {
-            // if saving process is cancelled, do not continue with compiling
-            if (!handleSaveAs(null))
-                ;
-                //return false;
-            else
-                currentFile = tabFileMap.get(tabHelper.getCurrentTab());
-        }
-
-        // if the file has been changed since last save, give the save prompt
-        else if (textHasChangedMap.get(tabHelper.getCurrentTab())) {
-            Optional<ButtonType> saveResult = dialogHelper.saveDialog();
-            if (saveResult.get().getText().equals("Yes")) {
-                handleSave();
-            } else if (saveResult.get().getText().equals("No")) {
-                // if user presses no, don't do anything
-            } else {
-                return null; // user pressed cancel, quit the method
-            }
-        }
-
+        // the editor text is converted as it is, so there is no need to save first
         stop.setDisable(false);
 
         final String[] message = {""};
         Converter converter = new Converter();
-        converter.convert(currentFile.getPath());
+        converter.convert(getCurrentSourceName(), tabHelper.getCurrentCodeArea().getText());
         File finalCurrentFile = new File("src/tmp/Main.java");
 
         // Start in new thread
@@ -569,29 +560,50 @@ public class Controller {
 
     }
 
+    /**
+     * @return the path of the file of the current tab, or the title of the tab
+     * if it has not been saved
+     */
+    private String getCurrentSourceName(){
+        File file = tabFileMap.get(tabHelper.getCurrentTab());
+        if(file == null){
+            return tabHelper.getCurrentTabTitle();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Gets the IncrementalLexer of a CodeArea, making one that follows the
+     * edits of the area the first time it is asked for.
+     * @param area the CodeArea
+     * @return the lexer holding the tokens of the area's text
+     */
+    private IncrementalLexer getLexer(CodeArea area){
+        IncrementalLexer lexer = lexers.get(area);
+        if(lexer == null){
+            IncrementalLexer newLexer = new IncrementalLexer();
+            newLexer.replace(0, 0, area.getText());
+            area.plainTextChanges().subscribe(change -> newLexer.replace(
+                    change.getPosition(), change.getRemoved().length(), change.getInserted()));
+            lexers.put(area, newLexer);
+            lexer = newLexer;
+        }
+        return lexer;
+    }
+
     /**
      * Handles check button.
      * Check if the current file is a valid bantam program.
      */
     @FXML
     public void check(){
-        // make sure tab is saved before continuing
-        Tab currentTab = tabHelper.getCurrentTab();
-        if(textHasChangedMap.get(currentTab) || tabFileMap.get(currentTab) == null){
-            Optional<ButtonType> result = dialogHelper.saveDialog();
-            if (result.get().getText().equals("Yes")){
-                handleSave();
-            } else {
-                this.alertHandler.showErrorAlert("File must be saved to proceed" +
-                        ".", "Warning");
-                return;
-            }
-        }
-
         // run the analysis
         console.append("\nChecking " + tabHelper.getCurrentTabTitle() + "\n", console.getStyle());
-        String filePath = tabFileMap.get(tabHelper.getCurrentTab()).getPath();
-        Object result = this.analyzer.analyze(filePath);
+        // check the tokens of the text in the editor, so the file does not need
+        // to be saved, and only what was edited since the last check is rescanned
+        TokenBuffer tokens = getLexer(tabHelper.getCurrentCodeArea())
+                .getTokens(getCurrentSourceName());
+        Object result = this.analyzer.analyze(getCurrentSourceName(), tokens);
         if(result == null){
             ErrorHandler errorHandler = analyzer.getErrorHandler();
             List<Error> errors = errorHandler.getErrorList();
@@ -727,23 +739,18 @@ public class Controller {
      */
     @FXML
     public void prettyPrint(){
-        // make sure tab is saved before continuing
-        Tab currentTab = tabHelper.getCurrentTab();
-        if(textHasChangedMap.get(currentTab) || tabFileMap.get(currentTab) == null){
-            Optional<ButtonType> result = dialogHelper.saveDialog();
-            if (result.get().getText().equals("Yes")){
-                handleSave();
-            } else {
-                this.alertHandler.showErrorAlert("File must be saved to proceed" +
-                        ".", "Warning");
-                return;
-            }
-        }
-
         // tell printer to return the output and get the output
         this.printer.setReturnOutput(true);
-        String filePath = tabFileMap.get(tabHelper.getCurrentTab()).getPath();
-        String output = this.printer.prettyPrint(filePath);
+        // a saved file is read from disk so that its AST can come from the
+        // cache; the text of an unsaved or edited tab is parsed as it is
+        File currentFile = tabFileMap.get(tabHelper.getCurrentTab());
+        String output;
+        if (currentFile != null && !textHasChangedMap.get(tabHelper.getCurrentTab())) {
+            output = this.printer.prettyPrint(currentFile.getPath());
+        } else {
+            output = this.printer.prettyPrint(getCurrentSourceName(),
+                    tabHelper.getCurrentCodeArea().getText());
+        }
 
         // Handle parse errors
         if(output == null){
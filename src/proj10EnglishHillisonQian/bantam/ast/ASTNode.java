@@ -31,7 +31,8 @@ import proj10EnglishHillisonQian.bantam.visitor.Visitor;
 
 /**
  * The abstract <tt>ASTNode</tt> class represents a generic AST node.
- * It contains a line number (<tt>lineNumber</tt>).
+ * It contains a line number (<tt>lineNumber</tt>) and the span of source
+ * offsets it was parsed from.
  * <p/>
  * <p/>
  * <p/>
@@ -257,6 +258,23 @@ public abstract class ASTNode {
      */
     protected int lineNum;
 
+    /**
+     * The offset in the source of the first char of this AST node, or -1 if
+     * the node did not come from a source
+     */
+    protected int startOffset = -1;
+
+    /**
+     * The offset in the source just past the last char of this AST node, or
+     * -1 if the node did not come from a source
+     */
+    protected int endOffset = -1;
+
+    /**
+     * The kind of this AST node, which tells its class without a type test
+     */
+    private final NodeKind kind;
+
     /**
      * ASTNode constructor
      *
@@ -264,6 +282,7 @@ public abstract class ASTNode {
      */
     protected ASTNode(int lineNum) {
         this.lineNum = lineNum;
+        this.kind = NodeKind.of(getClass());
     }
 
     /**
@@ -275,6 +294,45 @@ public abstract class ASTNode {
         return lineNum;
     }
 
+    /**
+     * Get the kind of this AST node, for switching on instead of dispatching
+     * through accept
+     *
+     * @return kind
+     */
+    public final NodeKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the offset in the source of the first char of this AST node
+     *
+     * @return start offset, or -1 if the node has no span
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Get the offset in the source just past the last char of this AST node
+     *
+     * @return end offset, or -1 if the node has no span
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Set the span of source chars this AST node was parsed from
+     *
+     * @param startOffset offset of the first char of the node
+     * @param endOffset   offset just past the last char of the node
+     */
+    public void setSpan(int startOffset, int endOffset) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
     /**
      * Visitor method
      *
@@ -26,6 +26,7 @@
 
 package proj10EnglishHillisonQian.bantam.ast;
 
+import proj10EnglishHillisonQian.bantam.util.ClassTreeNode;
 import proj10EnglishHillisonQian.bantam.visitor.Visitor;
 
 
@@ -57,6 +58,12 @@ public abstract class Expr extends ASTNode {
      */
     private String exprType = null;
 
+    /**
+     * The class named by the expression type, once the semantic analyzer
+     * has looked it up, or null
+     */
+    private ClassTreeNode exprClass = null;
+
     /**
      * Expr constructor
      *
@@ -82,6 +89,27 @@ public abstract class Expr extends ASTNode {
      */
     public void setExprType(String exprType) {
         this.exprType = exprType;
+        this.exprClass = null;
+    }
+
+    /**
+     * Get the class named by the type of the expression, if it has been
+     * looked up since the type was last set
+     *
+     * @return the class of the expression type, or null
+     */
+    public ClassTreeNode getExprClass() {
+        return exprClass;
+    }
+
+    /**
+     * Set the class named by the type of the expression, so it does not
+     * have to be looked up again. Setting the type forgets it.
+     *
+     * @param exprClass the class of the expression type
+     */
+    public void setExprClass(ClassTreeNode exprClass) {
+        this.exprClass = exprClass;
     }
 
     /**
@@ -0,0 +1,921 @@
+/*
+ * File: FlatAST.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.ast;
+
+import proj10EnglishHillisonQian.bantam.util.StringPool;
+import proj10EnglishHillisonQian.bantam.util.SymbolPool;
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
+import proj10EnglishHillisonQian.bantam.visitor.Visitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact encoding of a whole AST in a few arrays instead of one object per
+ * node, for keeping the AST of a very large program in memory.
+ *
+ * The nodes are numbered in preorder, with the Program node as node 0. For
+ * each node the arrays hold its kind, its line number, its span in the source
+ * and where its operands start in the operands array. The operands of a node depend on its kind and
+ * are listed in LAYOUTS, one letter per operand:
+ * <ul>
+ * <li>N: the number of a child node, or -1 if it is null</li>
+ * <li>S: the id of a string in the string pool, or -1 if it is null</li>
+ * <li>F: a boolean flag, 0 or 1</li>
+ * <li>T: the id in the string pool of the type of an expression, or -1</li>
+ * </ul>
+ * The operands of a list node are its size followed by the numbers of its
+ * elements. All the names, types and constants are kept once in a StringPool.
+ *
+ * A FlatAST is read with a Cursor, or turned back into AST objects to run a
+ * Visitor over it. It can also be written out as bytes and read back in.
+ */
+public class FlatAST
+{
+    /** the operand layout of each kind of node, indexed by ordinal */
+    private static final String[] LAYOUTS = new String[NodeKind.values().length];
+    /** all the kinds, indexed by ordinal */
+    private static final NodeKind[] KINDS = NodeKind.values();
+    /** the slot of each child of each kind of node, indexed by ordinal, null for lists */
+    private static final int[][] CHILD_SLOTS = new int[NodeKind.values().length][];
+
+    static {
+        layout(NodeKind.PROGRAM, "N");
+        layout(NodeKind.CLASS, "SSSN");               // filename, name, parent, members
+        layout(NodeKind.FIELD, "SSN");                // type, name, init
+        layout(NodeKind.METHOD, "SSNN");              // return type, name, formals, body
+        layout(NodeKind.FORMAL, "SS");                // type, name
+        layout(NodeKind.DECL_STMT, "SSN");            // type, name, init
+        layout(NodeKind.EXPR_STMT, "N");
+        layout(NodeKind.IF_STMT, "NNN");              // pred, then, else
+        layout(NodeKind.WHILE_STMT, "NN");            // pred, body
+        layout(NodeKind.FOR_STMT, "NNNN");            // init, pred, update, body
+        layout(NodeKind.BREAK_STMT, "");
+        layout(NodeKind.BLOCK_STMT, "N");
+        layout(NodeKind.RETURN_STMT, "N");
+        layout(NodeKind.DISPATCH_EXPR, "NSNT");       // ref, method name, actuals
+        layout(NodeKind.NEW_EXPR, "ST");
+        layout(NodeKind.INSTANCEOF_EXPR, "NSFT");     // expr, type, upcheck
+        layout(NodeKind.CAST_EXPR, "SNFT");           // type, expr, upcast
+        layout(NodeKind.ASSIGN_EXPR, "SSNT");         // ref name, name, expr
+        layout(NodeKind.VAR_EXPR, "NST");             // ref, name
+        for (NodeKind kind : KINDS) {
+            if (kind.name().startsWith("BINARY_")) {
+                layout(kind, "NNT");                  // left, right
+            }
+        }
+        layout(NodeKind.UNARY_NEG_EXPR, "NT");
+        layout(NodeKind.UNARY_NOT_EXPR, "NT");
+        layout(NodeKind.UNARY_INCR_EXPR, "NFT");      // expr, postfix
+        layout(NodeKind.UNARY_DECR_EXPR, "NFT");
+        layout(NodeKind.CONST_INT_EXPR, "ST");
+        layout(NodeKind.CONST_BOOLEAN_EXPR, "ST");
+        layout(NodeKind.CONST_STRING_EXPR, "ST");
+    }
+
+    private static void layout(NodeKind kind, String operands) {
+        LAYOUTS[kind.ordinal()] = operands;
+        int[] slots = new int[operands.length()];
+        int children = 0;
+        for (int slot = 0; slot < operands.length(); slot++) {
+            if (operands.charAt(slot) == 'N') {
+                slots[children++] = slot;
+            }
+        }
+        CHILD_SLOTS[kind.ordinal()] = Arrays.copyOf(slots, children);
+    }
+
+    /** the number of nodes */
+    private int nodeCount;
+    /** the ordinal of the kind of each node */
+    private byte[] kinds;
+    /** the line number of each node */
+    private int[] lines;
+    /** the start and end offsets of the span of each node, two ints per node */
+    private int[] spans;
+    /** the index in operands of the first operand of each node */
+    private int[] starts;
+    /** the operands of all the nodes, one node after the other */
+    private int[] operands;
+    /** the number of ints used in operands */
+    private int operandCount;
+    /** the names, types and constants used in the AST */
+    private final StringPool strings;
+
+    /**
+     * creates an empty FlatAST
+     * @param capacity the number of nodes expected
+     */
+    private FlatAST(int capacity) {
+        kinds = new byte[capacity];
+        lines = new int[capacity];
+        spans = new int[capacity * 2];
+        starts = new int[capacity];
+        operands = new int[capacity * 2];
+        strings = new StringPool();
+    }
+
+    /**
+     * creates a FlatAST with arrays of exactly the given sizes
+     * @param nodeCount the number of nodes
+     * @param operandCount the number of operands of all the nodes
+     * @param strings the strings used in the tree
+     */
+    private FlatAST(int nodeCount, int operandCount, StringPool strings) {
+        kinds = new byte[nodeCount];
+        lines = new int[nodeCount];
+        spans = new int[nodeCount * 2];
+        starts = new int[nodeCount];
+        operands = new int[operandCount];
+        this.strings = strings;
+    }
+
+    /**
+     * encodes an AST
+     * @param program the root of the AST
+     * @return the FlatAST holding the same tree
+     */
+    public static FlatAST encode(Program program) {
+        FlatAST ast = new FlatAST(1024);
+        new Encoder(ast).encode(program);
+        ast.trimToSize();
+        return ast;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the pool of the names, types and constants used in the tree
+     */
+    public StringPool getStrings() {
+        return strings;
+    }
+
+    /**
+     * @return a new cursor at the root of the tree
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Turns the tree back into AST objects.
+     * @return the root of the AST
+     */
+    public Program decode() {
+        return (Program) decodeAll()[0];
+    }
+
+    /**
+     * Runs a visitor over the tree. The tree is decoded into AST objects for
+     * the visitor, and afterwards the annotations the visitor made on them
+     * (the types of expressions and declarations and whether casts and
+     * instanceof tests are upward) are stored back in this tree.
+     * @param v the visitor
+     * @return the result of the visit of the Program node
+     */
+    public Object accept(Visitor v) {
+        ASTNode[] decoded = decodeAll();
+        Program program = (Program) decoded[0];
+        Object result = program.accept(v);
+        storeAnnotations(decoded);
+        return result;
+    }
+
+    // -------------------------------------------------------------------
+    // building the arrays
+
+    /**
+     * adds a node with its operands set to -1
+     * @param kind the kind of the node
+     * @param node the AST node it comes from
+     * @param count the number of operands
+     * @return the number of the node
+     */
+    private int addNode(NodeKind kind, ASTNode node, int count) {
+        if (nodeCount == kinds.length) {
+            int capacity = nodeCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            spans = Arrays.copyOf(spans, capacity * 2);
+            starts = Arrays.copyOf(starts, capacity);
+        }
+        if (operandCount + count > operands.length) {
+            operands = Arrays.copyOf(operands, Math.max(operands.length * 2,
+                    operandCount + count));
+        }
+        kinds[nodeCount] = (byte) kind.ordinal();
+        lines[nodeCount] = node.getLineNum();
+        spans[2 * nodeCount] = node.getStartOffset();
+        spans[2 * nodeCount + 1] = node.getEndOffset();
+        starts[nodeCount] = operandCount;
+        Arrays.fill(operands, operandCount, operandCount + count, -1);
+        operandCount += count;
+        return nodeCount++;
+    }
+
+    private void setOperand(int node, int slot, int value) {
+        operands[starts[node] + slot] = value;
+    }
+
+    private int getOperand(int node, int slot) {
+        return operands[starts[node] + slot];
+    }
+
+    private void trimToSize() {
+        kinds = Arrays.copyOf(kinds, nodeCount);
+        lines = Arrays.copyOf(lines, nodeCount);
+        spans = Arrays.copyOf(spans, nodeCount * 2);
+        starts = Arrays.copyOf(starts, nodeCount);
+        operands = Arrays.copyOf(operands, operandCount);
+    }
+
+    /**
+     * Adds the nodes of an AST in preorder. A node's number is the number of
+     * nodes added before it. The nodes are walked with a Traversal, so the
+     * tree may be deeper than the call stack: a node is added with all its
+     * operands but its children in pre, and the number of each child is
+     * filled in after the child is done.
+     */
+    private static class Encoder extends Traversal
+    {
+        private final FlatAST ast;
+        /** the numbers of the nodes on the path from the root */
+        private int[] path = new int[64];
+        /** the number of nodes on the path */
+        private int depth;
+        /** the number of the node that was left last */
+        private int left;
+
+        private Encoder(FlatAST ast) {
+            this.ast = ast;
+        }
+
+        /**
+         * adds all the nodes of a tree
+         * @param root the root of the tree
+         */
+        private void encode(ASTNode root) {
+            traverse(root);
+        }
+
+        private void string(int number, int slot, String string) {
+            ast.setOperand(number, slot, ast.strings.intern(string));
+        }
+
+        @Override
+        protected boolean pre(ASTNode node) {
+            NodeKind kind = node.getKind();
+            int number;
+            if (kind.isList()) {
+                int size = ((ListNode) node).getSize();
+                number = ast.addNode(kind, node, size + 1);
+                ast.setOperand(number, 0, size);
+            }
+            else {
+                number = ast.addNode(kind, node, LAYOUTS[kind.ordinal()].length());
+                setLeaves(kind, node, number);
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = number;
+            return true;
+        }
+
+        @Override
+        protected void afterChild(ASTNode node, int index, ASTNode child) {
+            ast.setOperand(path[depth - 1], childSlot(node.getKind(), index),
+                    child == null ? -1 : left);
+        }
+
+        @Override
+        protected void post(ASTNode node) {
+            left = path[--depth];
+        }
+
+        /**
+         * sets the operands of a node that are not children: its names, types,
+         * constants and flags
+         * @param kind the kind of the node
+         * @param node the node
+         * @param number the number of the node
+         */
+        private void setLeaves(NodeKind kind, ASTNode node, int number) {
+            switch (kind) {
+                case CLASS:
+                    Class_ aClass = (Class_) node;
+                    string(number, 0, aClass.getFilename());
+                    string(number, 1, aClass.getName());
+                    string(number, 2, aClass.getParent());
+                    break;
+                case FIELD:
+                    string(number, 0, ((Field) node).getType());
+                    string(number, 1, ((Field) node).getName());
+                    break;
+                case METHOD:
+                    string(number, 0, ((Method) node).getReturnType());
+                    string(number, 1, ((Method) node).getName());
+                    break;
+                case FORMAL:
+                    string(number, 0, ((Formal) node).getType());
+                    string(number, 1, ((Formal) node).getName());
+                    break;
+                case DECL_STMT:
+                    string(number, 0, ((DeclStmt) node).getType());
+                    string(number, 1, ((DeclStmt) node).getName());
+                    break;
+                case DISPATCH_EXPR:
+                    string(number, 1, ((DispatchExpr) node).getMethodName());
+                    break;
+                case NEW_EXPR:
+                    string(number, 0, ((NewExpr) node).getType());
+                    break;
+                case INSTANCEOF_EXPR:
+                    string(number, 1, ((InstanceofExpr) node).getType());
+                    ast.setOperand(number, 2, ((InstanceofExpr) node).getUpCheck() ? 1 : 0);
+                    break;
+                case CAST_EXPR:
+                    string(number, 0, ((CastExpr) node).getType());
+                    ast.setOperand(number, 2, ((CastExpr) node).getUpCast() ? 1 : 0);
+                    break;
+                case ASSIGN_EXPR:
+                    string(number, 0, ((AssignExpr) node).getRefName());
+                    string(number, 1, ((AssignExpr) node).getName());
+                    break;
+                case VAR_EXPR:
+                    string(number, 1, ((VarExpr) node).getName());
+                    break;
+                case UNARY_INCR_EXPR:
+                case UNARY_DECR_EXPR:
+                    ast.setOperand(number, 1, ((UnaryExpr) node).isPostfix() ? 1 : 0);
+                    break;
+                case CONST_INT_EXPR:
+                case CONST_BOOLEAN_EXPR:
+                case CONST_STRING_EXPR:
+                    string(number, 0, ((ConstExpr) node).getConstant());
+                    break;
+                default:
+                    break;
+            }
+            if (node instanceof Expr) {
+                string(number, LAYOUTS[kind.ordinal()].length() - 1,
+                        ((Expr) node).getExprType());
+            }
+        }
+    }
+
+    /**
+     * @param kind the kind of a node
+     * @param index the number of one of its children, as in Traversal.child
+     * @return the slot of the node's operands holding the child
+     */
+    private static int childSlot(NodeKind kind, int index) {
+        if (kind.isList()) {
+            return index + 1;
+        }
+        return CHILD_SLOTS[kind.ordinal()][index];
+    }
+
+    // -------------------------------------------------------------------
+    // storing the arrays as bytes
+
+    /**
+     * Writes the tree in a binary form that readFrom turns back into an
+     * equal tree. The strings are written as UTF-8 and the arrays as they are.
+     * @param out where to write the tree
+     * @throws IOException if the tree cannot be written
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(strings.size());
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(nodeCount);
+        out.writeInt(operandCount);
+        out.write(kinds, 0, nodeCount);
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (4 * nodeCount + operandCount));
+        buffer.asIntBuffer().put(lines, 0, nodeCount)
+                .put(spans, 0, 2 * nodeCount)
+                .put(starts, 0, nodeCount)
+                .put(operands, 0, operandCount);
+        out.write(buffer.array());
+    }
+
+    /**
+     * reads a tree written by writeTo
+     * @param in the bytes of the tree, read from its position on
+     * @return the tree
+     * @throws IOException if the bytes are not a tree written by writeTo
+     */
+    public static FlatAST readFrom(ByteBuffer in) throws IOException {
+        try {
+            // every string takes at least the 4 bytes of its length
+            int stringCount = readCount(in, 4);
+            StringPool strings = new StringPool();
+            for (int i = 0; i < stringCount; i++) {
+                byte[] bytes = new byte[readCount(in, 1)];
+                in.get(bytes);
+                // names read back are symbols, just like names from the lexer
+                strings.intern(SymbolPool.intern(new String(bytes, StandardCharsets.UTF_8)));
+            }
+            int nodeCount = in.getInt();
+            int operandCount = in.getInt();
+            // each node takes a byte and 4 ints, each operand an int
+            if (nodeCount < 1 || operandCount < 0 || strings.size() != stringCount
+                    || 17L * nodeCount + 4L * operandCount > in.remaining()) {
+                throw new IOException("not a flat AST");
+            }
+            FlatAST ast = new FlatAST(nodeCount, operandCount, strings);
+            in.get(ast.kinds);
+            for (byte kind : ast.kinds) {
+                if (kind < 0 || kind >= KINDS.length) {
+                    throw new IOException("not a flat AST");
+                }
+            }
+            IntBuffer ints = in.asIntBuffer();
+            ints.get(ast.lines).get(ast.spans).get(ast.starts).get(ast.operands);
+            in.position(in.position() + 4 * ints.position());
+            ast.nodeCount = nodeCount;
+            ast.operandCount = operandCount;
+            ast.checkTree();
+            return ast;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("not a flat AST", e);
+        }
+    }
+
+    /**
+     * Checks that the operands of every node lie in the operands array and
+     * that every child is a later node that no other node also has as a
+     * child, as in the preorder the tree is written in. Decoding a damaged
+     * tree then only throws RuntimeExceptions; it cannot loop forever or
+     * decode a node over and over.
+     * @throws IOException if the nodes do not form such a tree
+     */
+    private void checkTree() throws IOException {
+        boolean[] isChild = new boolean[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            String layout = LAYOUTS[kinds[node]];
+            int start = starts[node];
+            if (start < 0 || start >= operandCount && (layout == null || !layout.isEmpty())) {
+                throw new IOException("not a flat AST");
+            }
+            int count = layout != null ? layout.length() : 1 + operands[start];
+            if (count < 0 || count > operandCount - start) {
+                throw new IOException("not a flat AST");
+            }
+            for (int slot = 0; slot < count; slot++) {
+                if (layout != null ? layout.charAt(slot) != 'N' : slot == 0) {
+                    continue;
+                }
+                int child = operands[start + slot];
+                if (child == -1) {
+                    continue;
+                }
+                if (child <= node || child >= nodeCount || isChild[child]) {
+                    throw new IOException("not a flat AST");
+                }
+                isChild[child] = true;
+            }
+        }
+    }
+
+    /**
+     * Reads the number of items that follow and checks that there are enough
+     * bytes left for them, so a damaged file cannot make the reader allocate
+     * more than the size of the file.
+     * @param in the bytes being read
+     * @param bytesEach the fewest bytes each item takes
+     * @return the number of items
+     * @throws IOException if the number is negative or too big
+     */
+    public static int readCount(ByteBuffer in, int bytesEach) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || (long) count * bytesEach > in.remaining()) {
+            throw new IOException("not a flat AST");
+        }
+        return count;
+    }
+
+    // -------------------------------------------------------------------
+    // turning the arrays back into objects
+
+    /**
+     * Makes the AST objects for all the nodes. Since a child's number is
+     * always greater than its parent's, the nodes are made from the last to
+     * the first, so the children of each node are made before it without
+     * any recursion, however deep the tree is.
+     * @return the object for each node by its number
+     */
+    private ASTNode[] decodeAll() {
+        ASTNode[] decoded = new ASTNode[nodeCount];
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            decoded[node] = decode(node, decoded);
+        }
+        return decoded;
+    }
+
+    /**
+     * makes the AST object for a node out of the objects of its children
+     * @param node the number of the node
+     * @param decoded the objects made for the later nodes, by node number
+     * @return the object for the node
+     */
+    private ASTNode decode(int node, ASTNode[] decoded) {
+        int line = lines[node];
+        ASTNode result;
+        switch (KINDS[kinds[node]]) {
+            case PROGRAM:
+                result = new Program(line, (ClassList) child(node, 0, decoded));
+                break;
+            case CLASS_LIST:
+                result = fillList(new ClassList(line), node, decoded);
+                break;
+            case CLASS:
+                result = new Class_(line, string(node, 0), string(node, 1), string(node, 2),
+                        (MemberList) child(node, 3, decoded));
+                break;
+            case MEMBER_LIST:
+                result = fillList(new MemberList(line), node, decoded);
+                break;
+            case FIELD:
+                result = new Field(line, string(node, 0), string(node, 1),
+                        (Expr) child(node, 2, decoded));
+                break;
+            case METHOD:
+                result = new Method(line, string(node, 0), string(node, 1),
+                        (FormalList) child(node, 2, decoded),
+                        (StmtList) child(node, 3, decoded));
+                break;
+            case FORMAL_LIST:
+                result = fillList(new FormalList(line), node, decoded);
+                break;
+            case FORMAL:
+                result = new Formal(line, string(node, 0), string(node, 1));
+                break;
+            case STMT_LIST:
+                result = fillList(new StmtList(line), node, decoded);
+                break;
+            case DECL_STMT:
+                DeclStmt decl = new DeclStmt(line, string(node, 1),
+                        (Expr) child(node, 2, decoded));
+                decl.setType(string(node, 0));
+                result = decl;
+                break;
+            case EXPR_STMT:
+                result = new ExprStmt(line, (Expr) child(node, 0, decoded));
+                break;
+            case IF_STMT:
+                result = new IfStmt(line, (Expr) child(node, 0, decoded),
+                        (Stmt) child(node, 1, decoded), (Stmt) child(node, 2, decoded));
+                break;
+            case WHILE_STMT:
+                result = new WhileStmt(line, (Expr) child(node, 0, decoded),
+                        (Stmt) child(node, 1, decoded));
+                break;
+            case FOR_STMT:
+                result = new ForStmt(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded), (Expr) child(node, 2, decoded),
+                        (Stmt) child(node, 3, decoded));
+                break;
+            case BREAK_STMT:
+                result = new BreakStmt(line);
+                break;
+            case BLOCK_STMT:
+                result = new BlockStmt(line, (StmtList) child(node, 0, decoded));
+                break;
+            case RETURN_STMT:
+                result = new ReturnStmt(line, (Expr) child(node, 0, decoded));
+                break;
+            case EXPR_LIST:
+                result = fillList(new ExprList(line), node, decoded);
+                break;
+            case DISPATCH_EXPR:
+                result = new DispatchExpr(line, (Expr) child(node, 0, decoded),
+                        string(node, 1), (ExprList) child(node, 2, decoded));
+                break;
+            case NEW_EXPR:
+                result = new NewExpr(line, string(node, 0));
+                break;
+            case INSTANCEOF_EXPR:
+                InstanceofExpr instanceofExpr = new InstanceofExpr(line,
+                        (Expr) child(node, 0, decoded), string(node, 1));
+                instanceofExpr.setUpCheck(getOperand(node, 2) == 1);
+                result = instanceofExpr;
+                break;
+            case CAST_EXPR:
+                CastExpr cast = new CastExpr(line, string(node, 0),
+                        (Expr) child(node, 1, decoded));
+                cast.setUpCast(getOperand(node, 2) == 1);
+                result = cast;
+                break;
+            case ASSIGN_EXPR:
+                result = new AssignExpr(line, string(node, 0), string(node, 1),
+                        (Expr) child(node, 2, decoded));
+                break;
+            case VAR_EXPR:
+                result = new VarExpr(line, (Expr) child(node, 0, decoded), string(node, 1));
+                break;
+            case BINARY_ARITH_PLUS_EXPR:
+                result = new BinaryArithPlusExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_ARITH_MINUS_EXPR:
+                result = new BinaryArithMinusExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_ARITH_TIMES_EXPR:
+                result = new BinaryArithTimesExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_ARITH_DIVIDE_EXPR:
+                result = new BinaryArithDivideExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_ARITH_MODULUS_EXPR:
+                result = new BinaryArithModulusExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_EQ_EXPR:
+                result = new BinaryCompEqExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_NE_EXPR:
+                result = new BinaryCompNeExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_LT_EXPR:
+                result = new BinaryCompLtExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_LEQ_EXPR:
+                result = new BinaryCompLeqExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_GT_EXPR:
+                result = new BinaryCompGtExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_COMP_GEQ_EXPR:
+                result = new BinaryCompGeqExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_LOGIC_AND_EXPR:
+                result = new BinaryLogicAndExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case BINARY_LOGIC_OR_EXPR:
+                result = new BinaryLogicOrExpr(line, (Expr) child(node, 0, decoded),
+                        (Expr) child(node, 1, decoded));
+                break;
+            case UNARY_NEG_EXPR:
+                result = new UnaryNegExpr(line, (Expr) child(node, 0, decoded));
+                break;
+            case UNARY_NOT_EXPR:
+                result = new UnaryNotExpr(line, (Expr) child(node, 0, decoded));
+                break;
+            case UNARY_INCR_EXPR:
+                result = new UnaryIncrExpr(line, (Expr) child(node, 0, decoded),
+                        getOperand(node, 1) == 1);
+                break;
+            case UNARY_DECR_EXPR:
+                result = new UnaryDecrExpr(line, (Expr) child(node, 0, decoded),
+                        getOperand(node, 1) == 1);
+                break;
+            case CONST_INT_EXPR:
+                result = new ConstIntExpr(line, string(node, 0));
+                break;
+            case CONST_BOOLEAN_EXPR:
+                result = new ConstBooleanExpr(line, string(node, 0));
+                break;
+            default: // CONST_STRING_EXPR
+                result = new ConstStringExpr(line, string(node, 0));
+                break;
+        }
+        result.setSpan(spans[2 * node], spans[2 * node + 1]);
+        if (result instanceof Expr) {
+            ((Expr) result).setExprType(string(node, typeSlot(node)));
+        }
+        return result;
+    }
+
+    private ASTNode child(int node, int slot, ASTNode[] decoded) {
+        int child = getOperand(node, slot);
+        return child < 0 ? null : decoded[child];
+    }
+
+    private String string(int node, int slot) {
+        return strings.get(getOperand(node, slot));
+    }
+
+    /**
+     * @param node the number of an expression node
+     * @return the slot holding the type of the expression
+     */
+    private int typeSlot(int node) {
+        return LAYOUTS[kinds[node]].length() - 1;
+    }
+
+    private ListNode fillList(ListNode list, int node, ASTNode[] decoded) {
+        int size = getOperand(node, 0);
+        for (int i = 1; i <= size; i++) {
+            int element = getOperand(node, i);
+            list.addElement(element < 0 ? null : decoded[element]);
+        }
+        list.trimToSize();
+        return list;
+    }
+
+    /**
+     * copies the annotations made on decoded nodes back into the arrays
+     * @param decoded the objects made for the nodes, by node number
+     */
+    private void storeAnnotations(ASTNode[] decoded) {
+        for (int node = 0; node < nodeCount; node++) {
+            ASTNode object = decoded[node];
+            if (object instanceof Expr) {
+                setOperand(node, typeSlot(node), strings.intern(((Expr) object).getExprType()));
+            }
+            if (object instanceof DeclStmt) {
+                setOperand(node, 0, strings.intern(((DeclStmt) object).getType()));
+            }
+            else if (object instanceof CastExpr) {
+                setOperand(node, 2, ((CastExpr) object).getUpCast() ? 1 : 0);
+            }
+            else if (object instanceof InstanceofExpr) {
+                setOperand(node, 2, ((InstanceofExpr) object).getUpCheck() ? 1 : 0);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // reading the arrays in place
+
+    /**
+     * A position in the tree that can be moved down to the children of the
+     * node it is on and back up again, reading the node's fields without
+     * making any objects other than the strings already in the pool.
+     * The slots of a node's operands are those listed in LAYOUTS.
+     */
+    public class Cursor
+    {
+        /** the node the cursor is on */
+        private int node;
+        /** the nodes above the current one, from the root down */
+        private int[] path = new int[32];
+        /** the number of nodes in path */
+        private int depth;
+
+        private Cursor() {
+        }
+
+        /**
+         * @return the number of the node the cursor is on
+         */
+        public int getNode() {
+            return node;
+        }
+
+        /**
+         * @return the kind of the node the cursor is on
+         */
+        public NodeKind getKind() {
+            return KINDS[kinds[node]];
+        }
+
+        /**
+         * @return the line number of the node the cursor is on
+         */
+        public int getLineNum() {
+            return lines[node];
+        }
+
+        /**
+         * @return the offset in the source of the first char of the node the
+         * cursor is on, or -1 if it has no span
+         */
+        public int getStartOffset() {
+            return spans[2 * node];
+        }
+
+        /**
+         * @return the offset in the source just past the last char of the
+         * node the cursor is on, or -1 if it has no span
+         */
+        public int getEndOffset() {
+            return spans[2 * node + 1];
+        }
+
+        /**
+         * @return the number of levels below the root the cursor is
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return the number of elements of the list node the cursor is on
+         */
+        public int getSize() {
+            return getKind().isList() ? getOperand(node, 0) : 0;
+        }
+
+        /**
+         * @param slot the slot of a string operand of the current node
+         * @return the string, such as a name or a type, or null
+         */
+        public String getString(int slot) {
+            return string(node, slot);
+        }
+
+        /**
+         * @param slot the slot of a flag operand of the current node
+         * @return the flag, such as whether an increment is postfix
+         */
+        public boolean getFlag(int slot) {
+            return getOperand(node, slot) == 1;
+        }
+
+        /**
+         * @return the type of the expression the cursor is on, or null if
+         * it has not been checked or the node is not an expression
+         */
+        public String getExprType() {
+            String layout = LAYOUTS[kinds[node]];
+            if (layout == null || !layout.endsWith("T")) {
+                return null;
+            }
+            return string(node, layout.length() - 1);
+        }
+
+        /**
+         * @param slot the slot of a node operand of the current node
+         * @return whether the child is there, i.e. it is not null
+         */
+        public boolean hasChild(int slot) {
+            return getOperand(node, slot) >= 0;
+        }
+
+        /**
+         * moves the cursor down to a child of the current node
+         * @param slot the slot of a node operand of the current node
+         * @return false, leaving the cursor where it was, if the child is null
+         */
+        public boolean moveToChild(int slot) {
+            return moveTo(getOperand(node, slot));
+        }
+
+        /**
+         * moves the cursor down to an element of the current list node
+         * @param index the index of the element
+         * @return false, leaving the cursor where it was, if there is no such element
+         */
+        public boolean moveToElement(int index) {
+            if (index < 0 || index >= getSize()) {
+                return false;
+            }
+            return moveTo(getOperand(node, index + 1));
+        }
+
+        /**
+         * moves the cursor up to the parent of the current node
+         * @return false, leaving the cursor where it was, if it is at the root
+         */
+        public boolean moveToParent() {
+            if (depth == 0) {
+                return false;
+            }
+            node = path[--depth];
+            return true;
+        }
+
+        private boolean moveTo(int child) {
+            if (child < 0) {
+                return false;
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = node;
+            node = child;
+            return true;
+        }
+    }
+}
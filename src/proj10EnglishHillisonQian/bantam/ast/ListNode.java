@@ -34,8 +34,9 @@ package proj10EnglishHillisonQian.bantam.ast;
 
 import proj10EnglishHillisonQian.bantam.visitor.Visitor;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.NoSuchElementException;
 
 /**
  * The abstract <tt>ListNode</tt> class represents a generic list of AST
@@ -47,9 +48,19 @@ import java.util.Vector;
 public abstract class ListNode extends ASTNode
     implements Iterable<ASTNode> {
     /**
-     * List of ASTNode elements
+     * The array shared by all empty lists
      */
-    private Vector<ASTNode> listElements;
+    private static final ASTNode[] NO_ELEMENTS = new ASTNode[0];
+
+    /**
+     * Array of ASTNode elements; only the first size of them are used
+     */
+    private ASTNode[] listElements;
+
+    /**
+     * Number of elements in the list
+     */
+    private int size;
 
     /**
      * ListNode constructor
@@ -58,7 +69,7 @@ public abstract class ListNode extends ASTNode
      */
     protected ListNode(int lineNum) {
         super(lineNum);
-        listElements = new Vector<ASTNode>();
+        listElements = NO_ELEMENTS;
     }
 
     /**
@@ -68,17 +79,47 @@ public abstract class ListNode extends ASTNode
      * @return the updated list
      */
     public ListNode addElement(ASTNode node) {
-        listElements.add(node);
+        if (size == listElements.length) {
+            listElements = Arrays.copyOf(listElements, Math.max(4, size * 2));
+        }
+        listElements[size++] = node;
         return this;
     }
 
     /**
-     * Returns an iterator for this list
+     * Shrinks the array holding the elements to the size of the list. The
+     * parser calls this when it has finished a list, so that the AST does not
+     * keep the room left for more elements.
+     */
+    public void trimToSize() {
+        if (size < listElements.length) {
+            listElements = size == 0 ? NO_ELEMENTS : Arrays.copyOf(listElements, size);
+        }
+    }
+
+    /**
+     * Returns an iterator for this list.  Visitors that go through long lists
+     * should rather loop over the indexes using getSize and get.
      *
      * @return iterator for this list
      */
     public Iterator<ASTNode> iterator() {
-        return listElements.iterator();
+        return new Iterator<ASTNode>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public ASTNode next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return listElements[next++];
+            }
+        };
     }
 
     /**
@@ -87,7 +128,7 @@ public abstract class ListNode extends ASTNode
      * @return list size
      */
     public int getSize() {
-        return listElements.size();
+        return size;
     }
 
     /**
@@ -98,7 +139,10 @@ public abstract class ListNode extends ASTNode
      *         too large or too small
      */
     public ASTNode get(int index) {
-        return listElements.get(index);
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return listElements[index];
     }
 
     /**
@@ -0,0 +1,108 @@
+/*
+ * File: NodeKind.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.ast;
+
+/**
+ * The kinds of concrete nodes in the AST, one for each class of node that
+ * can be created. They are in the same order as the visit methods of the
+ * Visitor class.
+ *
+ * Every ASTNode is tagged with its kind when it is made, so code that walks
+ * the tree can switch on the kind instead of calling accept.
+ */
+public enum NodeKind
+{
+    PROGRAM(Program.class),
+    CLASS_LIST(ClassList.class),
+    CLASS(Class_.class),
+    MEMBER_LIST(MemberList.class),
+    FIELD(Field.class),
+    METHOD(Method.class),
+    FORMAL_LIST(FormalList.class),
+    FORMAL(Formal.class),
+    STMT_LIST(StmtList.class),
+    DECL_STMT(DeclStmt.class),
+    EXPR_STMT(ExprStmt.class),
+    IF_STMT(IfStmt.class),
+    WHILE_STMT(WhileStmt.class),
+    FOR_STMT(ForStmt.class),
+    BREAK_STMT(BreakStmt.class),
+    BLOCK_STMT(BlockStmt.class),
+    RETURN_STMT(ReturnStmt.class),
+    EXPR_LIST(ExprList.class),
+    DISPATCH_EXPR(DispatchExpr.class),
+    NEW_EXPR(NewExpr.class),
+    INSTANCEOF_EXPR(InstanceofExpr.class),
+    CAST_EXPR(CastExpr.class),
+    ASSIGN_EXPR(AssignExpr.class),
+    VAR_EXPR(VarExpr.class),
+    BINARY_ARITH_PLUS_EXPR(BinaryArithPlusExpr.class),
+    BINARY_ARITH_MINUS_EXPR(BinaryArithMinusExpr.class),
+    BINARY_ARITH_TIMES_EXPR(BinaryArithTimesExpr.class),
+    BINARY_ARITH_DIVIDE_EXPR(BinaryArithDivideExpr.class),
+    BINARY_ARITH_MODULUS_EXPR(BinaryArithModulusExpr.class),
+    BINARY_COMP_EQ_EXPR(BinaryCompEqExpr.class),
+    BINARY_COMP_NE_EXPR(BinaryCompNeExpr.class),
+    BINARY_COMP_LT_EXPR(BinaryCompLtExpr.class),
+    BINARY_COMP_LEQ_EXPR(BinaryCompLeqExpr.class),
+    BINARY_COMP_GT_EXPR(BinaryCompGtExpr.class),
+    BINARY_COMP_GEQ_EXPR(BinaryCompGeqExpr.class),
+    BINARY_LOGIC_AND_EXPR(BinaryLogicAndExpr.class),
+    BINARY_LOGIC_OR_EXPR(BinaryLogicOrExpr.class),
+    UNARY_NEG_EXPR(UnaryNegExpr.class),
+    UNARY_NOT_EXPR(UnaryNotExpr.class),
+    UNARY_INCR_EXPR(UnaryIncrExpr.class),
+    UNARY_DECR_EXPR(UnaryDecrExpr.class),
+    CONST_INT_EXPR(ConstIntExpr.class),
+    CONST_BOOLEAN_EXPR(ConstBooleanExpr.class),
+    CONST_STRING_EXPR(ConstStringExpr.class);
+
+    /** the kind of each class of node, worked out the first time it is asked for */
+    private static final ClassValue<NodeKind> KIND_OF_CLASS = new ClassValue<NodeKind>() {
+        @Override
+        protected NodeKind computeValue(Class<?> type) {
+            for (NodeKind kind : values()) {
+                if (kind.nodeClass == type) {
+                    return kind;
+                }
+            }
+            // a subclass of a node class is of the same kind as the node class
+            Class<?> parent = type.getSuperclass();
+            return parent == null ? null : get(parent);
+        }
+    };
+
+    /** the class of the nodes of this kind */
+    private final Class<? extends ASTNode> nodeClass;
+
+    NodeKind(Class<? extends ASTNode> nodeClass) {
+        this.nodeClass = nodeClass;
+    }
+
+    /**
+     * @return the class of the nodes of this kind
+     */
+    public Class<? extends ASTNode> getNodeClass() {
+        return nodeClass;
+    }
+
+    /**
+     * @return whether nodes of this kind are lists of other nodes
+     */
+    public boolean isList() {
+        return this == CLASS_LIST || this == MEMBER_LIST || this == FORMAL_LIST
+                || this == STMT_LIST || this == EXPR_LIST;
+    }
+
+    /**
+     * @param type the class of a node
+     * @return the kind of the nodes of the class, or null for an abstract class
+     */
+    static NodeKind of(Class<?> type) {
+        return KIND_OF_CLASS.get(type);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * File: SpanIndex.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.ast;
+
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An index of the nodes of an AST by their spans in the source, for finding
+ * the node under the caret, or the nodes in a selection, without walking the
+ * whole tree.
+ *
+ * The nodes are kept in order of their start offsets, in preorder among nodes
+ * that start at the same offset, with a tree of the largest end offset in
+ * each range of them on top. Since the span of a node lies within the span of
+ * its parent, the nodes containing an offset are a chain of ancestors, and the
+ * last one of them in that order is the innermost. Both queries walk down the
+ * tree, taking O(log n) time plus the number of nodes found.
+ *
+ * Nodes without a span, such as those of the built-in classes, are left out.
+ * The index does not see changes made to the AST after it is built.
+ */
+public class SpanIndex
+{
+    /** the nodes with a span, in order of their start offsets */
+    private final ASTNode[] nodes;
+    /** the start offset of each node */
+    private final int[] starts;
+    /** the number of leaves of the tree, a power of two */
+    private final int leaves;
+    /**
+     * the tree of the largest end offsets, with the root at 1 and the
+     * children of i at 2i and 2i+1; the leaf of node i is at leaves + i
+     */
+    private final int[] maxEnds;
+
+    /**
+     * builds the index of the nodes of an AST
+     * @param root the root of the AST, usually a Program
+     */
+    public SpanIndex(ASTNode root) {
+        Collector collector = new Collector();
+        collector.traverse(root);
+        ArrayList<ASTNode> found = collector.nodes;
+        // the parser's spans come out of a preorder walk already in order;
+        // other ASTs are sorted, stably so preorder is kept for equal starts
+        if (!inOrder(found)) {
+            found.sort(Comparator.comparingInt(ASTNode::getStartOffset));
+        }
+
+        nodes = found.toArray(new ASTNode[0]);
+        starts = new int[nodes.length];
+        int size = 1;
+        while (size < nodes.length) {
+            size *= 2;
+        }
+        leaves = size;
+        maxEnds = new int[2 * leaves];
+        Arrays.fill(maxEnds, -1);
+        for (int i = 0; i < nodes.length; i++) {
+            starts[i] = nodes[i].getStartOffset();
+            maxEnds[leaves + i] = nodes[i].getEndOffset();
+        }
+        for (int i = leaves - 1; i > 0; i--) {
+            maxEnds[i] = Math.max(maxEnds[2 * i], maxEnds[2 * i + 1]);
+        }
+    }
+
+    private static boolean inOrder(List<ASTNode> nodes) {
+        for (int i = 1; i < nodes.size(); i++) {
+            if (nodes.get(i - 1).getStartOffset() > nodes.get(i).getStartOffset()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of nodes in the index
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * finds the innermost node whose span holds the char at an offset
+     * @param offset the offset of a char in the source
+     * @return the node, or null if no node holds the char
+     */
+    public ASTNode nodeAt(int offset) {
+        int index = lastEndingAfter(1, 0, leaves, countStartingBefore(offset + 1), offset);
+        return index < 0 ? null : nodes[index];
+    }
+
+    /**
+     * finds the nodes whose spans share at least one char with a range
+     * @param start the offset of the first char of the range
+     * @param end the offset just past the last char of the range
+     * @return the nodes, outer ones before the ones inside them
+     */
+    public List<ASTNode> nodesOverlapping(int start, int end) {
+        List<ASTNode> found = new ArrayList<>();
+        if (start < end) {
+            collectEndingAfter(1, 0, leaves, countStartingBefore(end), start, found);
+        }
+        return found;
+    }
+
+    /**
+     * @param offset an offset
+     * @return the number of nodes that start before the offset
+     */
+    private int countStartingBefore(int offset) {
+        int low = 0;
+        int high = nodes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < offset) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * finds the last node before a limit that ends after an offset
+     * @param tree the tree node covering the nodes from low to high
+     * @param low the index of the first node covered
+     * @param high the index after the last node covered
+     * @param limit the index after the last node to consider
+     * @param offset the offset the node must end after
+     * @return the index of the node, or -1 if there is none
+     */
+    private int lastEndingAfter(int tree, int low, int high, int limit, int offset) {
+        if (low >= limit || maxEnds[tree] <= offset) {
+            return -1;
+        }
+        if (high - low == 1) {
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int index = lastEndingAfter(2 * tree + 1, middle, high, limit, offset);
+        if (index >= 0) {
+            return index;
+        }
+        return lastEndingAfter(2 * tree, low, middle, limit, offset);
+    }
+
+    /**
+     * adds, in order, all the nodes before a limit that end after an offset
+     * @param tree the tree node covering the nodes from low to high
+     * @param low the index of the first node covered
+     * @param high the index after the last node covered
+     * @param limit the index after the last node to consider
+     * @param offset the offset the nodes must end after
+     * @param found where to add the nodes
+     */
+    private void collectEndingAfter(int tree, int low, int high, int limit, int offset,
+                                    List<ASTNode> found) {
+        if (low >= limit || maxEnds[tree] <= offset) {
+            return;
+        }
+        if (high - low == 1) {
+            found.add(nodes[low]);
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        collectEndingAfter(2 * tree, low, middle, limit, offset, found);
+        collectEndingAfter(2 * tree + 1, middle, high, limit, offset, found);
+    }
+
+    /**
+     * Gathers the nodes of an AST that have a span, in preorder. It walks
+     * with a Traversal, so a tree deeper than the call stack, such as a long
+     * chain of "+"s, can be indexed too.
+     */
+    private static class Collector extends Traversal
+    {
+        private final ArrayList<ASTNode> nodes = new ArrayList<>();
+
+        @Override
+        protected boolean pre(ASTNode node) {
+            if (node.getStartOffset() >= 0) {
+                nodes.add(node);
+            }
+            return true;
+        }
+    }
+}
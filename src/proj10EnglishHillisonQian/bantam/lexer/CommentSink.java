@@ -0,0 +1,21 @@
+/*
+ * File: CommentSink.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+/**
+ * Receives the comments the Scanner skips over. Only tools that need the
+ * comments, such as the pretty printer, give the Scanner a sink.
+ */
+public interface CommentSink
+{
+    /**
+     * called for each comment in the order they appear in the source
+     * @param line the line number the scanner was on at the end of the comment
+     * @param text the text of the comment, including the // or the slash stars
+     */
+    void comment(int line, String text);
+}
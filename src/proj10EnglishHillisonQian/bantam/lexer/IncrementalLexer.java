@@ -0,0 +1,418 @@
+/*
+ * File: IncrementalLexer.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+import proj10EnglishHillisonQian.bantam.util.Error;
+import proj10EnglishHillisonQian.bantam.util.ErrorCollector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the tokens of a text that is being edited up to date without
+ * rescanning all of it, such as the text of an editor, which tells it of
+ * each edit. After every token the Scanner's checkpoint (the offset and
+ * line it resumes from) is recorded. When the text changes, scanning
+ * restarts at the last checkpoint before the change and stops as soon as it
+ * reaches a checkpoint of the previous run past the change; the tokens after
+ * it are kept.
+ *
+ * The tokens are kept in parallel arrays with a gap at the last edit, the
+ * way an editor keeps its text. The offsets and lines of the tokens after
+ * the gap are kept relative to a base that is moved by each edit, so an
+ * edit only touches the tokens it rescans and those between it and the
+ * last edit, however long the text is. The text itself is kept in one
+ * array with room to grow, since the Scanner reads it in one piece, so an
+ * edit moves the chars after it over.
+ *
+ * The lexical errors found scanning a token are kept with it, so they are
+ * updated the same way. getTokens hands the tokens to a Parser.
+ */
+public class IncrementalLexer
+{
+    /** the text, in the first length chars */
+    private char[] text = new char[64];
+    /** the number of chars in the text */
+    private int length;
+
+    /** the kind of each token */
+    private Token.Kind[] kinds = new Token.Kind[16];
+    /** the offset of the first char of each token */
+    private int[] starts = new int[16];
+    /** the number of chars in each token */
+    private int[] lengths = new int[16];
+    /** the line number of each token */
+    private int[] lines = new int[16];
+    /** the checkpoint offset after each token */
+    private int[] ends = new int[16];
+    /** the checkpoint line after each token */
+    private int[] endLines = new int[16];
+    /**
+     * the lexical errors found scanning each token, with line numbers
+     * relative to the line of the token, or null if there were none
+     */
+    private Error[][] errors = new Error[16][];
+
+    /** the index in the arrays of the first slot of the gap */
+    private int gapStart;
+    /** the index in the arrays of the first token after the gap */
+    private int gapEnd = 16;
+    /** added to the stored offsets of the tokens after the gap */
+    private int offsetBase;
+    /** added to the stored lines of the tokens after the gap */
+    private int lineBase;
+
+    /** the number of tokens scanned by the last edit */
+    private int scannedCount;
+
+    /**
+     * creates a new IncrementalLexer for an empty text
+     */
+    public IncrementalLexer() {
+        replace(0, 0, "");
+    }
+
+    /**
+     * Replaces a range of the text and updates the tokens. Only the tokens
+     * from the last checkpoint before the range up to the point where the
+     * token stream matches the previous one again are scanned.
+     * @param position the offset of the first char replaced
+     * @param removedLength the number of chars replaced
+     * @param inserted the chars put in their place
+     */
+    public void replace(int position, int removedLength, CharSequence inserted) {
+        if (position < 0 || removedLength < 0 || position + removedLength > length) {
+            throw new IndexOutOfBoundsException("replace(" + position + ", " + removedLength
+                    + ") in a text of length " + length);
+        }
+        int insertedLength = inserted.length();
+        int delta = insertedLength - removedLength;
+
+        // tokens whose lookahead char is before the change stay the same, but
+        // never the EOF token, which a '\0' can make come before the end
+        int kept = Math.min(firstEndAtOrAfter(position), getTokenCount() - 1);
+        moveGap(Math.max(kept, 0));
+
+        // change the text
+        if (length + delta > text.length) {
+            text = Arrays.copyOf(text, Math.max(2 * text.length, length + delta));
+        }
+        System.arraycopy(text, position + removedLength, text, position + insertedLength,
+                length - position - removedLength);
+        for (int i = 0; i < insertedLength; i++) {
+            text[position + i] = inserted.charAt(i);
+        }
+        length += delta;
+
+        ErrorCollector collector = new ErrorCollector();
+        Scanner scanner = new Scanner(null, text, length, collector);
+        scanner.setReuseTokens(true);
+        if (gapStart > 0) {
+            scanner.resume(ends[gapStart - 1], endLines[gapStart - 1]);
+        }
+
+        // scan until the checkpoints match the previous run again
+        int changeEnd = position + insertedLength;
+        scannedCount = 0;
+        while (true) {
+            Token token = scanner.scan();
+            scannedCount++;
+            int end = scanner.getResumeOffset();
+            int endLine = scanner.getResumeLine();
+
+            // the old tokens with a checkpoint before this one can no longer match
+            while (gapEnd < kinds.length && ends[gapEnd] + offsetBase < end - delta) {
+                dropAfterGap();
+            }
+            insertAtGap(token.kind, scanner.getTokenStart(),
+                    scanner.getTokenEnd() - scanner.getTokenStart(), token.position,
+                    end, endLine, collector.getErrorList());
+            collector.clear();
+            if (token.kind == Token.Kind.EOF) {
+                while (gapEnd < kinds.length) {
+                    dropAfterGap();
+                }
+                break;
+            }
+
+            // the previous run is in the same state if the chars before and at
+            // the checkpoint are both unchanged and it had a checkpoint there too,
+            // other than at its EOF token
+            if (end - 1 >= changeEnd && gapEnd < kinds.length - 1
+                    && ends[gapEnd] + offsetBase == end - delta) {
+                int lineDelta = endLine - (endLines[gapEnd] + lineBase);
+                dropAfterGap();
+                offsetBase += delta;
+                lineBase += lineDelta;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Updates the tokens for the new text, replacing the part of the text
+     * between what it has in common with the new text at the start and at
+     * the end.
+     * @param newText the whole text after the edit
+     */
+    public void update(CharSequence newText) {
+        int newLength = newText.length();
+        int prefix = 0;
+        int maxPrefix = Math.min(length, newLength);
+        while (prefix < maxPrefix && text[prefix] == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix
+                && text[length - 1 - suffix] == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        replace(prefix, length - prefix - suffix,
+                newText.subSequence(prefix, newLength - suffix));
+    }
+
+    /**
+     * @param offset an offset in the text
+     * @return the index of the first token whose checkpoint is at or after the offset
+     */
+    private int firstEndAtOrAfter(int offset) {
+        int low = 0;
+        int high = getTokenCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int end = middle < gapStart ? ends[middle]
+                    : ends[middle + gapEnd - gapStart] + offsetBase;
+            if (end < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the gap so that the given number of tokens are before it,
+     * turning the offsets and lines of the tokens that cross it from
+     * absolute to relative or back.
+     * @param index the number of tokens to have before the gap
+     */
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            moveToken(gapStart, gapEnd, -offsetBase, -lineBase);
+        }
+        while (gapStart < index) {
+            moveToken(gapEnd, gapStart, offsetBase, lineBase);
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * moves a token from one slot of the arrays to another
+     * @param from the slot of the token
+     * @param to the slot it moves to
+     * @param offsetDelta what is added to its offsets
+     * @param lineDelta what is added to its lines
+     */
+    private void moveToken(int from, int to, int offsetDelta, int lineDelta) {
+        kinds[to] = kinds[from];
+        starts[to] = starts[from] + offsetDelta;
+        lengths[to] = lengths[from];
+        lines[to] = lines[from] + lineDelta;
+        ends[to] = ends[from] + offsetDelta;
+        endLines[to] = endLines[from] + lineDelta;
+        if (from != to) {
+            errors[to] = errors[from];
+            errors[from] = null;
+        }
+    }
+
+    /**
+     * removes the first token after the gap
+     */
+    private void dropAfterGap() {
+        errors[gapEnd] = null;
+        gapEnd++;
+    }
+
+    /**
+     * adds a token at the start of the gap, growing the arrays if the gap is full
+     * @param kind the kind of the token
+     * @param start the offset of the first char of the token
+     * @param tokenLength the number of chars in the token
+     * @param line the line of the token
+     * @param end the checkpoint offset after the token
+     * @param endLine the checkpoint line after the token
+     * @param tokenErrors the lexical errors found scanning the token
+     */
+    private void insertAtGap(Token.Kind kind, int start, int tokenLength, int line,
+                             int end, int endLine, List<Error> tokenErrors) {
+        if (gapStart == gapEnd) {
+            int capacity = 2 * kinds.length;
+            int after = kinds.length - gapEnd;
+            kinds = grow(kinds, capacity, after);
+            starts = grow(starts, capacity, after);
+            lengths = grow(lengths, capacity, after);
+            lines = grow(lines, capacity, after);
+            ends = grow(ends, capacity, after);
+            endLines = grow(endLines, capacity, after);
+            errors = grow(errors, capacity, after);
+            gapEnd = capacity - after;
+        }
+        kinds[gapStart] = kind;
+        starts[gapStart] = start;
+        lengths[gapStart] = tokenLength;
+        lines[gapStart] = line;
+        ends[gapStart] = end;
+        endLines[gapStart] = endLine;
+        if (!tokenErrors.isEmpty()) {
+            Error[] relative = new Error[tokenErrors.size()];
+            for (int i = 0; i < relative.length; i++) {
+                Error error = tokenErrors.get(i);
+                relative[i] = new Error(error.getKind(), null,
+                        error.getLineNum() - line, error.getMessage());
+            }
+            errors[gapStart] = relative;
+        }
+        gapStart++;
+    }
+
+    /**
+     * @param array one of the arrays of the tokens, with no room left in the gap
+     * @param capacity its new length
+     * @param after the number of tokens after the gap
+     * @return a copy of the array of the given length, with the tokens after
+     * the gap moved to the end
+     */
+    private static int[] grow(int[] array, int capacity, int after) {
+        int[] grown = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, array.length - after, grown, capacity - after, after);
+        return grown;
+    }
+
+    /**
+     * @param array one of the arrays of the tokens, with no room left in the gap
+     * @param capacity its new length
+     * @param after the number of tokens after the gap
+     * @return a copy of the array of the given length, with the tokens after
+     * the gap moved to the end and nothing left in the gap
+     */
+    private static <T> T[] grow(T[] array, int capacity, int after) {
+        T[] grown = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, array.length - after, grown, capacity - after, after);
+        Arrays.fill(grown, array.length - after, capacity - after, null);
+        return grown;
+    }
+
+    /**
+     * @return the number of tokens, including the EOF token at the end
+     */
+    public int getTokenCount() {
+        return gapStart + kinds.length - gapEnd;
+    }
+
+    /**
+     * @return the current text
+     */
+    public String getText() {
+        return new String(text, 0, length);
+    }
+
+    /**
+     * Copies the tokens into a TokenBuffer for a Parser. Later edits do not
+     * change it.
+     * @param filename the name of the file being edited, used in error messages
+     * @return the buffer holding the tokens, ending with the EOF token
+     */
+    public TokenBuffer getTokens(String filename) {
+        int count = getTokenCount();
+        TokenBuffer tokens = new TokenBuffer(Arrays.copyOf(text, length), length, count);
+        List<Error> tokenErrors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int slot = i;
+            int offsetDelta = 0;
+            int lineDelta = 0;
+            if (i >= gapStart) {
+                slot = i + gapEnd - gapStart;
+                offsetDelta = offsetBase;
+                lineDelta = lineBase;
+            }
+            int line = lines[slot] + lineDelta;
+            tokenErrors.clear();
+            if (errors[slot] != null) {
+                for (Error error : errors[slot]) {
+                    tokenErrors.add(new Error(error.getKind(), filename,
+                            line + error.getLineNum(), error.getMessage()));
+                }
+            }
+            tokens.add(kinds[slot], starts[slot] + offsetDelta, lengths[slot], line,
+                    tokenErrors.isEmpty() ? Collections.<Error>emptyList() : tokenErrors);
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the number of tokens the last edit had to scan
+     */
+    public int getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * Loads the given file, then puts a new line in the middle of it and
+     * types a char after it, and prints how many tokens each edit had to
+     * scan and whether the tokens match a full scan of the edited text.
+     * @param args the file to test on
+     */
+    public static void main(String[] args) throws IOException {
+        String file = args.length < 1 ? "ParserTestEnglishHillisonQian.btm" : args[0];
+        String original = new String(Files.readAllBytes(Paths.get(file)));
+
+        IncrementalLexer lexer = new IncrementalLexer();
+        long start = System.nanoTime();
+        lexer.replace(0, 0, original);
+        long full = System.nanoTime() - start;
+        System.out.println("full scan: " + lexer.getScannedCount() + " tokens in "
+                + full / 1000 + " us");
+
+        // put a new line in front of the first identifier past the middle
+        int middle = original.indexOf(' ', original.length() / 2) + 1;
+        start = System.nanoTime();
+        lexer.replace(middle, 0, "\nx ");
+        long incremental = System.nanoTime() - start;
+        System.out.println("after edit: " + lexer.getScannedCount() + " tokens in "
+                + incremental / 1000 + " us");
+
+        // then type a char next to it, as the next keystroke would
+        start = System.nanoTime();
+        lexer.replace(middle + 2, 0, "y");
+        incremental = System.nanoTime() - start;
+        System.out.println("next keystroke: " + lexer.getScannedCount() + " tokens in "
+                + incremental / 1000 + " us");
+
+        String edited = original.substring(0, middle) + "\nxy " + original.substring(middle);
+        TokenBuffer scanned = new Scanner(file, edited, new ErrorCollector()).scanAll();
+        TokenBuffer updated = lexer.getTokens(file);
+        boolean same = scanned.size() == updated.size();
+        for (int i = 0; same && i < scanned.size(); i++) {
+            same = scanned.getKind(i) == updated.getKind(i)
+                    && scanned.getStart(i) == updated.getStart(i)
+                    && scanned.getLength(i) == updated.getLength(i)
+                    && scanned.getLine(i) == updated.getLine(i);
+        }
+        System.out.println(same ? "tokens match a full scan" : "tokens DIFFER from a full scan");
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * File: Keywords.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+/**
+ * Recognizes the reserved words and boolean constants of Bantam Java
+ * with a perfect hash, so a word can be looked up straight from the
+ * source buffer without making a String of it.
+ *
+ * The words are the spellings of the Token.Kind constants that start with a
+ * letter. The hash uses the first two chars and the length of the word;
+ * its multiplier and table size are found when the class is loaded by
+ * trying small values until no two words share a slot.
+ */
+final class Keywords
+{
+    /** the word in each slot of the table, or null */
+    private static final char[][] words;
+    /** the kind of the word in each slot of the table */
+    private static final Token.Kind[] kinds;
+    /** the multiplier of the first char in the hash */
+    private static final int multiplier;
+    /** the table size minus one, used to mask the hash */
+    private static final int mask;
+    /** the length of the longest word */
+    private static final int maxLength;
+
+    static {
+        int count = 0;
+        int longest = 0;
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (isWordKind(kind)) {
+                for (String spelling : kind.spellings) {
+                    count++;
+                    longest = Math.max(longest, spelling.length());
+                }
+            }
+        }
+        maxLength = longest;
+
+        // find the smallest table and multiplier with no collisions
+        int size = Integer.highestOneBit(count) * 2;
+        int found = 0;
+        while (found == 0) {
+            for (int m = 1; m < 256 && found == 0; m++) {
+                if (isPerfect(m, size)) {
+                    found = m;
+                }
+            }
+            if (found == 0) {
+                size *= 2;
+            }
+        }
+        multiplier = found;
+        mask = size - 1;
+
+        words = new char[size][];
+        kinds = new Token.Kind[size];
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (isWordKind(kind)) {
+                for (String spelling : kind.spellings) {
+                    char[] word = spelling.toCharArray();
+                    int slot = hash(multiplier, word[0], word[1], word.length) & mask;
+                    words[slot] = word;
+                    kinds[slot] = kind;
+                }
+            }
+        }
+    }
+
+    private Keywords() {
+    }
+
+    /**
+     * @param kind a kind of token
+     * @return whether the spellings of the kind are words, such as "class" or "true"
+     */
+    private static boolean isWordKind(Token.Kind kind) {
+        return kind.spellings.length > 0 && Character.isLetter(kind.spellings[0].charAt(0));
+    }
+
+    private static int hash(int multiplier, char first, char second, int length) {
+        return first * multiplier + second + length;
+    }
+
+    /**
+     * checks whether the multiplier hashes every word to its own slot
+     * @param multiplier the multiplier to try
+     * @param size the table size to try, a power of 2
+     * @return true if no two words share a slot
+     */
+    private static boolean isPerfect(int multiplier, int size) {
+        boolean[] used = new boolean[size];
+        for (Token.Kind kind : Token.Kind.values()) {
+            if (isWordKind(kind)) {
+                for (String word : kind.spellings) {
+                    int slot = hash(multiplier, word.charAt(0), word.charAt(1),
+                            word.length()) & (size - 1);
+                    if (used[slot]) {
+                        return false;
+                    }
+                    used[slot] = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * finds the kind of the word in source[start, start + length)
+     * @param source the buffer holding the word
+     * @param start the index of the first char of the word
+     * @param length the number of chars in the word
+     * @return BOOLEAN, the kind of the reserved word, or IDENTIFIER
+     */
+    static Token.Kind kindOf(char[] source, int start, int length) {
+        if (length < 2 || length > maxLength) {
+            return Token.Kind.IDENTIFIER;
+        }
+        int slot = hash(multiplier, source[start], source[start + 1], length) & mask;
+        char[] word = words[slot];
+        if (word == null || word.length != length) {
+            return Token.Kind.IDENTIFIER;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word[i] != source[start + i]) {
+                return Token.Kind.IDENTIFIER;
+            }
+        }
+        return kinds[slot];
+    }
+
+    /**
+     * finds the kind of a word
+     * @param word the word
+     * @return BOOLEAN, the kind of the reserved word, or IDENTIFIER
+     */
+    static Token.Kind kindOf(String word) {
+        int length = word.length();
+        if (length < 2 || length > maxLength) {
+            return Token.Kind.IDENTIFIER;
+        }
+        int slot = hash(multiplier, word.charAt(0), word.charAt(1), length) & mask;
+        char[] candidate = words[slot];
+        if (candidate == null || candidate.length != length) {
+            return Token.Kind.IDENTIFIER;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate[i] != word.charAt(i)) {
+                return Token.Kind.IDENTIFIER;
+            }
+        }
+        return kinds[slot];
+    }
+}
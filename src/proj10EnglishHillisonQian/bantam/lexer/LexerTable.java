@@ -0,0 +1,271 @@
+/*
+ * File: LexerTable.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The transition table of the DFA the Scanner runs. Every char is mapped
+ * to a char class by a lookup array, and the next state is found in a
+ * state x char class matrix. The states for operators and punctuation
+ * are generated from the spellings listed in Token.Kind; the states for
+ * identifiers, literals and comments are written out by hand.
+ *
+ * A transition to STOP means the token ended at the char before. A state
+ * with no transitions out is complete: its token ends with the char that
+ * led into it (or before it, if that was the EOF char), so no lookahead
+ * char is read.
+ */
+final class LexerTable
+{
+    // char classes
+    static final int SPACE = 0, NEWLINE = 1, RETURN = 2, EOF = 3, LETTER = 4,
+            ESCAPE_LETTER = 5, DIGIT = 6, UNDERSCORE = 7, QUOTE = 8, BACKSLASH = 9,
+            STAR = 10, SLASH = 11, OTHER = 12;
+
+    // hand written states; the operator states are numbered after these
+    static final int START = 0, IDENTIFIER = 1, INT = 2, STRING = 3,
+            STRING_BACKSLASH = 4, BAD_STRING = 5, BAD_STRING_BACKSLASH = 6,
+            BAD_ESCAPE = 7, STRING_END = 8, BAD_STRING_END = 9, LINE_COMMENT = 10,
+            BLOCK_COMMENT = 11, BLOCK_COMMENT_STAR = 12, BLOCK_COMMENT_END = 13,
+            UNSUPPORTED = 14, BAD_ESCAPE_AT_EOF = 15;
+    private static final int HAND_WRITTEN_STATES = 16;
+
+    /** the transition to take when the current token has ended */
+    static final int STOP = -1;
+
+    /** the char class of each ASCII char */
+    private static final byte[] charClasses = new byte[128];
+    /** the number of char classes */
+    static final int classCount;
+
+    /** the next state for state s and char class c is at s * classCount + c */
+    static final int[] transitions;
+    /** whether the token is over as soon as the state is entered */
+    static final boolean[] complete;
+    /** the kind of token with a fixed spelling ending in each state */
+    static final Token.Kind[] kinds;
+    /** the fixed spelling of the token ending in each state */
+    static final String[] spellings;
+    /** the error reported if a token ends in each state */
+    static final String[] errors;
+    /** the error reported when each state is entered */
+    static final String[] entryErrors;
+
+    static {
+        Arrays.fill(charClasses, (byte) OTHER);
+        charClasses[' '] = charClasses['\t'] = SPACE;
+        charClasses['\n'] = NEWLINE;
+        charClasses['\r'] = RETURN;
+        charClasses[SourceFile.EOF] = EOF;
+        for (char c = 'a'; c <= 'z'; c++) {
+            charClasses[c] = charClasses[Character.toUpperCase(c)] = LETTER;
+        }
+        charClasses['n'] = charClasses['t'] = charClasses['f'] = ESCAPE_LETTER;
+        for (char c = '0'; c <= '9'; c++) {
+            charClasses[c] = DIGIT;
+        }
+        charClasses['_'] = UNDERSCORE;
+        charClasses['"'] = QUOTE;
+        charClasses['\\'] = BACKSLASH;
+        charClasses['*'] = STAR;
+        charClasses['/'] = SLASH;
+
+        // every other char used in a fixed spelling gets a class of its own
+        int classes = OTHER + 1;
+        for (Token.Kind kind : Token.Kind.values()) {
+            for (String spelling : kind.spellings) {
+                for (char c : spelling.toCharArray()) {
+                    if (charClasses[c] == OTHER) {
+                        charClasses[c] = (byte) classes++;
+                    }
+                }
+            }
+        }
+        classCount = classes;
+
+        Builder builder = new Builder();
+        builder.addRow(START, UNSUPPORTED);
+        builder.set(START, SPACE, START);
+        builder.set(START, NEWLINE, START);
+        builder.set(START, LETTER, IDENTIFIER);
+        builder.set(START, ESCAPE_LETTER, IDENTIFIER);
+        builder.set(START, DIGIT, INT);
+        builder.set(START, QUOTE, STRING);
+
+        builder.addRow(IDENTIFIER, STOP);
+        builder.set(IDENTIFIER, LETTER, IDENTIFIER);
+        builder.set(IDENTIFIER, ESCAPE_LETTER, IDENTIFIER);
+        builder.set(IDENTIFIER, DIGIT, IDENTIFIER);
+        builder.set(IDENTIFIER, UNDERSCORE, IDENTIFIER);
+
+        builder.addRow(INT, STOP);
+        builder.set(INT, DIGIT, INT);
+
+        // a string is bad once it has an invalid escape char in it.
+        // A backslash makes the next char an escape char even if the backslash
+        // was itself escaped, so a quote right after \\ does not end the string.
+        builder.addRow(STRING, STRING);
+        builder.set(STRING, QUOTE, STRING_END);
+        builder.set(STRING, BACKSLASH, STRING_BACKSLASH);
+        builder.set(STRING, EOF, STOP);
+        builder.addRow(STRING_BACKSLASH, BAD_ESCAPE);
+        builder.set(STRING_BACKSLASH, ESCAPE_LETTER, STRING);
+        builder.set(STRING_BACKSLASH, QUOTE, STRING);
+        builder.set(STRING_BACKSLASH, BACKSLASH, STRING_BACKSLASH);
+        builder.set(STRING_BACKSLASH, EOF, BAD_ESCAPE_AT_EOF);
+        builder.addRow(BAD_STRING, BAD_STRING);
+        builder.set(BAD_STRING, QUOTE, BAD_STRING_END);
+        builder.set(BAD_STRING, BACKSLASH, BAD_STRING_BACKSLASH);
+        builder.set(BAD_STRING, EOF, STOP);
+        builder.addRow(BAD_STRING_BACKSLASH, BAD_ESCAPE);
+        builder.set(BAD_STRING_BACKSLASH, ESCAPE_LETTER, BAD_STRING);
+        builder.set(BAD_STRING_BACKSLASH, QUOTE, BAD_STRING);
+        builder.set(BAD_STRING_BACKSLASH, BACKSLASH, BAD_STRING_BACKSLASH);
+        builder.set(BAD_STRING_BACKSLASH, EOF, BAD_ESCAPE_AT_EOF);
+        builder.addRow(BAD_ESCAPE, BAD_STRING);
+        builder.set(BAD_ESCAPE, QUOTE, BAD_STRING_END);
+        builder.set(BAD_ESCAPE, BACKSLASH, BAD_STRING_BACKSLASH);
+        builder.set(BAD_ESCAPE, EOF, STOP);
+        builder.addRow(STRING_END, STOP);
+        builder.addRow(BAD_STRING_END, STOP);
+
+        // a line comment ends before the char that starts a new line
+        builder.addRow(LINE_COMMENT, LINE_COMMENT);
+        builder.set(LINE_COMMENT, NEWLINE, STOP);
+        builder.set(LINE_COMMENT, RETURN, STOP);
+        builder.set(LINE_COMMENT, EOF, STOP);
+        builder.addRow(BLOCK_COMMENT, BLOCK_COMMENT);
+        builder.set(BLOCK_COMMENT, STAR, BLOCK_COMMENT_STAR);
+        builder.set(BLOCK_COMMENT, EOF, STOP);
+        builder.addRow(BLOCK_COMMENT_STAR, BLOCK_COMMENT);
+        builder.set(BLOCK_COMMENT_STAR, SLASH, BLOCK_COMMENT_END);
+        builder.set(BLOCK_COMMENT_STAR, EOF, STOP);
+        builder.addRow(BLOCK_COMMENT_END, STOP);
+
+        builder.addRow(UNSUPPORTED, STOP);
+        builder.addRow(BAD_ESCAPE_AT_EOF, STOP);
+
+        // operators and punctuation, plus the EOF token spelled with the EOF char
+        for (Token.Kind kind : Token.Kind.values()) {
+            for (String spelling : kind.spellings) {
+                if (!Character.isLetter(spelling.charAt(0))) {
+                    builder.addSpelling(kind, spelling);
+                }
+            }
+        }
+        int slash = builder.get(START, SLASH);
+        builder.set(slash, SLASH, LINE_COMMENT);
+        builder.set(slash, STAR, BLOCK_COMMENT);
+
+        int states = builder.rows.size();
+        transitions = new int[states * classCount];
+        complete = new boolean[states];
+        for (int state = 0; state < states; state++) {
+            int[] row = builder.rows.get(state);
+            System.arraycopy(row, 0, transitions, state * classCount, classCount);
+            complete[state] = true;
+            for (int next : row) {
+                complete[state] &= next == STOP;
+            }
+        }
+        kinds = builder.kinds.toArray(new Token.Kind[0]);
+        spellings = builder.spellings.toArray(new String[0]);
+
+        errors = new String[states];
+        for (int state = 0; state < states; state++) {
+            if (state >= HAND_WRITTEN_STATES && kinds[state] == null) {
+                // the only operators with prefixes that are not tokens are && and ||
+                errors[state] = "Logical Op | or &";
+            }
+        }
+        errors[STRING] = errors[STRING_BACKSLASH] = errors[BAD_STRING] =
+                errors[BAD_STRING_BACKSLASH] = errors[BAD_ESCAPE] =
+                        errors[BAD_ESCAPE_AT_EOF] = "Unterminated string constant";
+        errors[BLOCK_COMMENT] = errors[BLOCK_COMMENT_STAR] = "Unterminated block comment";
+        errors[UNSUPPORTED] = "Unsupported char";
+
+        entryErrors = new String[states];
+        entryErrors[BAD_ESCAPE] = entryErrors[BAD_ESCAPE_AT_EOF] =
+                "Invalid escape char in string";
+    }
+
+    private LexerTable() {
+    }
+
+    /**
+     * returns the char class of a char
+     * @param c the char
+     * @return the class of c, used as the column in the transition table
+     */
+    static int classOf(char c) {
+        if (c < 128) {
+            return charClasses[c];
+        }
+        if (Character.isLetter(c)) {
+            return LETTER;
+        }
+        if (Character.isDigit(c)) {
+            return DIGIT;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Collects the rows of the table while it is being generated.
+     */
+    private static class Builder
+    {
+        private final ArrayList<int[]> rows = new ArrayList<>();
+        private final ArrayList<Token.Kind> kinds = new ArrayList<>();
+        private final ArrayList<String> spellings = new ArrayList<>();
+
+        /**
+         * adds a row for a new state with every transition going to one state
+         * @param state the number of the new state
+         * @param next the state every char class goes to
+         */
+        private void addRow(int state, int next) {
+            assert state == rows.size();
+            int[] row = new int[classCount];
+            Arrays.fill(row, next);
+            rows.add(row);
+            kinds.add(null);
+            spellings.add(null);
+        }
+
+        private int get(int state, int charClass) {
+            return rows.get(state)[charClass];
+        }
+
+        private void set(int state, int charClass, int next) {
+            rows.get(state)[charClass] = next;
+        }
+
+        /**
+         * adds the states needed to recognize a fixed spelling from the start state
+         * @param kind the kind of token with the spelling
+         * @param spelling the spelling
+         */
+        private void addSpelling(Token.Kind kind, String spelling) {
+            int state = START;
+            for (int i = 0; i < spelling.length(); i++) {
+                int charClass = classOf(spelling.charAt(i));
+                int next = get(state, charClass);
+                if (next == UNSUPPORTED || next == STOP) {
+                    next = rows.size();
+                    addRow(next, STOP);
+                    set(state, charClass, next);
+                }
+                state = next;
+            }
+            kinds.set(state, kind);
+            spellings.set(state, spelling);
+        }
+    }
+}
@@ -6,15 +6,13 @@
 
 package proj10EnglishHillisonQian.bantam.lexer;
 
-import javafx.util.Pair;
 import proj10EnglishHillisonQian.bantam.util.CompilationException;
 import proj10EnglishHillisonQian.bantam.util.Error;
+import proj10EnglishHillisonQian.bantam.util.ErrorCollector;
 import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
 
-import java.io.IOException;
 import java.io.Reader;
 import java.util.HashMap;
-import java.util.LinkedList;
 
 /**
  * This class reads characters from a file or a Reader
@@ -31,8 +29,20 @@ public class Scanner
     /** char to hold pending characters **/
     private char pendingChar;
 
-    /** map of comments to lines */
-    private LinkedList<Pair<Integer, String>> commentMap;
+    /** the offset of the first char of the last token scanned */
+    private int tokenStart;
+    /** the offset after the last char of the last token scanned */
+    private int tokenEnd;
+
+    /** where the comments that are skipped go, or null to drop them */
+    private CommentSink commentSink;
+
+    /** whether scan() reuses token objects instead of creating new ones */
+    private boolean reuseTokens;
+    /** the reused tokens with fixed spellings, keyed by spelling */
+    private HashMap<String, Token> fixedTokens;
+    /** the reused token for identifiers and literals */
+    private Token sliceToken;
 
 
     /**
@@ -44,7 +54,6 @@ public class Scanner
         errorHandler = handler;
         currentChar = ' ';
         sourceFile = new SourceFile(filename);
-        commentMap = new LinkedList<>();
         pendingChar = '\0';
     }
 
@@ -55,426 +64,337 @@ public class Scanner
      */
     public Scanner(Reader reader, ErrorHandler handler) {
         errorHandler = handler;
+        currentChar = ' ';
         sourceFile = new SourceFile(reader);
+        pendingChar = '\0';
     }
 
     /**
-     * Output the map of comments.
-     * @return the map of comments
+     * creates a new scanner for text that is already in memory, such as the
+     * contents of an editor
+     * @param filename the name of the file the text belongs to, used in error messages
+     * @param source the text to be scanned
+     * @param handler the ErrorHandler that collects all the errors found
      */
-    public LinkedList<Pair<Integer, String>> getCommentQueue(){
-        return this.commentMap;
+    public Scanner(String filename, CharSequence source, ErrorHandler handler) {
+        errorHandler = handler;
+        currentChar = ' ';
+        sourceFile = new SourceFile(filename, source);
+        pendingChar = '\0';
     }
 
     /**
-     * read characters and collect them into a Token.
-     * It ignores white space unless it is inside a string or a comment.
-     * It returns an EOF Token if all characters from the sourceFile have
-     * already been read.
-     * @return the Token containing the characters read
+     * creates a new scanner that reads the given buffer in place, for an
+     * IncrementalLexer that keeps the text in a buffer of its own
+     * @param filename the name of the file the text belongs to, used in error messages
+     * @param buffer the buffer holding the text to be scanned
+     * @param length the number of chars of the buffer that are part of the text
+     * @param handler the ErrorHandler that collects all the errors found
      */
-    public Token scan() {
-        try{
-            // Get next non-whitespace char
-            while (true) {
-                // process chars in the pendingChar Field first
-                if (pendingChar != '\0') {
-                    currentChar = pendingChar;
-                    pendingChar = '\0';
-                } else {
-                    currentChar = sourceFile.getNextChar();
-                }
-
-                // scan again if it is white space
-                if (" \t\n".indexOf(currentChar) == -1) {
-                    break;
-                }
-            }
-
-            // when end of file reached, return EOF Token
-            if ((currentChar + "").equals("\u0000")) {
-                return new Token(Token.Kind.EOF, "\u0000",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '{') {
-                return new Token(Token.Kind.LCURLY, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '}') {
-                return new Token(Token.Kind.RCURLY, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '(') {
-                return new Token(Token.Kind.LPAREN, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == ')') {
-                return new Token(Token.Kind.RPAREN, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == ',') {
-                return new Token(Token.Kind.COMMA, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == ';') {
-                return new Token(Token.Kind.SEMICOLON, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == ':') {
-                return new Token(Token.Kind.COLON, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '.') {
-                return new Token(Token.Kind.DOT, currentChar + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '*'){
-                return new Token(Token.Kind.MULDIV,"*",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '%'){
-                return new Token(Token.Kind.MULDIV,"%",
-                        sourceFile.getCurrentLineNumber());
-            }
-            if (currentChar == '+') {
-                return scanPlusSign();
-            }
-            if (currentChar == '-') {
-                return scanMinusSign();
-            }
-            if (currentChar == '=') {
-                return scanEqualSign();
-            }
-            if (currentChar == '/') {
-                Token slashToken = scanSlash();
-
-                // ignore comments but save them to map
-                if(slashToken.kind == Token.Kind.COMMENT){
-                    this.commentMap.offer(new Pair<>(slashToken.position, slashToken.spelling));
-                    return scan();
-                }
-                else{
-                    return slashToken;
-                }
-            }
-            if(currentChar == '&' || currentChar == '|'){
-                return scanBoolOp();
-            }
-            if(currentChar == '!'){
-                return scanExclamation();
-            }
-            if(currentChar == '<' || currentChar == '>'){
-                return scanArrow(currentChar);
-            }
-            if (Character.isDigit(currentChar)) {
-                return scanIntConst(currentChar);
-            }
-            if (Character.isLetter(currentChar)){
-                return scanWord();
-            }
-            if (currentChar == '"') {
-                return scanStringConst(currentChar);
-            }
+    Scanner(String filename, char[] buffer, int length, ErrorHandler handler) {
+        errorHandler = handler;
+        currentChar = ' ';
+        sourceFile = new SourceFile(filename, buffer, length);
+        pendingChar = '\0';
+    }
 
-        // SourceFile failed to read
-        } catch (IOException e) {
-            System.out.println("IOException when reading from source.");
-            return null;
+    /**
+     * Turns token reuse on or off. When it is on, scan() hands back the same
+     * Token object for every token with a given fixed spelling (such as "{" or ";")
+     * and one shared Token for identifiers and literals, so scanning allocates
+     * nothing per token. A token returned by scan() is then only valid until the
+     * next call to scan(). Identifiers and literals are slices of the source and
+     * their String is only made if getSpelling() is called.
+     * @param reuseTokens true to reuse Token objects
+     */
+    public void setReuseTokens(boolean reuseTokens) {
+        this.reuseTokens = reuseTokens;
+        if (reuseTokens && fixedTokens == null) {
+            fixedTokens = new HashMap<>();
+            sliceToken = new Token(Token.Kind.EOF, "\u0000", 0);
         }
-
-        // any symbol not mentioned will be treated as unsupported symbol
-        errorHandler.register(Error.Kind.LEX_ERROR, sourceFile.getFilename(),
-                sourceFile.getCurrentLineNumber(), "Unsupported char");
-        return new Token(Token.Kind.ERROR, currentChar + "",
-                sourceFile.getCurrentLineNumber());
     }
 
     /**
-     * scan the chars to form integer constant token and return it or an error
-     * @param intChar the starting char of the INTCONST token
-     * @return the INTCONST token formed
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * @return the offset in the source of the first char of the last token scanned
      */
-    private Token scanIntConst(char intChar) throws IOException {
-        String content = intChar + "";
-        while(true){
-            char next = sourceFile.getNextChar();
-            if(!Character.isDigit(next)){
-                // add char just scanned into the stack
-                pendingChar = next;
-
-                // Check size of Integer
-                try{Integer.parseInt(content);}
-                catch(Exception e){
-                    errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                            sourceFile.getCurrentLineNumber(),"Int constant too large");
-                    return new Token(Token.Kind.ERROR,  content, sourceFile.getCurrentLineNumber());
-                }
-
-                return new Token(Token.Kind.INTCONST, content, sourceFile.getCurrentLineNumber());
-            }
-            content += next;
+    public int getTokenStart() {
+        return tokenStart;
+    }
 
+    /**
+     * @return the offset in the source after the last char of the last token scanned
+     */
+    public int getTokenEnd() {
+        return tokenEnd;
+    }
 
+    /**
+     * Scans all the remaining tokens into a TokenBuffer. The lexical errors
+     * are not registered with the ErrorHandler right away; the buffer keeps
+     * them with the tokens they were found in, so they can be registered as
+     * the tokens are used.
+     * @return the buffer holding the tokens, ending with the EOF token
+     */
+    public TokenBuffer scanAll() {
+        TokenBuffer tokens = new TokenBuffer(sourceFile.getBuffer(), sourceFile.getLength(),
+                sourceFile.getLength() / 4 + 16);
+        ErrorHandler handler = errorHandler;
+        ErrorCollector collector = new ErrorCollector();
+        boolean reuse = reuseTokens;
+        errorHandler = collector;
+        setReuseTokens(true);
+        try {
+            Token token;
+            do {
+                token = scan();
+                tokens.add(token.kind, tokenStart, tokenEnd - tokenStart, token.position,
+                        collector.getErrorList());
+                collector.clear();
+            } while (token.kind != Token.Kind.EOF);
+        } finally {
+            errorHandler = handler;
+            setReuseTokens(reuse);
         }
+        return tokens;
     }
 
     /**
-     * scan char stream for a string constant and return it or an error
-     * @param prevChar the first char of the token
-     * @return the string constant Token
-     * @throws IOException when SourceFile.getNextChar() throws it
+     * Returns the offset of the next char the scanner will look at. Together
+     * with getResumeLine() this is a checkpoint the scanner can be put back to
+     * with resume(). Checkpoints are always between tokens, so the scanner is
+     * never in the middle of a comment or string at one.
+     * @return the offset of the char the next call to scan() starts with
      */
-    private Token scanStringConst(char prevChar) throws IOException {
-        int startLine = sourceFile.getCurrentLineNumber();
-        String content = prevChar + "";
-        boolean errorFound = false;
-        while(true){
-            char next = sourceFile.getNextChar();
-
-            // if we reach the end of the string, check for errors and return a token
-            if(next == '"' && prevChar != '\\'){
-                content += next;
-
-                // return error token if the string is too long
-                if(content.length() > 5000){
-                    errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                            sourceFile.getCurrentLineNumber(),"String too long");
-                    return new Token(Token.Kind.ERROR, content,
-                            sourceFile.getCurrentLineNumber());
-                }
-
-                // return error token if the string expands multiple lines
-                if(startLine != sourceFile.getCurrentLineNumber()){
-                    errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                            sourceFile.getCurrentLineNumber(),"String on multiple lines");
-                    return new Token(Token.Kind.ERROR, content,
-                            sourceFile.getCurrentLineNumber());
-                }
-
-                // return error token if user used unsupported escape char
-                if(errorFound){
-                    return new Token(Token.Kind.ERROR, content,
-                            sourceFile.getCurrentLineNumber());
-                }
-                return new Token(Token.Kind.STRCONST, content, sourceFile.getCurrentLineNumber());
-            }
-
-            // Check if unsupported escape char
-            if(prevChar == '\\' && "nt\"\\f".indexOf(next) == -1){
-                errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                        sourceFile.getCurrentLineNumber(),"Invalid escape char in string");
-                errorFound = true;
-            }
+    public int getResumeOffset() {
+        return pendingChar != '\0' ? sourceFile.getOffset() - 1 : sourceFile.getOffset();
+    }
 
-            // return error token if user forget to terminate the string
-            if((next + "").equals("\u0000")){
-                pendingChar = next;
-                errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                        sourceFile.getCurrentLineNumber(),"Unterminated string constant");
-                return new Token(Token.Kind.ERROR, content,
-                        sourceFile.getCurrentLineNumber());
-            }
-            // update content
-            content += next;
-            prevChar = next;
+    /**
+     * @return the line number the scanner will be on before reading the char
+     * at getResumeOffset()
+     */
+    public int getResumeLine() {
+        int line = sourceFile.getCurrentLineNumber();
+        if (pendingChar != '\0' && sourceFile.startsNewLine(sourceFile.getOffset() - 1)) {
+            line--;
         }
+        return line;
     }
 
     /**
-     * scan words to determine if they are keyword/identifier, return appropriate token
-     * @return return the correct keyword token or identifier token
-     * @throws IOException if SourceFile fails to read
+     * Puts the scanner back to a checkpoint taken with getResumeOffset() and
+     * getResumeLine(), possibly by a scanner on an earlier version of the text.
+     * @param offset the offset of the char the next call to scan() starts with
+     * @param line the line number before that char is read
      */
-    private Token scanWord() throws IOException {
-        String content = currentChar + "";
-        while(true){
-            char next = sourceFile.getNextChar();
-
-            // Check if word has ended (next char not valid) and return token
-            if(!Character.isLetter(next) && !Character.isDigit(next) && next != '_'){
-                pendingChar = next;
-                return new Token(Token.Kind.IDENTIFIER, content,
-                        sourceFile.getCurrentLineNumber());
-            }
-            content += next;
-
-        }
+    public void resume(int offset, int line) {
+        sourceFile.seek(offset, line);
+        pendingChar = '\0';
     }
 
     /**
-     * scan the chars following the plus sign and return appropriate token
-     * @return return the appropriate token formed with the plus sign
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * Sets where the comments skipped by scan() go. With no sink, which is
+     * the default, comments are dropped without ever being made into Strings.
+     * @param commentSink the sink to hand the comments to, or null to drop them
      */
-    private Token scanPlusSign() throws  IOException{
-        char next = sourceFile.getNextChar();
-        if(next != '+'){
-            pendingChar = next;
-            return new Token(Token.Kind.PLUSMINUS, "+", sourceFile.getCurrentLineNumber());
-        }
-        else {
-            return new Token(Token.Kind.UNARYINCR, "++", sourceFile.getCurrentLineNumber());
-        }
+    public void setCommentSink(CommentSink commentSink) {
+        this.commentSink = commentSink;
     }
 
     /**
-     * scan the chars following the minus sign and return appropriate token
-     * @return return the appropriate token formed with the minus sign
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * read characters and collect them into a Token.
+     * It ignores white space and comments unless they are inside a string.
+     * Comments are handed to the comment sink, if there is one.
+     * It returns an EOF Token if all characters from the sourceFile have
+     * already been read.
+     * The chars are run through the DFA in LexerTable until a transition
+     * stops or a complete state is reached.
+     * @return the Token containing the characters read
      */
-    private Token scanMinusSign() throws  IOException{
-        char next = sourceFile.getNextChar();
-        if(next != '-'){
-            pendingChar = next;
-            return new Token(Token.Kind.PLUSMINUS, "-", sourceFile.getCurrentLineNumber());
-        }
-        else {
-            return new Token(Token.Kind.UNARYDECR, "--", sourceFile.getCurrentLineNumber());
+    public Token scan() {
+        while (true) {
+            // process chars in the pendingChar Field first
+            int offset;
+            if (pendingChar != '\0') {
+                currentChar = pendingChar;
+                pendingChar = '\0';
+                offset = sourceFile.getOffset() - 1;
+            } else {
+                offset = sourceFile.getOffset();
+                currentChar = sourceFile.getNextChar();
+            }
+
+            int state = LexerTable.START;
+            int start = offset;
+            int startLine = 0;
+            int end;
+            while (true) {
+                int next = LexerTable.transitions[state * LexerTable.classCount
+                        + LexerTable.classOf(currentChar)];
+                if (next == LexerTable.STOP) {
+                    pendingChar = currentChar;
+                    end = offset;
+                    break;
+                }
+                if (state == LexerTable.START) {
+                    // skip white space
+                    if (next == LexerTable.START) {
+                        offset = sourceFile.getOffset();
+                        currentChar = sourceFile.getNextChar();
+                        continue;
+                    }
+                    start = offset;
+                    startLine = sourceFile.getCurrentLineNumber();
+                }
+                state = next;
+                if (LexerTable.entryErrors[state] != null) {
+                    errorHandler.register(Error.Kind.LEX_ERROR, sourceFile.getFilename(),
+                            sourceFile.getCurrentLineNumber(), LexerTable.entryErrors[state]);
+                }
+                if (LexerTable.complete[state]) {
+                    end = currentChar == SourceFile.EOF ? offset : sourceFile.getOffset();
+                    break;
+                }
+                offset = sourceFile.getOffset();
+                currentChar = sourceFile.getNextChar();
+            }
+
+            // skip comments, handing them to the sink
+            if (state == LexerTable.LINE_COMMENT || state == LexerTable.BLOCK_COMMENT_END) {
+                if (commentSink != null) {
+                    commentSink.comment(sourceFile.getCurrentLineNumber(),
+                            sourceFile.getText(start, end));
+                }
+                continue;
+            }
+            tokenStart = start;
+            tokenEnd = end;
+            return accept(state, start, end, startLine);
         }
     }
 
     /**
-     * scan the chars following the equal sign and return appropriate token
-     * @return return the appropriate token formed with the equal sign
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * creates the token for chars that ended in a state of the DFA
+     * @param state the state the DFA ended in
+     * @param start the offset of the first char of the token
+     * @param end the offset after the last char of the token
+     * @param startLine the line number the token started on
+     * @return the token, which is an error token if the state does not accept
      */
-    private Token scanEqualSign() throws  IOException{
-        char next = sourceFile.getNextChar();
-        if(next != '='){
-            pendingChar = next;
-            return new Token(Token.Kind.ASSIGN, "=", sourceFile.getCurrentLineNumber());
+    private Token accept(int state, int start, int end, int startLine) {
+        if (LexerTable.spellings[state] != null) {
+            return fixedToken(LexerTable.kinds[state], LexerTable.spellings[state]);
         }
-        else {
-            return new Token(Token.Kind.COMPARE, "==", sourceFile.getCurrentLineNumber());
+        switch (state) {
+            case LexerTable.IDENTIFIER:
+                return sliceToken(Keywords.kindOf(sourceFile.getBuffer(), start, end - start),
+                        start, end);
+            case LexerTable.INT:
+                return intConstToken(start, end);
+            case LexerTable.STRING_END:
+            case LexerTable.BAD_STRING_END:
+                return stringConstToken(start, end, startLine,
+                        state == LexerTable.BAD_STRING_END);
+            default:
+                errorHandler.register(Error.Kind.LEX_ERROR, sourceFile.getFilename(),
+                        sourceFile.getCurrentLineNumber(), LexerTable.errors[state]);
+                return new Token(Token.Kind.ERROR, sourceFile.getText(start, end),
+                        sourceFile.getCurrentLineNumber());
         }
     }
 
     /**
-     * return the appropriate token for things that start with /
-     * @return  return the appropriate token start with /
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * returns a token whose spelling is always the same, such as "{" or "<=".
+     * @param kind the kind of the token
+     * @param spelling the spelling of the token
+     * @return a new token, or the reused one for the spelling if tokens are reused
      */
-    private Token scanSlash() throws IOException {
-        char next = sourceFile.getNextChar();
-        if(next == '/'){
-            return scanLineComment();
-        } else if (next == '*') {
-            return scanBlockComment();
-        } else {
-            pendingChar = next;
-            return new Token(Token.Kind.MULDIV, "/", sourceFile.getCurrentLineNumber());
+    private Token fixedToken(Token.Kind kind, String spelling) {
+        if (!reuseTokens) {
+            return new Token(kind, spelling, sourceFile.getCurrentLineNumber());
         }
+        Token token = fixedTokens.get(spelling);
+        if (token == null) {
+            token = new Token(kind, spelling, 0);
+            fixedTokens.put(spelling, token);
+        }
+        return token.setPosition(sourceFile.getCurrentLineNumber());
     }
 
     /**
-     * scan for && or || and return appropriate token.
-     * @return the appropriate BinaryLogic or Error Token
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * returns a token that is the slice [start, end) of the source
+     * @param kind the kind of the token
+     * @param start the offset of the first char of the token
+     * @param end the offset after the last char of the token
+     * @return a new token, or the reused slice token if tokens are reused
      */
-    private Token scanBoolOp() throws IOException{
-        char next = sourceFile.getNextChar();
-        if(next == currentChar){
-            return new Token(Token.Kind.BINARYLOGIC, currentChar + "" + next,
+    private Token sliceToken(Token.Kind kind, int start, int end) {
+        if (!reuseTokens) {
+            return new Token(kind, sourceFile.getBuffer(), start, end - start,
                     sourceFile.getCurrentLineNumber());
         }
-        pendingChar = next;
-        errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                sourceFile.getCurrentLineNumber(),"Logical Op | or &");
-        return new Token(Token.Kind.ERROR, currentChar+"",
+        return sliceToken.setSlice(kind, sourceFile.getBuffer(), start, end - start,
                 sourceFile.getCurrentLineNumber());
     }
 
     /**
-     * scan a line comment and return a token.
-     * @return the appropriate Comment Token
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * returns the integer constant token for the digits in [start, end), or an
+     * error if they are too large for an int
+     * @param start the offset of the first digit
+     * @param end the offset after the last digit
+     * @return the INTCONST token formed
      */
-    private Token scanLineComment() throws IOException {
-        int startLine = sourceFile.getCurrentLineNumber();
-        String content = "//";
-        while(true){
-            char next = sourceFile.getNextChar();
-            // Return when comment token ended
-            if(startLine != sourceFile.getCurrentLineNumber()
-                    | (next + "").equals("\u0000")){
-                pendingChar = next ;
-                return new Token(Token.Kind.COMMENT, content,
-                        sourceFile.getCurrentLineNumber());
-            }
-            content += next;
+    private Token intConstToken(int start, int end) {
+        char[] buffer = sourceFile.getBuffer();
+        long value = 0;
+        // stop growing once too large so the value cannot overflow
+        for (int i = start; i < end && value <= Integer.MAX_VALUE; i++) {
+            value = value * 10 + Character.digit(buffer[i], 10);
         }
-    }
 
-    /**
-     * scan a block comment and return a token.
-     * @return the appropriate Comment Token
-     * @throws IOException when SourceFile.getNextChar throws IOException
-     */
-    private Token scanBlockComment() throws IOException {
-        String content = "/*";
-        while(true){
-            char next = sourceFile.getNextChar();
-            // check if block comment ends
-            if(next == '*'){
-                content += next;
-                next = sourceFile.getNextChar();
-                if(next  == '/'){
-                    content += next;
-                    return new Token(Token.Kind.COMMENT, content, sourceFile.getCurrentLineNumber());
-                }
-            }
-            // check for unterminated comment
-            if((next + "").equals("\u0000")){
-                pendingChar = next;
-                errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                        sourceFile.getCurrentLineNumber(),"Unterminated block comment");
-                return new Token(Token.Kind.ERROR, content + "",
-                        sourceFile.getCurrentLineNumber());
-            }
-            content += next;
+        // Check size of Integer
+        if(value > Integer.MAX_VALUE){
+            errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
+                    sourceFile.getCurrentLineNumber(),"Int constant too large");
+            return new Token(Token.Kind.ERROR, sourceFile.getText(start, end),
+                    sourceFile.getCurrentLineNumber());
         }
+        return sliceToken(Token.Kind.INTCONST, start, end);
     }
 
     /**
-     * scan chars following ! symbol and return a token.
-     * @return the appropriate Unary or Compare Token
-     * @throws IOException when SourceFile.getNextChar throws IOException
+     * returns the string constant token for the chars in [start, end),
+     * including the quotes, or an error
+     * @param start the offset of the opening quote
+     * @param end the offset after the closing quote
+     * @param startLine the line number the string started on
+     * @param errorFound whether the string has an invalid escape char
+     * @return the string constant Token
      */
-    private Token scanExclamation() throws IOException{
-        while(true){
-            char next = sourceFile.getNextChar();
-            if(next != '='){
-                pendingChar = next;
-                return new Token(Token.Kind.UNARYNOT, "!",
-                        sourceFile.getCurrentLineNumber());
-            }
-            else {
-                return new Token(Token.Kind.COMPARE, "!=",
-                        sourceFile.getCurrentLineNumber());
-            }
+    private Token stringConstToken(int start, int end, int startLine, boolean errorFound) {
+        // return error token if the string is too long
+        if(end - start > 5000){
+            errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
+                    sourceFile.getCurrentLineNumber(),"String too long");
+            return new Token(Token.Kind.ERROR, sourceFile.getText(start, end),
+                    sourceFile.getCurrentLineNumber());
         }
-    }
 
-    /**
-     * scan for a comparison with < or >
-     * @param currentChar the first char in the token
-     * @return an appropriate Compare Token
-     * @throws IOException when SourceFile.getNextChar throws IOException
-     */
-    private Token scanArrow(char currentChar) throws IOException{
-        while(true){
-            char next = sourceFile.getNextChar();
-            if(next != '='){
-                pendingChar = next;
-                return new Token(Token.Kind.COMPARE, currentChar+"",
-                        sourceFile.getCurrentLineNumber());
-            }
-            else {
-                return new Token(Token.Kind.COMPARE, currentChar+"=",
-                        sourceFile.getCurrentLineNumber());
-            }
+        // return error token if the string expands multiple lines
+        if(startLine != sourceFile.getCurrentLineNumber()){
+            errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
+                    sourceFile.getCurrentLineNumber(),"String on multiple lines");
+            return new Token(Token.Kind.ERROR, sourceFile.getText(start, end),
+                    sourceFile.getCurrentLineNumber());
+        }
+
+        // return error token if user used unsupported escape char
+        if(errorFound){
+            return new Token(Token.Kind.ERROR, sourceFile.getText(start, end),
+                    sourceFile.getCurrentLineNumber());
         }
+        return sliceToken(Token.Kind.STRCONST, start, end);
     }
 
     /**
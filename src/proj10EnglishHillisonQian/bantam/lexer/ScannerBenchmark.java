@@ -0,0 +1,87 @@
+/*
+ * File: ScannerBenchmark.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+import proj10EnglishHillisonQian.bantam.util.CompilationException;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+
+/**
+ * Measures how fast the Scanner breaks files into tokens.
+ * Each file is scanned a number of times, first to warm up the JIT
+ * and then timed, both with fresh tokens and with token reuse on.
+ */
+public class ScannerBenchmark
+{
+    /** number of untimed runs done before measuring */
+    private static final int WARMUP_RUNS = 5;
+    /** number of timed runs */
+    private static final int TIMED_RUNS = 10;
+
+    /**
+     * scans the file once
+     * @param filename the name of the file to scan
+     * @param reuseTokens whether the Scanner should reuse its tokens
+     * @return the number of tokens scanned, including the EOF token
+     */
+    private static int scanFile(String filename, boolean reuseTokens) {
+        Scanner scanner = new Scanner(filename, new ErrorHandler());
+        scanner.setReuseTokens(reuseTokens);
+        int count = 1;
+        while (scanner.scan().kind != Token.Kind.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * times the scanning of the file and prints the throughput
+     * @param filename the name of the file to scan
+     * @param reuseTokens whether the Scanner should reuse its tokens
+     */
+    private static void time(String filename, boolean reuseTokens) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            scanFile(filename, reuseTokens);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        int tokens = 0;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            tokens = scanFile(filename, reuseTokens);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("  %-13s %9d tokens  best %8.2f ms  mean %8.2f ms  %7.2f Mtokens/s%n",
+                reuseTokens ? "reused tokens" : "fresh tokens", tokens,
+                best / 1e6, total / 1e6 / TIMED_RUNS, tokens * 1e3 / best);
+    }
+
+    /**
+     * Scans each of the given files and prints how many tokens per second
+     * the Scanner produced.
+     * @param args the files to scan
+     */
+    public static void main(String[] args) {
+        String[] files;
+        if (args.length < 1) {
+            files = new String[]{"ParserTestEnglishHillisonQian.btm"};
+        } else {
+            files = args;
+        }
+
+        for (String file : files) {
+            System.out.println(file);
+            try {
+                time(file, false);
+                time(file, true);
+            } catch (CompilationException e) {
+                System.out.println("File " + file + " is not found!");
+            }
+        }
+    }
+}
@@ -19,9 +19,15 @@ package proj10EnglishHillisonQian.bantam.lexer;
 import proj10EnglishHillisonQian.bantam.util.CompilationException;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * A class for extracting the characters, one at a time, from a text file or a Reader.
+ * All of the characters are read into a buffer when the SourceFile is created,
+ * so characters can be fetched without going through a Reader and any range
+ * of the source can be sliced out with getText.
  */
 class SourceFile
 {
@@ -29,7 +35,9 @@ class SourceFile
     public static final char CR = '\r';  // carriage return character
     public static final char EOF = '\u0000';     // end of file character
 
-    private Reader sourceReader;   // the reader of the data
+    private char[] buffer;         // all the characters of the source
+    private int length;            // the number of characters in the buffer
+    private int offset;            // the index in the buffer of the next character
     private int currentLineNumber; // for bantam error messages
     private int prevChar;          // the previous character read
     private String filename;       // the file currently being scanned.
@@ -42,10 +50,11 @@ class SourceFile
      */
     SourceFile(String filename) {
         try {
-            sourceReader = new FileReader(filename);
-        } catch (FileNotFoundException e) {
+            buffer = decode(Files.readAllBytes(Paths.get(filename)));
+        } catch (IOException e) {
             throw new CompilationException("File " + filename + "not found.", e);
         }
+        length = buffer.length;
         currentLineNumber = 1;
         prevChar = -1;
         this.filename = filename;
@@ -55,11 +64,81 @@ class SourceFile
      * creates a new SourceFile object for the given Reader
      *
      * @param in the Reader that provides the characters to be processes
+     * @throws CompilationException if the Reader fails
      */
     SourceFile(Reader in) {
-        sourceReader = in;
+        buffer = new char[8192];
+        try {
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+                if (length == buffer.length) {
+                    char[] bigger = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, bigger, 0, length);
+                    buffer = bigger;
+                }
+            }
+        } catch (IOException e) {
+            throw new CompilationException("IOException when reading from source.", e);
+        }
+        currentLineNumber = 1;
+        prevChar = -1;
+    }
+
+    /**
+     * creates a new SourceFile object holding the given text
+     *
+     * @param filename the name of the file the text belongs to, used in error messages
+     * @param text     the characters of the source
+     */
+    SourceFile(String filename, CharSequence text) {
+        length = text.length();
+        buffer = new char[length];
+        if (text instanceof String) {
+            ((String) text).getChars(0, length, buffer, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                buffer[i] = text.charAt(i);
+            }
+        }
         currentLineNumber = 1;
         prevChar = -1;
+        this.filename = filename;
+    }
+
+    /**
+     * creates a new SourceFile object reading the given buffer in place,
+     * without copying it
+     *
+     * @param filename the name of the file the text belongs to, used in error messages
+     * @param buffer   the buffer holding the characters of the source
+     * @param length   the number of characters of the buffer that are part of the source
+     */
+    SourceFile(String filename, char[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+        currentLineNumber = 1;
+        prevChar = -1;
+        this.filename = filename;
+    }
+
+    /**
+     * Turns the bytes of a file into chars. Pure ASCII files, which is nearly
+     * every Bantam file, are widened directly; anything else is decoded with the
+     * platform charset just like a FileReader would.
+     *
+     * @param bytes the raw contents of the file
+     * @return the characters of the file
+     */
+    private static char[] decode(byte[] bytes) {
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, Charset.defaultCharset()).toCharArray();
+            }
+            chars[i] = (char) bytes[i];
+        }
+        return chars;
     }
 
     int getCurrentLineNumber() {
@@ -68,23 +147,77 @@ class SourceFile
 
     String getFilename() { return filename; }
 
+    /**
+     * @return the index in the buffer of the next character to be read
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the buffer holding all the characters of the source. Only the
+     * first getLength() characters are part of the source.
+     */
+    char[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the number of characters in the source
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * returns the characters of the source in the range [start, end)
+     *
+     * @param start the index of the first character
+     * @param end   the index after the last character
+     * @return the characters in the range as a String
+     */
+    String getText(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * @param index the index of a character in the buffer
+     * @return whether reading the character increments the line number
+     */
+    boolean startsNewLine(int index) {
+        char c = buffer[index];
+        return c == CR || (c == EOL && (index == 0 || buffer[index - 1] != CR));
+    }
+
+    /**
+     * Moves to the given index so that it is the next character read.
+     *
+     * @param offset     the index of the next character to read
+     * @param lineNumber the line number before that character is read
+     */
+    void seek(int offset, int lineNumber) {
+        this.offset = offset;
+        this.currentLineNumber = lineNumber;
+        this.prevChar = offset == 0 ? -1 : buffer[offset - 1];
+    }
+
     /**
      * Finds and returns the next character in the source file.
      * The current line number is incremented if the end of a line is reached
      *
      * @return the next character in the source file
      */
-    char getNextChar() throws IOException {
-        int c = sourceReader.read();
-
-        if (c == -1) {
-            c = EOF;
+    char getNextChar() {
+        if (offset == length) {
+            prevChar = EOF;
+            return EOF;
         }
-        else if (c == CR || (c == EOL && prevChar != CR)) {
+        char c = buffer[offset++];
+
+        if (c == CR || (c == EOL && prevChar != CR)) {
             currentLineNumber++;
         }
         prevChar = c;
-        return (char) c;
+        return c;
     }
 }
-
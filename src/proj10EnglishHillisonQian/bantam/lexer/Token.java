@@ -15,7 +15,7 @@
 
  package proj10EnglishHillisonQian.bantam.lexer;
 
- import java.util.Set;
+ import proj10EnglishHillisonQian.bantam.util.SymbolPool;
 
  /**
   * This class represents a meaningful sequence of characters in the
@@ -25,12 +25,29 @@
  {
      /** the kind of token this is */
      public Kind kind;
-     /** the string of characters making up the token */
-     public String spelling;
+     /** the string of characters making up the token (created lazily for slices) */
+     private String spelling;
      /** the line number where the token was found in the source code */
      public int position;
 
+     /** the source buffer a sliced token's characters live in (null if not a slice) */
+     private char[] source;
+     /** the index in source of the first character of a sliced token */
+     private int start;
+     /** the number of characters in a sliced token */
+     private int length;
+
+     /**
+      * returns the characters making up the token. For a token that is a slice
+      * of the source buffer the String is only created the first time this is called.
+      * The spelling of an identifier is its symbol from the SymbolPool.
+      * @return the spelling of the token
+      */
      public String getSpelling() {
+         if (spelling == null && source != null) {
+             spelling = kind == Kind.IDENTIFIER ? SymbolPool.intern(source, start, length)
+                                                : new String(source, start, length);
+         }
          return spelling;
      }
 
@@ -47,54 +64,96 @@
 
          // patch the kind field in the cases of boolean constants and keywords,
          // which are not of kind IDENTIFIER
-         if (kind == Kind.IDENTIFIER && (spelling.equals("true") || spelling.equals("false"))) {
-             this.kind = Kind.BOOLEAN;
-         }
-         else if (kind == Kind.IDENTIFIER && reservedWords.contains(spelling)) {
-             this.kind = Enum.valueOf(Kind.class, spelling.toUpperCase());
-         }
-         else {
-             this.kind = kind;
-         }
+         this.kind = kind == Kind.IDENTIFIER ? Keywords.kindOf(spelling) : kind;
+     }
+
+     /**
+      * constructor for a token whose characters are a slice of the source buffer.
+      * No String is made for the spelling until getSpelling() is called.
+      * @param kind the Kind of token to be created
+      * @param source the buffer holding the characters of the token
+      * @param start the index in source of the first character of the token
+      * @param length the number of characters in the token
+      * @param position the line number in the source file containing the token
+      */
+     Token(Kind kind, char[] source, int start, int length, int position) {
+         setSlice(kind, source, start, length, position);
+     }
+
+     /**
+      * Makes this token a slice of the source buffer, forgetting its old contents.
+      * Used by the Scanner to reuse one token object for identifiers and literals.
+      * @param kind the Kind of the token
+      * @param source the buffer holding the characters of the token
+      * @param start the index in source of the first character of the token
+      * @param length the number of characters in the token
+      * @param position the line number in the source file containing the token
+      * @return this token
+      */
+     Token setSlice(Kind kind, char[] source, int start, int length, int position) {
+         this.kind = kind;
+         this.source = source;
+         this.start = start;
+         this.length = length;
+         this.position = position;
+         this.spelling = null;
+         return this;
+     }
+
+     /**
+      * Moves a reused token with a fixed spelling to a new line.
+      * @param position the line number in the source file containing the token
+      * @return this token
+      */
+     Token setPosition(int position) {
+         this.position = position;
+         return this;
      }
 
      /**
       * @return  information about this token
       */
      public String toString() {
-         return "Token: Kind=" + kind.name() + ", spelling=" + spelling + ", " +
+         return "Token: Kind=" + kind.name() + ", spelling=" + getSpelling() + ", " +
                  "position=" + position;
      }
 
      /**
-      * This class represents the different kinds of tokens that can be created
+      * This class represents the different kinds of tokens that can be created.
+      * Kinds whose tokens always have one of a few spellings list them; the
+      * Scanner builds its transition table from these spellings.
       */
      public enum Kind
      {
          // literals, identifiers...
-         INTCONST, STRCONST, BOOLEAN, IDENTIFIER,
+         INTCONST, STRCONST, BOOLEAN("true", "false"), IDENTIFIER,
 
          // operators...
-         BINARYLOGIC, PLUSMINUS, MULDIV, COMPARE, UNARYINCR, UNARYDECR, ASSIGN,
-         UNARYNOT,
+         BINARYLOGIC("&&", "||"), PLUSMINUS("+", "-"), MULDIV("*", "/", "%"),
+         COMPARE("==", "!=", "<", "<=", ">", ">="), UNARYINCR("++"), UNARYDECR("--"),
+         ASSIGN("="), UNARYNOT("!"),
 
          // punctuation...
-         DOT, COLON, SEMICOLON, COMMA,
+         DOT("."), COLON(":"), SEMICOLON(";"), COMMA(","),
 
          // brackets...
-         LPAREN, RPAREN, LCURLY, RCURLY,
+         LPAREN("("), RPAREN(")"), LCURLY("{"), RCURLY("}"),
 
          // special tokens...
-         COMMENT, ERROR, EOF, //end of file token
+         COMMENT, ERROR, EOF("\u0000"), //end of file token
 
          // reserved words
-         BREAK, CAST, CLASS, VAR, ELSE, EXTENDS, FOR, IF, INSTANCEOF, NEW,
-         RETURN, WHILE
-     }
+         BREAK("break"), CAST("cast"), CLASS("class"), VAR("var"), ELSE("else"),
+         EXTENDS("extends"), FOR("for"), IF("if"), INSTANCEOF("instanceof"), NEW("new"),
+         RETURN("return"), WHILE("while");
 
-     /** a set of all the reserved words of Bantam Java */
-     private static Set<String> reservedWords = Set.of("break", "cast", "class", "var",
-             "else", "extends", "for", "if", "instanceof", "new", "return", "while");
+         /** the spellings a token of this kind can have (empty if it varies) */
+         final String[] spellings;
+
+         Kind(String... spellings) {
+             this.spellings = spellings;
+         }
+     }
 
  }
 
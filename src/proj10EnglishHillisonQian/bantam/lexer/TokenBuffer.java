@@ -0,0 +1,205 @@
+/*
+ * File: TokenBuffer.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.lexer;
+
+import proj10EnglishHillisonQian.bantam.util.Error;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+import proj10EnglishHillisonQian.bantam.util.SymbolPool;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * All the tokens of a source, packed into parallel int arrays holding the
+ * kind, start offset, length and line of each token. The spellings are not
+ * kept; they are sliced out of the source on demand. Any token can be looked
+ * at by its index, so looking k tokens ahead is O(1).
+ *
+ * A TokenBuffer is filled by Scanner.scanAll(), or by an IncrementalLexer
+ * from the tokens it keeps, and always ends with the EOF token. Indexes past the end give the EOF token.
+ */
+public class TokenBuffer
+{
+    /** all the kinds, indexed by ordinal */
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    /** the characters of the source the tokens came from */
+    private final char[] source;
+    /** the number of characters of the source */
+    private final int sourceLength;
+    /** the number of tokens */
+    private int size;
+    /** the ordinal of the kind of each token */
+    private int[] kinds;
+    /** the offset in the source of the first char of each token */
+    private int[] starts;
+    /** the number of chars in each token */
+    private int[] lengths;
+    /** the line number of each token */
+    private int[] lines;
+
+    /** the lexical errors found, in the order of the tokens */
+    private final ArrayList<Error> errors;
+    /** the number of errors found before and in each token */
+    private int[] errorCounts;
+
+    /**
+     * creates an empty buffer
+     * @param source the characters of the source the tokens will come from
+     * @param sourceLength the number of characters of the source
+     * @param capacity the number of tokens expected
+     */
+    TokenBuffer(char[] source, int sourceLength, int capacity) {
+        this.source = source;
+        this.sourceLength = sourceLength;
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.errorCounts = new int[capacity];
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * adds a token to the end of the buffer
+     * @param kind the kind of the token
+     * @param start the offset of the first char of the token
+     * @param length the number of chars in the token
+     * @param line the line number of the token
+     * @param tokenErrors the lexical errors found while scanning the token
+     */
+    void add(Token.Kind kind, int start, int length, int line, List<Error> tokenErrors) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            errorCounts = Arrays.copyOf(errorCounts, capacity);
+        }
+        kinds[size] = kind.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        errors.addAll(tokenErrors);
+        errorCounts[size] = errors.size();
+        size++;
+    }
+
+    /**
+     * @return the number of tokens, including the EOF token at the end
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the text of the source the tokens came from
+     */
+    public CharSequence getText() {
+        return CharBuffer.wrap(source, 0, sourceLength);
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the index, or the index of the EOF token if it is past the end
+     */
+    private int clamp(int index) {
+        return index < size ? index : size - 1;
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the kind of the token
+     */
+    public Token.Kind getKind(int index) {
+        return KINDS[kinds[clamp(index)]];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the offset in the source of the first char of the token
+     */
+    public int getStart(int index) {
+        return starts[clamp(index)];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the number of chars in the token
+     */
+    public int getLength(int index) {
+        return lengths[clamp(index)];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the line number of the token
+     */
+    public int getLine(int index) {
+        return lines[clamp(index)];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the chars making up the token; for an identifier, the symbol
+     * for it from the SymbolPool
+     */
+    public String getSpelling(int index) {
+        index = clamp(index);
+        if (kinds[index] == Token.Kind.EOF.ordinal()) {
+            return "\u0000";
+        }
+        if (kinds[index] == Token.Kind.IDENTIFIER.ordinal()) {
+            return SymbolPool.intern(source, starts[index], lengths[index]);
+        }
+        return new String(source, starts[index], lengths[index]);
+    }
+
+    /**
+     * checks the spelling of a token without making a String of it
+     * @param index the index of a token
+     * @param spelling the spelling to compare to
+     * @return whether the token has the spelling
+     */
+    public boolean spellingEquals(int index, String spelling) {
+        index = clamp(index);
+        if (kinds[index] == Token.Kind.EOF.ordinal()) {
+            return spelling.equals("\u0000");
+        }
+        int length = lengths[index];
+        if (length != spelling.length()) {
+            return false;
+        }
+        int start = starts[index];
+        for (int i = 0; i < length; i++) {
+            if (source[start + i] != spelling.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * registers the lexical errors found while scanning a token
+     * @param index the index of the token
+     * @param handler the ErrorHandler to register them with
+     */
+    public void registerErrors(int index, ErrorHandler handler) {
+        if (index >= size) {
+            return;
+        }
+        int first = index == 0 ? 0 : errorCounts[index - 1];
+        for (int i = first; i < errorCounts[index]; i++) {
+            Error error = errors.get(i);
+            handler.register(error.getKind(), error.getFilename(), error.getLineNum(),
+                    error.getMessage());
+        }
+    }
+}
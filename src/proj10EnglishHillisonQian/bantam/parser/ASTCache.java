@@ -0,0 +1,263 @@
+/*
+ * File: ASTCache.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.parser;
+
+import proj10EnglishHillisonQian.bantam.ast.FlatAST;
+import proj10EnglishHillisonQian.bantam.ast.Program;
+import proj10EnglishHillisonQian.bantam.lexer.CommentSink;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A directory of the ASTs of sources that have been parsed, so that parsing
+ * a source that has not changed since can load its AST instead of scanning
+ * and parsing it again.
+ *
+ * Each AST is stored with the comments of its source in a file named by a
+ * SHA-256 hash of the file name and the contents of the source, so a changed
+ * source never finds the AST of its old contents. Only sources that parsed
+ * without errors are stored. Any file in the directory that cannot be read
+ * is treated as missing, and the source is parsed as if it was not cached.
+ * The cache holds at most a given number of files; storing one more deletes
+ * the files that were used least recently.
+ *
+ * A Parser uses a cache given to it with Parser.setCache.
+ */
+public class ASTCache
+{
+    /** the first int of each file in the cache */
+    private static final int MAGIC = 0x4241_5354; // "BAST"
+    /** changed whenever the format of the files changes */
+    private static final int VERSION = 2;
+    /** the number of files a cache holds unless it is given another limit */
+    public static final int DEFAULT_MAX_FILES = 256;
+
+    /** the directory holding the files */
+    private final File directory;
+    /** the most files the directory holds */
+    private final int maxFiles;
+
+    /**
+     * creates a cache that keeps up to DEFAULT_MAX_FILES files in the given
+     * directory, which is made when the first AST is stored
+     * @param directory the directory of the cache
+     */
+    public ASTCache(File directory) {
+        this(directory, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * creates a cache that keeps up to the given number of files in the given
+     * directory, which is made when the first AST is stored
+     * @param directory the directory of the cache
+     * @param maxFiles the most files to keep
+     */
+    public ASTCache(File directory, int maxFiles) {
+        if (maxFiles < 1) {
+            throw new IllegalArgumentException("maxFiles must be positive: " + maxFiles);
+        }
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * @return the usual directory of the cache of the current user,
+     * bantam-ast-cache in $XDG_CACHE_HOME or else in ~/.cache
+     */
+    public static File defaultDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        File parent = cacheHome != null && !cacheHome.isEmpty() ? new File(cacheHome)
+                : new File(System.getProperty("user.home"), ".cache");
+        return new File(parent, "bantam-ast-cache");
+    }
+
+    /**
+     * @return the directory of the cache
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * makes the key of the source with the given name and contents
+     * @param filename the name of the source
+     * @param contents the bytes of the source
+     * @return the key, a hex string
+     */
+    public String key(String filename, byte[] contents) {
+        MessageDigest digest = newDigest(filename);
+        digest.update(contents);
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest(String filename) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(filename.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+               .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + ".ast");
+    }
+
+    /**
+     * Loads the AST stored with the given key and passes its comments to the
+     * sink in the order they were found.
+     * @param key the key of the source
+     * @param commentSink where the comments go, or null to drop them
+     * @return the AST, or null if it is not in the cache
+     */
+    public Program load(String key, CommentSink commentSink) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                file.delete();
+                return null;
+            }
+            Program program = FlatAST.readFrom(in).decode();
+            // every comment takes at least the 8 bytes of its line and length
+            int commentCount = FlatAST.readCount(in, 8);
+            for (int i = 0; i < commentCount; i++) {
+                int line = in.getInt();
+                byte[] text = new byte[FlatAST.readCount(in, 1)];
+                in.get(text);
+                if (commentSink != null) {
+                    commentSink.comment(line, new String(text, StandardCharsets.UTF_8));
+                }
+            }
+            // the least recently used files are the first to be evicted
+            file.setLastModified(System.currentTimeMillis());
+            return program;
+        } catch (IOException | RuntimeException e) {
+            // a damaged file is the same as no file; the source gets parsed
+            // and stored again
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores an AST and the comments of its source. The file is written
+     * under a temporary name and then renamed, so a load at the same time
+     * sees either the whole file or none of it. If the cache then holds
+     * more than its limit, the least recently used files are deleted. A
+     * failure to write is ignored since the source can always be parsed again.
+     * @param key the key of the source
+     * @param program the AST of the source, as returned by the parser
+     * @param comments the comments of the source
+     */
+    public void store(String key, Program program, CommentRecorder comments) {
+        File file = fileFor(key);
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile(key, ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                FlatAST.encode(program).writeTo(out);
+                out.writeInt(comments.lines.size());
+                for (int i = 0; i < comments.lines.size(); i++) {
+                    byte[] text = comments.texts.get(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(comments.lines.get(i));
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temp != null) {
+                temp.delete();
+            }
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * deletes the least recently used files until the cache holds no more
+     * than its limit
+     */
+    private void evict() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".ast"));
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+        long[] used = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            used[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> used[i]));
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            files[order[i]].delete();
+        }
+    }
+
+    /**
+     * Keeps the comments of a source as it is scanned, so they can be stored
+     * with its AST, and passes each one on to another sink.
+     */
+    public static class CommentRecorder implements CommentSink
+    {
+        private final CommentSink next;
+        private final List<Integer> lines = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+
+        /**
+         * @param next the sink to pass the comments on to, or null
+         */
+        public CommentRecorder(CommentSink next) {
+            this.next = next;
+        }
+
+        @Override
+        public void comment(int line, String text) {
+            lines.add(line);
+            texts.add(text);
+            if (next != null) {
+                next.comment(line, text);
+            }
+        }
+    }
+}
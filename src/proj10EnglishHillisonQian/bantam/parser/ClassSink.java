@@ -0,0 +1,24 @@
+/*
+ * File: ClassSink.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.parser;
+
+import proj10EnglishHillisonQian.bantam.ast.Class_;
+
+/**
+ * Receives each class as soon as the Parser has finished it, so later phases
+ * can start on it while the rest of the program is still being parsed.
+ */
+public interface ClassSink
+{
+    /**
+     * called for each class in the order they appear in the source. If the
+     * program has a syntax error, the classes before the error are passed
+     * before the parse fails.
+     * @param aClass the node of the class
+     */
+    void classParsed(Class_ aClass);
+}
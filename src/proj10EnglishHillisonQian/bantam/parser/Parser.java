@@ -13,17 +13,25 @@
  */
 package proj10EnglishHillisonQian.bantam.parser;
 
-import javafx.util.Pair;
 import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.lexer.CommentSink;
 import proj10EnglishHillisonQian.bantam.lexer.Scanner;
 import proj10EnglishHillisonQian.bantam.lexer.Token;
+import proj10EnglishHillisonQian.bantam.lexer.TokenBuffer;
 import proj10EnglishHillisonQian.bantam.treedrawer.Drawer;
 import proj10EnglishHillisonQian.bantam.util.CompilationException;
 import proj10EnglishHillisonQian.bantam.util.Error;
 import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 import static proj10EnglishHillisonQian.bantam.lexer.Token.Kind.*;
 
@@ -33,21 +41,58 @@ import static proj10EnglishHillisonQian.bantam.lexer.Token.Kind.*;
 public class Parser
 {
     // instance variables
-    private Scanner scanner; // provides the tokens
-    private Token currentToken; // the lookahead token
+    private TokenBuffer tokens; // provides the tokens
+    private int current; // the index of the lookahead token
     private ErrorHandler errorHandler; // collects & organizes the error messages
     private String filename; // name of file being parsed
+    private CommentSink commentSink; // where the comments go, null to drop them
+    private ClassSink classSink; // where each class goes once parsed, or null
+    private boolean parallel; // whether the classes are parsed in parallel
+    private ASTCache cache; // where the ASTs of unchanged sources are loaded from, or null
     // constructor
     public Parser(ErrorHandler errorHandler) {
         this.errorHandler = errorHandler;
     }
 
     /**
-     * Output the map of comments.
-     * @return the map of comments
+     * Sets where the comments in the parsed file go. By default they are dropped.
+     * @param commentSink the sink for the comments, or null to drop them
      */
-    public LinkedList<Pair<Integer, String>> getCommentQueue(){
-        return this.scanner.getCommentQueue();
+    public void setCommentSink(CommentSink commentSink){
+        this.commentSink = commentSink;
+    }
+
+    /**
+     * Sets where each class goes as soon as it has been parsed. By default the
+     * classes are only put in the Program returned by parse.
+     * @param classSink the sink for the classes, or null
+     */
+    public void setClassSink(ClassSink classSink){
+        this.classSink = classSink;
+    }
+
+    /**
+     * Turns parallel parsing on or off. When it is on, the classes of the
+     * program are found by matching braces and parsed at the same time on the
+     * common ForkJoinPool. The AST and the errors are the same as when parsing
+     * one class after the other.
+     * @param parallel true to parse the classes in parallel
+     */
+    public void setParallel(boolean parallel){
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets the cache of ASTs to use. When there is one, a file whose AST
+     * is in the cache is not scanned or parsed, but its AST is loaded and its
+     * comments and classes are passed to the sinks as if it had been parsed.
+     * Files that parse without errors are added to the cache. Only files read
+     * from disk use the cache; text given to parse, which may be changed again
+     * at any moment, is always parsed.
+     * @param cache the cache, or null to always parse
+     */
+    public void setCache(ASTCache cache){
+        this.cache = cache;
     }
 
     /**
@@ -56,25 +101,252 @@ public class Parser
      * @return The Program node forming the root of the AST generated by the parser
      */
     public Program parse(String filename) {
-        this.scanner = new Scanner(filename, errorHandler);
+        if (cache != null) {
+            byte[] contents = null;
+            try {
+                contents = Files.readAllBytes(Paths.get(filename));
+            } catch (IOException e) {
+                // the Scanner reports the missing file
+            }
+            if (contents != null) {
+                return parseWithCache(cache.key(filename, contents),
+                        () -> new Scanner(filename, errorHandler), filename);
+            }
+        }
+        return parse(new Scanner(filename, errorHandler), filename);
+    }
+
+    /**
+     * parse the given text, such as the unsaved contents of an editor, and
+     * return the root node of the AST. The cache is not used.
+     * @param filename the name to use for the text in the AST and in error messages
+     * @param text the Bantam Java source to be parsed
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(String filename, CharSequence text) {
+        return parse(new Scanner(filename, text, errorHandler), filename);
+    }
+
+    /**
+     * parse tokens that have already been scanned, such as those an
+     * IncrementalLexer keeps up to date for an editor, and return the root
+     * node of the AST. The tokens hold no comments, so none go to the
+     * comment sink, and the cache is not used.
+     * @param filename the name to use for the source in the AST and in error messages
+     * @param tokens the tokens of the source, ending with the EOF token
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    public Program parse(String filename, TokenBuffer tokens) {
+        return parseTokens(tokens, filename);
+    }
+
+    /**
+     * loads the AST of a source from the cache, or parses the source and
+     * stores its AST in the cache if it is not there
+     * @param key the key of the source in the cache
+     * @param scanner makes the scanner for the source if it has to be parsed
+     * @param filename the name of the source
+     * @return The Program node forming the root of the AST
+     */
+    private Program parseWithCache(String key, Supplier<Scanner> scanner, String filename) {
+        Program program = cache.load(key, commentSink);
+        if (program != null) {
+            if (classSink != null) {
+                for (ASTNode aClass : program.getClassList()) {
+                    classSink.classParsed((Class_) aClass);
+                }
+            }
+            return program;
+        }
+
+        CommentSink sink = commentSink;
+        ASTCache.CommentRecorder comments = new ASTCache.CommentRecorder(sink);
+        int errorCount = errorHandler.getErrorList().size();
+        commentSink = comments;
+        try {
+            program = parse(scanner.get(), filename);
+        } finally {
+            commentSink = sink;
+        }
+        if (errorHandler.getErrorList().size() == errorCount) {
+            cache.store(key, program, comments);
+        }
+        return program;
+    }
+
+    /**
+     * parse the tokens of the given scanner and return the root node of the AST
+     * @param scanner the scanner for the source to be parsed
+     * @param filename the name of the source
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    private Program parse(Scanner scanner, String filename) {
+        scanner.setCommentSink(commentSink);
+        return parseTokens(scanner.scanAll(), filename);
+    }
+
+    /**
+     * parse the given tokens and return the root node of the AST
+     * @param tokens the tokens of the source to be parsed
+     * @param filename the name of the source
+     * @return The Program node forming the root of the AST generated by the parser
+     */
+    private Program parseTokens(TokenBuffer tokens, String filename) {
+        this.tokens = tokens;
         this.filename = filename;
-        currentToken = scanner.scan();
+        this.current = 0;
+        tokens.registerErrors(current, errorHandler);
+        if (parallel) {
+            return parseProgramInParallel();
+        }
         return parseProgram();
     }
 
 
     // <Program> ::= <Class> | <Class> <Program>
     private Program parseProgram() {
-        int position = currentToken.position;
+        int position = currentPosition();
         ClassList clist = new ClassList(position);
 
         // continue to parse the class until reach the end of the file
-        while (currentToken.kind != EOF) {
-            Class_ aClass = parseClass();
-            clist.addElement(aClass);
+        while (currentKind() != EOF) {
+            addClass(clist, parseClass());
         }
+        clist.trimToSize();
 
-        return new Program(position, clist);
+        span(clist, 0);
+        return span(new Program(position, clist), 0);
+    }
+
+    /**
+     * adds a parsed class to the list and passes it to the class sink
+     * @param clist the list of classes of the program
+     * @param aClass the class
+     */
+    private void addClass(ClassList clist, Class_ aClass) {
+        clist.addElement(aClass);
+        if (classSink != null) {
+            classSink.classParsed(aClass);
+        }
+    }
+
+
+    /**
+     * Parses the program with each class parsed by its own task. A class is
+     * assumed to run from a CLASS token outside of any braces to the next one.
+     * The classes whose parse ends exactly at the next one are used in order;
+     * from the first class that fails, or ends somewhere else, the rest of the
+     * program is parsed again one class after the other. That way the errors
+     * are registered in the same order and stop at the same point as in
+     * parseProgram().
+     * @return the Program node forming the root of the AST
+     */
+    private Program parseProgramInParallel() {
+        int position = currentPosition();
+        ClassList clist = new ClassList(position);
+
+        // find where each class starts by matching braces
+        ArrayList<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token.Kind kind = tokens.getKind(i);
+            if (kind == LCURLY) {
+                depth++;
+            } else if (kind == RCURLY) {
+                depth--;
+            } else if (kind == CLASS && depth == 0 && i > 0) {
+                starts.add(i);
+            }
+        }
+        starts.add(tokens.size() - 1);
+
+        int classCount = starts.size() - 1;
+        Class_[] classes = new Class_[classCount];
+        ErrorHandler[] handlers = new ErrorHandler[classCount];
+        if (currentKind() != EOF) {
+            ForkJoinPool.commonPool().invoke(
+                    new ParseClassesTask(starts, classes, handlers, 0, classCount));
+        }
+
+        for (int i = 0; i < classCount && currentKind() != EOF; i++) {
+            if (classes[i] == null) {
+                // parse the rest of the program normally from the failed class
+                while (currentKind() != EOF) {
+                    addClass(clist, parseClass());
+                }
+                break;
+            }
+            for (Error error : handlers[i].getErrorList()) {
+                errorHandler.register(error.getKind(), error.getFilename(),
+                        error.getLineNum(), error.getMessage());
+            }
+            addClass(clist, classes[i]);
+            current = starts.get(i + 1);
+        }
+        clist.trimToSize();
+
+        span(clist, 0);
+        return span(new Program(position, clist), 0);
+    }
+
+    /**
+     * A task that parses the classes in a range, splitting the range into
+     * smaller tasks while it is large.
+     */
+    private class ParseClassesTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** the number of classes a task parses without splitting */
+        private static final int CLASSES_PER_TASK = 16;
+
+        private final ArrayList<Integer> starts;
+        private final Class_[] classes;
+        private final ErrorHandler[] handlers;
+        private final int from;
+        private final int to;
+
+        /**
+         * @param starts the index of the first token of each class, and of the EOF token
+         * @param classes where the class nodes go, left null if a class fails
+         * @param handlers where the errors of each class go
+         * @param from the index of the first class to parse
+         * @param to the index after the last class to parse
+         */
+        private ParseClassesTask(ArrayList<Integer> starts, Class_[] classes,
+                                 ErrorHandler[] handlers, int from, int to) {
+            this.starts = starts;
+            this.classes = classes;
+            this.handlers = handlers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CLASSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseClassesTask(starts, classes, handlers, from, middle),
+                        new ParseClassesTask(starts, classes, handlers, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                handlers[i] = new ErrorHandler();
+                Parser parser = new Parser(handlers[i]);
+                parser.tokens = tokens;
+                parser.filename = filename;
+                parser.current = starts.get(i);
+                try {
+                    Class_ aClass = parser.parseClass();
+                    if (parser.current == starts.get(i + 1)) {
+                        classes[i] = aClass;
+                    }
+                } catch (CompilationException | StackOverflowError e) {
+                    // leave it to be parsed again after the classes before it
+                }
+            }
+        }
     }
 
 
@@ -82,30 +354,34 @@ public class Parser
     // <ExtendsClause> ::= EXTENDS <Identifier> | EMPTY
     // <MemberList> ::= EMPTY | <Member> <MemberList>
     private Class_ parseClass(){
+        int first = current;
         // if this is not a class token, throw an error message
         advanceIfTokenMatchesKind(CLASS);
 
-        int pos = currentToken.position;
+        int pos = currentPosition();
         // scan the name of the class
         String name = parseIdentifier();
 
         String parent = "Object";
 
-        if(currentToken.kind == EXTENDS){
-            currentToken = scanner.scan();
+        if(currentKind() == EXTENDS){
+            advance();
             parent = parseIdentifier();
         }
 
         advanceIfTokenMatchesKind(LCURLY);
 
-        MemberList members = new MemberList(currentToken.position);
+        MemberList members = new MemberList(currentPosition());
+        int firstMember = current;
         // continue to add members to the memberList until reaches the right curly brace
-        while(currentToken.kind != RCURLY){
+        while(currentKind() != RCURLY){
             members.addElement(parseMember());
         }
+        members.trimToSize();
+        span(members, firstMember);
 
-        currentToken = scanner.scan();
-        return new Class_(pos, filename, name, parent, members);
+        advance();
+        return span(new Class_(pos, filename, name, parent, members), first);
     }
 
 
@@ -115,28 +391,29 @@ public class Parser
     // <Field> ::= <Type> <Identifier> <InitialValue> ;
     // <InitialValue> ::= EMPTY | = <Expression>
     private Member parseMember() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         String type = parseType();
         String name = parseIdentifier();
 
         // if this member is not a method
-        if(currentToken.kind != LPAREN){
+        if(currentKind() != LPAREN){
             Expr initVal = null;
             // if the field has an initial value
-            if(currentToken.kind != SEMICOLON) {
+            if(currentKind() != SEMICOLON) {
                 advanceIfTokenMatchesKind(ASSIGN);
                 initVal = parseExpression();
                 advanceIfTokenMatchesKind(SEMICOLON);
             } else {
-                currentToken = scanner.scan();
+                advance();
             }
-            return new Field(pos, type, name, initVal);
+            return span(new Field(pos, type, name, initVal), first);
         } else {
-            currentToken = scanner.scan();
+            advance();
             FormalList params = parseParameters();
             advanceIfTokenMatchesKind(RPAREN);
             StmtList body = parseBlock().getStmtList();
-            return new Method(pos, type, name, params, body);
+            return span(new Method(pos, type, name, params, body), first);
         }
 
     }
@@ -149,7 +426,7 @@ public class Parser
     private Stmt parseStatement() {
             Stmt stmt;
 
-            switch (currentToken.kind) {
+            switch (currentKind()) {
                 case IF:
                     stmt = parseIf();
                     break;
@@ -181,57 +458,62 @@ public class Parser
 
     // <WhileStmt> ::= WHILE ( <Expression> ) <Stmt>
     private Stmt parseWhile() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         // skip the word "WHILE" and continue to scan
-        currentToken = scanner.scan();
+        advance();
         advanceIfTokenMatchesKind(LPAREN);
         Expr expr = parseExpression();
        advanceIfTokenMatchesKind(RPAREN);
         Stmt stmt = parseStatement();
-        return new WhileStmt(pos, expr, stmt);
+        return span(new WhileStmt(pos, expr, stmt), first);
     }
 
 
     // <ReturnStmt> ::= RETURN <Expression> ; | RETURN ;
     private Stmt parseReturn() throws CompilationException {
         Expr expr = null;
-        int pos = currentToken.position;
-        currentToken = scanner.scan();
+        int first = current;
+        int pos = currentPosition();
+        advance();
         // if the return function has something to return
-        if(currentToken.kind != SEMICOLON){
+        if(currentKind() != SEMICOLON){
             expr = parseExpression();
             advanceIfTokenMatchesKind(SEMICOLON);
         }
         else{
-            currentToken = scanner.scan();
+            advance();
         }
-        return new ReturnStmt(pos, expr);
+        return span(new ReturnStmt(pos, expr), first);
     }
 
 
     // <BreakStmt> ::= BREAK ;
     private Stmt parseBreak() {
-        int pos = currentToken.position;
-        currentToken = scanner.scan();
+        int first = current;
+        int pos = currentPosition();
+        advance();
         advanceIfTokenMatchesKind(SEMICOLON);
-        return new BreakStmt(pos);
+        return span(new BreakStmt(pos), first);
     }
 
 
     // <ExpressionStmt> ::= <Expression> ;
     private ExprStmt parseExpressionStmt() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         Expr expr = parseExpression();
         advanceIfTokenMatchesKind(SEMICOLON);
-        return new ExprStmt(pos, expr);
+        return span(new ExprStmt(pos, expr), first);
     }
 
 
     // <VarDeclaration> ::= VAR <Id> = <Expression> ;
     // Every local variable must be initialized
     private DeclStmt parseVarDeclaration() {
-        int pos = currentToken.position;
-        currentToken = scanner.scan();
+        int first = current;
+        int pos = currentPosition();
+        advance();
         // check for the name of the var declaration
         String name = parseIdentifier();
 
@@ -240,7 +522,7 @@ public class Parser
         // check for the init of the var
         Expr init = parseExpression();
         advanceIfTokenMatchesKind(SEMICOLON);
-        return new DeclStmt(pos, name, init);
+        return span(new DeclStmt(pos, name, init), first);
     }
 
 
@@ -249,29 +531,30 @@ public class Parser
     // <Terminate> ::= EMPTY | <Expression>
     // <Increment> ::= EMPTY | <Expression>
     private ForStmt parseFor() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         Expr start = null;
         Expr terminate = null;
         Expr increment = null;
-        currentToken = scanner.scan();
+        advance();
         advanceIfTokenMatchesKind(LPAREN);
         // if the start statement is initialized
-        if(currentToken.kind != SEMICOLON){
+        if(currentKind() != SEMICOLON){
             start = parseExpression();
         }
         advanceIfTokenMatchesKind(SEMICOLON);
         // check if the termination statement is there
-        if(currentToken.kind != SEMICOLON) {
+        if(currentKind() != SEMICOLON) {
             terminate = parseExpression();
         }
         advanceIfTokenMatchesKind(SEMICOLON);
         // check if the increment expression is there
-        if(currentToken.kind != RPAREN) {
+        if(currentKind() != RPAREN) {
             increment = parseExpression();
         }
         advanceIfTokenMatchesKind(RPAREN);
         Stmt body = parseStatement();
-        return new ForStmt(pos,start,terminate,increment,body);
+        return span(new ForStmt(pos,start,terminate,increment,body), first);
 
     }
 
@@ -279,38 +562,43 @@ public class Parser
     // <BlockStmt> ::= { <Body> }
     // <Body> ::= EMPTY | <Stmt> <Body>
     private BlockStmt parseBlock() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         StmtList statements = new StmtList(pos);
         // check if the block start with Left curly
         advanceIfTokenMatchesKind(LCURLY);
         // continue to add statement to statement list until right curly
-        while(currentToken.kind != RCURLY){
+        while(currentKind() != RCURLY){
             statements.addElement(parseStatement());
         }
-        currentToken = scanner.scan();
-        return new BlockStmt(pos,statements);
+        statements.trimToSize();
+        advance();
+        // the statements span the braces too, since a method keeps only them
+        span(statements, first);
+        return span(new BlockStmt(pos,statements), first);
 
     }
 
 
     // <IfStmt> ::= IF ( <Expr> ) <Stmt> | IF ( <Expr> ) <Stmt> ELSE <Stmt>
     private Stmt parseIf() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         Expr pred = null;
         Stmt then = null;
         Stmt elseStmt = null;
 
-        currentToken = scanner.scan();
+        advance();
         advanceIfTokenMatchesKind(LPAREN);
         pred = parseExpression();
         advanceIfTokenMatchesKind(RPAREN);
         then = parseStatement();
         // if the if statement has an else clause, read the else
-        if(currentToken.kind == ELSE){
-            currentToken = scanner.scan();
+        if(currentKind() == ELSE){
+            advance();
             elseStmt = parseStatement();
         }
-        return new IfStmt(pos,pred,then,elseStmt);
+        return span(new IfStmt(pos,pred,then,elseStmt), first);
     }
 
 
@@ -322,161 +610,90 @@ public class Parser
     // <Expression> ::= <LogicalORExpr> <OptionalAssignment>
     // <OptionalAssignment> ::= EMPTY | = <Expression>
     private Expr parseExpression() {
-        int pos = currentToken.position;
-        Expr expr = parseOrExpr();
+        int first = current;
+        int pos = currentPosition();
+        Expr expr = parseBinaryExpr(BinaryOperator.LOGICAL_OR);
         // if this is an assignment expression, return an assignment expression object
-        if(currentToken.kind == ASSIGN && (expr instanceof VarExpr)){
-            currentToken = scanner.scan();
+        if(currentKind() == ASSIGN && (expr instanceof VarExpr)){
+            advance();
             Expr assign = parseExpression();
-            return new AssignExpr(pos, null, ((VarExpr) expr).getName(), assign);
+            return span(new AssignExpr(pos, null, ((VarExpr) expr).getName(), assign), first);
         }
         return expr;
     }
 
 
-    // <LogicalOR> ::= <logicalAND> <LogicalORRest>
+    // The binary operators are parsed by precedence climbing instead of with
+    // one method per level. The levels, from the loosest to the tightest, are
+    // <LogicalOR> ::= <LogicalAND> <LogicalORRest>
     // <LogicalORRest> ::= EMPTY |  || <LogicalAND> <LogicalORRest>
-    private Expr parseOrExpr() {
-        int position = currentToken.position;
-        Expr left;
-
-        left = parseAndExpr();
-        // keep building the binary logic or expression when there's consecutive || symbol
-        while (currentToken.spelling.equals("||")) {
-            currentToken = scanner.scan();
-            Expr right = parseAndExpr();
-            left = new BinaryLogicOrExpr(position, left, right);
-        }
-
-        return left;
-    }
-
-
     // <LogicalAND> ::= <ComparisonExpr> <LogicalANDRest>
     // <LogicalANDRest> ::= EMPTY |  && <ComparisonExpr> <LogicalANDRest>
-    private Expr parseAndExpr() {
-        int pos = currentToken.position;
-        Expr left = parseEqualityExpr();
-        // continue to build binary logic and expression when there's multiple &&
-        while(currentToken.spelling.equals("&&")){
-            currentToken = scanner.scan();
-            Expr right = parseEqualityExpr();
-            left = new BinaryLogicAndExpr(pos, left, right);
-        }
-        return left;
-    }
-
-
     // <ComparisonExpr> ::= <RelationalExpr> <equalOrNotEqual> <RelationalExpr> |
     //                      <RelationalExpr>
-    // <equalOrNotEqual> ::=  = | !=
-    private Expr parseEqualityExpr() {
-        int pos = currentToken.position;
-        Expr left = parseRelationalExpr();
-        // if there's no comparison occurred, return the relational expression
-        if(!currentToken.spelling.equals("==") && !currentToken.spelling.equals("!=")){
-            return left;
-        }
-        String op = currentToken.spelling;
-        currentToken = scanner.scan();
-        Expr right = parseRelationalExpr();
-
-        // if equality is compared, return binary compare equality expression
-        if(op.equals("==")){
-            return new BinaryCompEqExpr(pos,left,right);
-        }
-        // otherwise, return binary compare not equal expression
-        return new BinaryCompNeExpr(pos,left,right);
-    }
-
-
-    // <RelationalExpr> ::= <AddExpr> | <AddExpr> <ComparisonOp> <AddExpr>
-    // <ComparisonOp>::= < | > | <= | >= | INSTANCEOF
-    private Expr parseRelationalExpr() {
-        int pos = currentToken.position;
-        Expr left = parseAddExpr();
-        // if the relational expr has no comparison operation, return the first part of the expression
-        if((currentToken.kind != COMPARE || currentToken.spelling.equals("==") ||
-                currentToken.spelling.equals("!=")) && currentToken.kind != INSTANCEOF){
-            return left;
-        }
-        // take care of the case when comparisonOp is instance of
-        if(currentToken.kind == INSTANCEOF){
-            currentToken = scanner.scan();
-            String type = parseType();
-            return new InstanceofExpr(pos,left,type);
-        }
-        // take care of the rest of the comparison op cases
-        String op = currentToken.spelling;
-        currentToken = scanner.scan();
-        Expr right = parseAddExpr();
-        if(op.equals("<")){
-            return new BinaryCompLtExpr(pos,left,right);
-        }
-        if(op.equals(">")){
-            return new BinaryCompGtExpr(pos,left,right);
-        }
-        if(op.equals("<=")){
-            return new BinaryCompLeqExpr(pos,left,right);
-        }
-        return new BinaryCompGeqExpr(pos,left,right);
-    }
-
-
-    // <AddExpr>::＝ <MultExpr> <MoreMultExpr>
+    // <equalOrNotEqual> ::=  == | !=
+    // <RelationalExpr> ::= <AddExpr> | <AddExpr> <ComparisonOp> <AddExpr> |
+    //                      <AddExpr> INSTANCEOF <Type>
+    // <ComparisonOp>::= < | > | <= | >=
+    // <AddExpr>::= <MultExpr> <MoreMultExpr>
     // <MoreMultExpr> ::= EMPTY | + <MultExpr> <MoreMultExpr> | - <MultExpr> <MoreMultExpr>
-    private Expr parseAddExpr() {
-        int pos = currentToken.position;
-        Expr left = parseMultExpr();
-        // build the arithmetic plus or minus expression if there's more plus or minus token
-        while(currentToken.kind == PLUSMINUS){
-            String op = currentToken.spelling;
-            currentToken = scanner.scan();
-            Expr right =  parseMultExpr();
-            if(op.equals("+")){
-                left = new BinaryArithPlusExpr(pos,left,right);
-            }
-            else{
-                left = new BinaryArithMinusExpr(pos,left,right);
-            }
-        }
-        return left;
-    }
-
-
-    // <MultiExpr> ::= <NewCastOrUnary> <MoreNCU>
+    // <MultExpr> ::= <NewCastOrUnary> <MoreNCU>
     // <MoreNCU> ::= * <NewCastOrUnary> <MoreNCU> |
     //               / <NewCastOrUnary> <MoreNCU> |
     //               % <NewCastOrUnary> <MoreNCU> |
     //               EMPTY
-    private Expr parseMultExpr() {
-        int pos = currentToken.position;
-        Expr left = parseNewCastOrUnary();
 
-        // build the multi/divide expression if there's more of such token
-        while(currentToken.kind == MULDIV){
-            String op = currentToken.spelling;
-            currentToken = scanner.scan();
-            Expr right =  parseNewCastOrUnary();
-            if(op.equals("*")){
-                left = new BinaryArithTimesExpr(pos,left,right);
+    /**
+     * parses a chain of binary operators whose precedence is at least the given one
+     * @param minPrecedence the precedence of the loosest operator to take
+     * @return the expression, with the operators grouped as in the grammar above
+     */
+    private Expr parseBinaryExpr(int minPrecedence) {
+        int first = current;
+        int pos = currentPosition();
+        Expr left = parseNewCastOrUnary();
+        // after an operator only looser ones can follow; after a comparison,
+        // not even another operator at its own level
+        int maxPrecedence = Integer.MAX_VALUE;
+        while (true) {
+            BinaryOperator op = currentBinaryOperator();
+            if (op == null || op.precedence < minPrecedence || op.precedence > maxPrecedence) {
+                return left;
             }
-            else if(op.equals("/")){
-                left = new BinaryArithDivideExpr(pos,left,right);
+            advance();
+            if (op.maker == null) {
+                left = span(new InstanceofExpr(pos, left, parseType()), first);
             }
-            else{
-                left = new BinaryArithModulusExpr(pos,left,right);
+            else {
+                Expr right = parseBinaryExpr(op.precedence + 1);
+                left = span(op.maker.make(pos, left, right), first);
+            }
+            maxPrecedence = op.associative ? op.precedence : op.precedence - 1;
+        }
+    }
+
+    /**
+     * @return the binary operator the lookahead token is, or null if it is not one
+     */
+    private BinaryOperator currentBinaryOperator() {
+        BinaryOperator[] candidates = BinaryOperator.BY_KIND[currentKind().ordinal()];
+        if (candidates == null) {
+            return null;
+        }
+        for (BinaryOperator op : candidates) {
+            if (tokens.spellingEquals(current, op.spelling)) {
+                return op;
             }
         }
-        return left;
+        return null;
     }
 
     // <NewCastOrUnary> ::= <NewExpression> | <CastExpression> | <UnaryPrefix>
     private Expr parseNewCastOrUnary() {
-        if(currentToken.kind == NEW){
+        if(currentKind() == NEW){
             return parseNew();
         }
-        if(currentToken.kind == CAST){
+        if(currentKind() == CAST){
             return parseCast();
         }
         return parseUnaryPrefix();
@@ -485,53 +702,56 @@ public class Parser
 
     // <NewExpression> ::= NEW <Identifier> ( )
     private Expr parseNew() {
-        int pos = currentToken.position;
-        currentToken = scanner.scan();
+        int first = current;
+        int pos = currentPosition();
+        advance();
         String name = parseIdentifier();
         advanceIfTokenMatchesKind(LPAREN);
         advanceIfTokenMatchesKind(RPAREN);
-        return new NewExpr(pos, name);
+        return span(new NewExpr(pos, name), first);
     }
 
 
     // <CastExpression> ::= CAST ( <Type> , <Expression> )
     private Expr parseCast() {
-        int pos = currentToken.position;
-        currentToken = scanner.scan();
+        int first = current;
+        int pos = currentPosition();
+        advance();
         advanceIfTokenMatchesKind(LPAREN);
         String name = parseType();
         advanceIfTokenMatchesKind(COMMA);
         Expr expr = parseExpression();
         advanceIfTokenMatchesKind(RPAREN);
-        return new CastExpr(pos, name, expr);
+        return span(new CastExpr(pos, name, expr), first);
     }
 
 
     // <UnaryPrefix> ::= <PrefixOp> <UnaryPreFix> | <UnaryPostfix>
     // <PrefixOp> ::= - | ! | ++ | --
     private Expr parseUnaryPrefix() {
-        int pos = currentToken.position;
-        String sp = currentToken.spelling;
+        int first = current;
+        int pos = currentPosition();
+        String sp = currentSpelling();
         Expr expr = null;
         if(sp.equals("-")){
-            currentToken = scanner.scan();
+            advance();
             expr = parseUnaryPrefix();
-            return new UnaryNegExpr(pos, expr);
+            return span(new UnaryNegExpr(pos, expr), first);
         }
         if(sp.equals("!")){
-            currentToken = scanner.scan();
+            advance();
             expr = parseUnaryPrefix();
-            return new UnaryNotExpr(pos, expr);
+            return span(new UnaryNotExpr(pos, expr), first);
         }
         if(sp.equals("++")){
-            currentToken = scanner.scan();
+            advance();
             expr = parseUnaryPrefix();
-            return new UnaryIncrExpr(pos, expr, false);
+            return span(new UnaryIncrExpr(pos, expr, false), first);
         }
         if(sp.equals("--")){
-            currentToken = scanner.scan();
+            advance();
             expr = parseUnaryPrefix();
-            return new UnaryDecrExpr(pos, expr, false);
+            return span(new UnaryDecrExpr(pos, expr, false), first);
         }
         return parseUnaryPostfix();
     }
@@ -540,15 +760,16 @@ public class Parser
     // <UnaryPostfix> ::= <Primary> <PostfixOp>
     // <PostfixOp> ::= ++ | -- | EMPTY
     private Expr parseUnaryPostfix() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         Expr expr = parsePrimary();
-        if(currentToken.spelling.equals("++")){
-            currentToken = scanner.scan();
-            return new UnaryIncrExpr(pos, expr, true);
+        if(currentSpellingIs("++")){
+            advance();
+            return span(new UnaryIncrExpr(pos, expr, true), first);
         }
-        if(currentToken.spelling.equals("--")){
-            currentToken = scanner.scan();
-            return new UnaryDecrExpr(pos, expr, true);
+        if(currentSpellingIs("--")){
+            advance();
+            return span(new UnaryDecrExpr(pos, expr, true), first);
         }
         return expr;
     }
@@ -560,99 +781,106 @@ public class Parser
     // <VarExprPrefix> ::= SUPER . | THIS . | EMPTY
     // <VarExprSuffix> ::= . <Identifier> ( <Arguments> ) | ( <Arguments>) | EMPTY
     private Expr parsePrimary() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         // check if this is an expression
-        if(currentToken.kind == LPAREN){
-            currentToken = scanner.scan();
+        if(currentKind() == LPAREN){
+            advance();
             Expr expr = parseExpression();
             advanceIfTokenMatchesKind(RPAREN);
             return expr;
         }
         // check if this is an Integer Constant Expression
-        if(currentToken.kind == INTCONST){
-            String intCont = currentToken.getSpelling();
-            currentToken = scanner.scan();
-            return new ConstIntExpr(pos, intCont);
+        if(currentKind() == INTCONST){
+            String intCont = currentSpelling();
+            advance();
+            return span(new ConstIntExpr(pos, intCont), first);
         }
         // check if this is a boolean Constant expression
-        if(currentToken.kind == BOOLEAN){
-            String boolVal = currentToken.getSpelling();
-            currentToken = scanner.scan();
-            return new ConstBooleanExpr(pos, boolVal);
+        if(currentKind() == BOOLEAN){
+            String boolVal = currentSpelling();
+            advance();
+            return span(new ConstBooleanExpr(pos, boolVal), first);
         }
         // check if this is a string constant expression
-        if(currentToken.kind == STRCONST){
-            String strConst = currentToken.getSpelling();
-            currentToken = scanner.scan();
-            return new ConstStringExpr(pos, strConst);
+        if(currentKind() == STRCONST){
+            String strConst = currentSpelling();
+            advance();
+            return span(new ConstStringExpr(pos, strConst), first);
         }
         Expr ref = null;
-        if(currentToken.spelling.equals("super") || currentToken.spelling.equals("this")){
-            ref = new VarExpr(pos, null, currentToken.spelling);
-            currentToken = scanner.scan();
-            if(currentToken.kind != DOT){
+        if(currentSpellingIs("super") || currentSpellingIs("this")){
+            ref = new VarExpr(pos, null, currentSpelling());
+            advance();
+            span(ref, first);
+            if(currentKind() != DOT){
                 return ref;
             }
-            currentToken = scanner.scan();
+            advance();
         }
         String name = parseIdentifier();
 //        ref = new VarExpr(pos,ref,name);
 
-        if(currentToken.kind != DOT && currentToken.kind != LPAREN){
-            return new VarExpr(pos,ref,name);
+        if(currentKind() != DOT && currentKind() != LPAREN){
+            return span(new VarExpr(pos,ref,name), first);
         }
 
-        if(currentToken.kind == DOT){
-            pos = currentToken.position;
-            currentToken = scanner.scan();
-            ref = new VarExpr(pos,ref,name);
+        if(currentKind() == DOT){
+            pos = currentPosition();
+            advance();
+            ref = span(new VarExpr(pos,ref,name), first, current - 1);
             name = parseIdentifier();
         }
 
         advanceIfTokenMatchesKind(LPAREN);
         ExprList args = parseArguments();
         advanceIfTokenMatchesKind(RPAREN);
-        return new DispatchExpr(pos, ref, name, args);
+        return span(new DispatchExpr(pos, ref, name, args), first);
     }
 
 
     // <Arguments> ::= EMPTY | <Expression> <MoreArgs>
     // <MoreArgs>  ::= EMPTY | , <Expression> <MoreArgs>
     private ExprList parseArguments() {
-        ExprList exprList = new ExprList(currentToken.position);
-        if(currentToken.kind != RPAREN){
+        int first = current;
+        ExprList exprList = new ExprList(currentPosition());
+        if(currentKind() != RPAREN){
             exprList.addElement(parseExpression());
-            while(currentToken.kind == COMMA){
-                currentToken = scanner.scan();
+            while(currentKind() == COMMA){
+                advance();
                 exprList.addElement(parseExpression());
             }
+            exprList.trimToSize();
         }
-        return exprList;
+        return span(exprList, first);
     }
 
 
     // <Parameters> ::=  EMPTY | <Formal> <MoreFormals>
     // <MoreFormals> ::= EMPTY | , <Formal> <MoreFormals
     private FormalList parseParameters() {
-        FormalList formalList = new FormalList(currentToken.position);
+        int first = current;
+        FormalList formalList = new FormalList(currentPosition());
 
-        if(currentToken.kind != RPAREN){
+        if(currentKind() != RPAREN){
             formalList.addElement(parseFormal());
-            while(currentToken.kind == COMMA){
-                currentToken = scanner.scan();
+            while(currentKind() == COMMA){
+                advance();
                 formalList.addElement(parseFormal());
             }
+            formalList.trimToSize();
         }
-        return formalList;
+        return span(formalList, first);
     }
 
 
     // <Formal> ::= <Type> <Identifier>
     private Formal parseFormal() {
-        int pos = currentToken.position;
+        int first = current;
+        int pos = currentPosition();
         String type = parseType();
         String name = parseIdentifier();
-        return new Formal(pos, type, name);
+        return span(new Formal(pos, type, name), first);
     }
 
 
@@ -666,32 +894,160 @@ public class Parser
     //Terminals
 
     private String parseIdentifier() {
-        if(currentToken.kind != IDENTIFIER){
-            errorHandler.register(Error.Kind.PARSE_ERROR, "Expecting Identifier, found " + currentToken.kind+" at line "+currentToken.position);
+        if(currentKind() != IDENTIFIER){
+            errorHandler.register(Error.Kind.PARSE_ERROR, "Expecting Identifier, found " + currentKind()+" at line "+currentPosition());
             throw new CompilationException(errorHandler);
         }
-        String name = currentToken.spelling;
-        currentToken = scanner.scan();
+        String name = currentSpelling();
+        advance();
         return name;
     }
 
+    /**
+     * sets the span of a node to run from the start of the given token to the
+     * end of the last token taken
+     * @param node the node
+     * @param first the index of the first token of the node
+     * @return the node
+     */
+    private <T extends ASTNode> T span(T node, int first) {
+        return span(node, first, current);
+    }
+
+    /**
+     * sets the span of a node to run from the start of one token to the end
+     * of the token before another. A node with no tokens gets an empty span
+     * where its first token would have been.
+     * @param node the node
+     * @param first the index of the first token of the node
+     * @param end the index of the token just after the node
+     * @return the node
+     */
+    private <T extends ASTNode> T span(T node, int first, int end) {
+        int start = tokens.getStart(first);
+        if (end <= first) {
+            node.setSpan(start, start);
+        }
+        else {
+            node.setSpan(start, tokens.getStart(end - 1) + tokens.getLength(end - 1));
+        }
+        return node;
+    }
+
+    /** @return the kind of the lookahead token */
+    private Token.Kind currentKind() {
+        return tokens.getKind(current);
+    }
+
+    /** @return the line number of the lookahead token */
+    private int currentPosition() {
+        return tokens.getLine(current);
+    }
+
+    /** @return the spelling of the lookahead token */
+    private String currentSpelling() {
+        return tokens.getSpelling(current);
+    }
+
+    /**
+     * @param spelling a spelling
+     * @return whether the lookahead token has the spelling
+     */
+    private boolean currentSpellingIs(String spelling) {
+        return tokens.spellingEquals(current, spelling);
+    }
+
+    /**
+     * moves on to the next token, registering the lexical errors found in it
+     * just as if it had only been scanned now
+     */
+    private void advance() {
+        if (current < tokens.size() - 1) {
+            current++;
+            tokens.registerErrors(current, errorHandler);
+        }
+    }
+
     /**
      * advance to the next token if the current token kind matches the expected token kind
      * @param expectedKind the expected token kind
      */
     private void advanceIfTokenMatchesKind(Token.Kind expectedKind){
-        Token.Kind currentKind = currentToken.kind;
+        Token.Kind currentKind = currentKind();
         if(currentKind == expectedKind){
-            currentToken = scanner.scan();
+            advance();
         }
         // if the token doesn't match, register an error message with the line number and expected token vs. what's input
         else{
-            errorHandler.register(Error.Kind.PARSE_ERROR, "Expecting "+expectedKind+" at line "+currentToken.position
+            errorHandler.register(Error.Kind.PARSE_ERROR, "Expecting "+expectedKind+" at line "+currentPosition()
                     +", but "+currentKind+" was found");
             throw new CompilationException(errorHandler);
         }
     }
 
+    /**
+     * Makes the node for a binary operator from its two operands.
+     */
+    private interface BinaryNodeMaker
+    {
+        Expr make(int pos, Expr left, Expr right);
+    }
+
+    /**
+     * The table of binary operators used by parseBinaryExpr.
+     */
+    private static class BinaryOperator
+    {
+        // the precedence levels, from the loosest to the tightest
+        private static final int LOGICAL_OR = 1, LOGICAL_AND = 2, EQUALITY = 3,
+                RELATIONAL = 4, ADDITIVE = 5, MULTIPLICATIVE = 6;
+
+        /** the operators each kind of token can be, indexed by the ordinal of the kind */
+        private static final BinaryOperator[][] BY_KIND =
+                new BinaryOperator[Token.Kind.values().length][];
+
+        static {
+            add(BINARYLOGIC, "||", LOGICAL_OR, true, BinaryLogicOrExpr::new);
+            add(BINARYLOGIC, "&&", LOGICAL_AND, true, BinaryLogicAndExpr::new);
+            add(COMPARE, "==", EQUALITY, false, BinaryCompEqExpr::new);
+            add(COMPARE, "!=", EQUALITY, false, BinaryCompNeExpr::new);
+            add(COMPARE, "<", RELATIONAL, false, BinaryCompLtExpr::new);
+            add(COMPARE, "<=", RELATIONAL, false, BinaryCompLeqExpr::new);
+            add(COMPARE, ">", RELATIONAL, false, BinaryCompGtExpr::new);
+            add(COMPARE, ">=", RELATIONAL, false, BinaryCompGeqExpr::new);
+            // instanceof takes a type on its right, so it has no maker
+            add(INSTANCEOF, "instanceof", RELATIONAL, false, null);
+            add(PLUSMINUS, "+", ADDITIVE, true, BinaryArithPlusExpr::new);
+            add(PLUSMINUS, "-", ADDITIVE, true, BinaryArithMinusExpr::new);
+            add(MULDIV, "*", MULTIPLICATIVE, true, BinaryArithTimesExpr::new);
+            add(MULDIV, "/", MULTIPLICATIVE, true, BinaryArithDivideExpr::new);
+            add(MULDIV, "%", MULTIPLICATIVE, true, BinaryArithModulusExpr::new);
+        }
+
+        private final String spelling;
+        private final int precedence;
+        /** false if a chain such as a < b < c is not allowed */
+        private final boolean associative;
+        private final BinaryNodeMaker maker;
+
+        private BinaryOperator(String spelling, int precedence, boolean associative,
+                               BinaryNodeMaker maker) {
+            this.spelling = spelling;
+            this.precedence = precedence;
+            this.associative = associative;
+            this.maker = maker;
+        }
+
+        private static void add(Token.Kind kind, String spelling, int precedence,
+                                boolean associative, BinaryNodeMaker maker) {
+            BinaryOperator[] old = BY_KIND[kind.ordinal()];
+            BinaryOperator[] ops = old == null ? new BinaryOperator[1]
+                    : Arrays.copyOf(old, old.length + 1);
+            ops[ops.length - 1] = new BinaryOperator(spelling, precedence, associative, maker);
+            BY_KIND[kind.ordinal()] = ops;
+        }
+    }
+
     /**
      * The main method to run test files through the parser and print
      * status to the console.
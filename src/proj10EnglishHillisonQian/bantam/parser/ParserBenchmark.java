@@ -0,0 +1,173 @@
+/*
+ * File: ParserBenchmark.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.parser;
+
+import proj10EnglishHillisonQian.bantam.util.CompilationException;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how long the Parser takes to parse files, parsing the classes
+ * one after the other and in parallel, and loading their ASTs from an
+ * ASTCache. Each file is parsed a number of
+ * times, first to warm up the JIT and then timed.
+ *
+ * With no files given, it times the test file and a generated program made
+ * mostly of long expressions that mix all the binary operators.
+ */
+public class ParserBenchmark
+{
+    /** number of untimed runs done before measuring */
+    private static final int WARMUP_RUNS = 5;
+    /** number of timed runs */
+    private static final int TIMED_RUNS = 10;
+
+    /** the binary operators used in generated expressions */
+    private static final String[] OPERATORS = {"||", "&&", "==", "!=", "<", "<=", ">", ">=",
+            "+", "-", "*", "/", "%"};
+    /** the operands used in generated expressions */
+    private static final String[] OPERANDS = {"a", "b", "this.c", "f(a, b)", "42", "true",
+            "\"s\"", "-a", "!b", "a++", "new Main()"};
+
+    /**
+     * writes a program whose methods are made of long expressions
+     * @param file the file to write the program to
+     * @param methods the number of methods in the program
+     * @param seed the seed of the random choice of operators and operands
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeExpressionProgram(File file, int methods, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("class Main {");
+            out.println("    int c = 0;");
+            out.println("    int f(int a, int b) { return a; }");
+            for (int m = 0; m < methods; m++) {
+                out.println("    void m" + m + "(int a, boolean b) {");
+                for (int s = 0; s < 10; s++) {
+                    out.println("        var x" + s + " = " + expression(random, 3) + ";");
+                }
+                out.println("    }");
+            }
+            out.println("    void main() { }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * makes a random expression with a chain of binary operators
+     * @param random where the choices come from
+     * @param depth how many more levels of parentheses can be nested
+     * @return the expression
+     */
+    private static String expression(Random random, int depth) {
+        StringBuilder expr = new StringBuilder(operand(random, depth));
+        int length = 2 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            String op = OPERATORS[random.nextInt(OPERATORS.length)];
+            expr.append(' ').append(op).append(' ').append(operand(random, depth));
+            // the comparisons do not chain, so put them in parentheses
+            if (op.length() == 2 && op.charAt(0) != '|' && op.charAt(0) != '&'
+                    || op.equals("<") || op.equals(">")) {
+                expr.insert(0, '(').append(')');
+            }
+        }
+        return expr.toString();
+    }
+
+    /**
+     * makes a random operand of a binary operator
+     * @param random where the choices come from
+     * @param depth how many more levels of parentheses can be nested
+     * @return the operand
+     */
+    private static String operand(Random random, int depth) {
+        if (depth > 0 && random.nextInt(4) == 0) {
+            return "(" + expression(random, depth - 1) + ")";
+        }
+        return OPERANDS[random.nextInt(OPERANDS.length)];
+    }
+
+    /**
+     * parses the file once
+     * @param filename the name of the file to parse
+     * @param parallel whether the classes are parsed in parallel
+     * @param cache the cache to load the AST from, or null to parse the file
+     */
+    private static void parseFile(String filename, boolean parallel, ASTCache cache) {
+        Parser parser = new Parser(new ErrorHandler());
+        parser.setParallel(parallel);
+        parser.setCache(cache);
+        parser.parse(filename);
+    }
+
+    /**
+     * times the parsing of the file and prints the results
+     * @param label what is being timed
+     * @param filename the name of the file to parse
+     * @param parallel whether the classes are parsed in parallel
+     * @param cache the cache to load the AST from, or null to parse the file
+     */
+    private static void time(String label, String filename, boolean parallel, ASTCache cache) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            parseFile(filename, parallel, cache);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            parseFile(filename, parallel, cache);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("  %-10s best %8.2f ms  mean %8.2f ms%n",
+                label, best / 1e6, total / 1e6 / TIMED_RUNS);
+    }
+
+    /**
+     * Parses each of the given files and prints how long it took.
+     * @param args the files to parse
+     */
+    public static void main(String[] args) throws IOException {
+        String[] files;
+        if (args.length < 1) {
+            File expressions = File.createTempFile("expressions", ".btm");
+            expressions.deleteOnExit();
+            writeExpressionProgram(expressions, 500, 361);
+            files = new String[]{"ParserTestEnglishHillisonQian.btm", expressions.getPath()};
+        } else {
+            files = args;
+        }
+
+        ASTCache cache = new ASTCache(Files.createTempDirectory("ast-cache").toFile());
+        System.out.println("parallelism " + ForkJoinPool.commonPool().getParallelism());
+        for (String file : files) {
+            System.out.println(file);
+            try {
+                time("sequential", file, false, null);
+                time("parallel", file, true, null);
+                // the warmup runs store the AST, so the timed runs load it
+                time("cached", file, false, cache);
+            } catch (CompilationException e) {
+                if (e.getErrorHandler() == null) {
+                    System.out.println(e.getMessage());
+                } else {
+                    System.out.println("File " + file + " did not parse: "
+                            + e.getErrorHandler().getErrorList());
+                }
+            }
+        }
+    }
+}
@@ -40,7 +40,7 @@ public class Converter extends PrettyPrintVisitor{
      */
     public String convert(Program program){
         // after visiting the program node, store the converted string in a variable
-        this.visit(program);
+        this.traverse(program);
         String output = this.getOutput();
 
         try{
@@ -63,13 +63,28 @@ public class Converter extends PrettyPrintVisitor{
      * @return the string of the converted java file
      */
     public String convert(String fileName){
+        return convert(fileName, null);
+    }
+
+    /**
+     * convert method that takes in the text of a bantam Java program, such as
+     * the unsaved contents of an editor
+     * @param fileName the name to use for the text in error messages
+     * @param source the bantam Java text to be converted, or null to read the file
+     * @return the string of the converted java file
+     */
+    public String convert(String fileName, CharSequence source){
         ErrorHandler errorHandler = new ErrorHandler();
         Parser parser = new Parser(errorHandler);
         SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
         Program program;
         try {
             // try to check for syntax and semantic errors
-            program = parser.parse(fileName);
+            if(source == null){
+                program = parser.parse(fileName);
+            } else {
+                program = parser.parse(fileName, source);
+            }
             ClassTreeNode node = analyzer.analyze(program);
             // add the two built in classes to the class list of the program node
             Class_ textIONode = node.getClassMap().get("TextIO").getASTNode();
@@ -91,78 +106,76 @@ public class Converter extends PrettyPrintVisitor{
     }
 
     /**
-     * visit the filed node and make them ready to run as java file
-     * @param node the field node
-     * @return
+     * prints the start of the class, field and method nodes so that they are
+     * ready to run as java, and the start of the other nodes as the pretty
+     * printer does
+     * @param node the node
+     * @return true, to print the children
      */
     @Override
-    public Object visit(Field node){
-        indentLine();
-        // keyword "protected" need to be before all fields
-        print("protected "+node.getType() + " " + node.getName());
-        Expr initExpr = node.getInit();
-        if (initExpr != null) {
-            print(" = ");
-            initExpr.accept(this);
+    protected boolean pre(ASTNode node){
+        switch (node.getKind()) {
+            case CLASS:
+                Class_ aClass = (Class_) node;
+                indentLine();
+                if(aClass.getName().equals("Main")){
+                    // keyword "public" need to be before the "Main" class
+                    print("public ");
+                }
+                print("class " + aClass.getName());
+                if(aClass.getParent() != null && !"Object".equals(aClass.getParent())){
+                    print(" extends " + aClass.getParent());
+                }
+                print(" {\n");
+                indentLevel++;
+                return true;
+            case FIELD:
+                Field field = (Field) node;
+                indentLine();
+                // keyword "protected" need to be before all fields
+                print("protected "+field.getType() + " " + field.getName());
+                return true;
+            case METHOD:
+                Method method = (Method) node;
+                indentLine();
+                // keyword "public" need to be before all methods
+                print("public "+method.getReturnType() + " " + method.getName() + "(");
+                return true;
+            default:
+                return super.pre(node);
         }
-        print(";\n");
-        return null;
-    }
-
-    /**
-     * visit method node and make them ready to run as java file
-     * @param node the method node
-     * @return
-     */
-    @Override
-    public Object visit(Method node){
-        indentLine();
-        // keyword "public" need to be before all methods
-        print("public "+node.getReturnType() + " " + node.getName() + "(");
-
-        node.getFormalList().accept(this);
-        print(") {\n");
-
-        indentLevel++;
-        node.getStmtList().accept(this);
-        indentLevel--;
-        indentLine();
-        print("}\n\n");
-
-        return null;
     }
 
     /**
-     * visit class_ node and add convert
-     * @param node the class node
-     * @return
+     * prints the end of the class and method nodes so that they are ready to
+     * run as java, and the end of the other nodes as the pretty printer does
+     * @param node the node
      */
     @Override
-    public Object visit(Class_ node){
-        indentLine();
-        if(node.getName().equals("Main")){
-            // keyword "public" need to be before the "Main" class
-            print("public ");
-        }
-        print("class " + node.getName());
-        if(node.getParent() != null && !"Object".equals(node.getParent())){
-            print(" extends " + node.getParent());
-        }
-        print(" {\n");
-        indentLevel++;
-        node.getMemberList().accept(this);
-        if(node.getName().equals("Main")){
-            // method to be included with the "Main" class
-            print(
-                "\tpublic static void main(String[] args) {\n" +
-                        "\t\t(new Main()).main();\n" +
-                        "\t}\n"
-            );
+    protected void post(ASTNode node){
+        switch (node.getKind()) {
+            case CLASS:
+                if(((Class_) node).getName().equals("Main")){
+                    // method to be included with the "Main" class
+                    print(
+                        "\tpublic static void main(String[] args) {\n" +
+                                "\t\t(new Main()).main();\n" +
+                                "\t}\n"
+                    );
+                }
+                indentLevel--;
+                indentLine();
+                print("}\n\n");
+                break;
+            case METHOD:
+                indentLevel--;
+                indentLine();
+                print("}\n\n");
+                break;
+            default:
+                super.post(node);
+                break;
         }
-        indentLevel--;
-        indentLine();
-        print("}\n\n");
-        return null;
     }
 
     public static void main(String[] args) {
@@ -8,7 +8,7 @@ package proj10EnglishHillisonQian.bantam.printer;
 
 import javafx.util.Pair;
 import proj10EnglishHillisonQian.bantam.ast.*;
-import proj10EnglishHillisonQian.bantam.visitor.Visitor;
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
 
 import java.util.LinkedList;
 
@@ -16,8 +16,11 @@ import java.util.LinkedList;
 /**
  * This visitor prints the program that generated a given AST
  * in a pretty format.
+ * It walks the AST with a Traversal, so deeply nested expressions do not
+ * overflow the Java stack. The text before, between and after the children
+ * of a node is printed by the pre, beforeChild, afterChild and post hooks.
  */
-public class PrettyPrintVisitor extends Visitor {
+public class PrettyPrintVisitor extends Traversal {
     private boolean returnOutput;
     private StringBuilder output;
     public int indentLevel;
@@ -89,614 +92,285 @@ public class PrettyPrintVisitor extends Visitor {
     }
 
     /**
-     * Visit a class node
-     *
-     * @param node the class node
-     * @return result of the visit
-     */
-    public Object visit(Class_ node){
-        // start class
-        newLine(node.getLineNum());
-        print("class " + node.getName());
-
-        // add extends clause and {
-        if(node.getParent() != null && !"Object".equals(node.getParent())){
-            print(" extends " + node.getParent());
-        }
-        print(" {\n");
-
-        // add indent level for class body, visit
-        indentLevel++;
-        node.getMemberList().accept(this);
-        indentLevel--;
-
-        // end class
-        newLine(node.getLineNum());
-        print("}\n\n");
-        return null;
-    }
-
-    /**
-     * Visit a field node
-     *
-     * @param node the field node
-     * @return result of the visit
-     */
-    public Object visit(Field node) {
-        // print field type and name
-        newLine(node.getLineNum());
-        print(node.getType() + " " + node.getName());
-
-        // visit and print initialization
-        Expr initExpr = node.getInit();
-        if (initExpr != null) {
-            print(" = ");
-            initExpr.accept(this);
-        }
-
-        print(";\n");
-        return null;
-    }
-
-    /**
-     * Visit a method node
-     *
-     * @param node the method node
-     * @return result of the visit
-     */
-    public Object visit(Method node) {
-        // print method type and name
-        print("\n");
-        newLine(node.getLineNum());
-        print(node.getReturnType() + " " + node.getName() + "(");
-
-        // visit formal list
-        node.getFormalList().accept(this);
-        print(") {\n");
-
-        // indent for method body, visit
-        indentLevel++;
-        node.getStmtList().accept(this);
-        indentLevel--;
-
-        newLine(node.getLineNum());
-        print("}\n");
-        return null;
-    }
-
-    /**
-     * Visit a formal node
-     *
-     * @param node the formal node
-     * @return result of the visit
-     */
-    public Object visit(Formal node) {
-        print(node.getType() + " " + node.getName());
-        return null;
-    }
-
-    /**
-     * Visit a declaration statement node
-     *
-     * @param node the declaration statement node
-     * @return result of the visit
-     */
-    public Object visit(DeclStmt node) {
-        newLine(node.getLineNum());
-        print("var " + node.getName() + " = ");
-
-        // visit initial expr
-        node.getInit().accept(this);
-        print(";\n");
-        return null;
-    }
-
-    /**
-     * Visit an expression statement node
-     *
-     * @param node the expression statement node
-     * @return result of the visit
-     */
-    public Object visit(ExprStmt node) {
-        newLine(node.getLineNum());
-
-        // visit expr
-        node.getExpr().accept(this);
-
-        print(";\n");
-        return null;
-    }
-
-    /**
-     * Visit an if statement node
-     *
-     * @param node the if statement node
-     * @return result of the visit
-     */
-    public Object visit(IfStmt node) {
-        newLine(node.getLineNum());
-        print("if (");
-
-        // visit predicate
-        node.getPredExpr().accept(this);
-        print(") {\n");
-
-        // indent for the body, visit
-        indentLevel++;
-        node.getThenStmt().accept(this);
-        indentLevel--;
-
-        newLine(node.getLineNum());
-        print("}\n");
-
-        // handle/visit else statement if present
-        if (node.getElseStmt() != null) {
-            newLine(node.getLineNum());
-            print("else {\n");
-
-            // indent the body, visit
-            indentLevel++;
-            node.getElseStmt().accept(this);
-            indentLevel--;
-
-            newLine(node.getLineNum());
-            print("}\n\n");
-
-        } else { // no else, end
-            print("\n");
-        }
-        return null;
-    }
-
-    /**
-     * Visit a while statement node
-     *
-     * @param node the while statement node
-     * @return result of the visit
-     */
-    public Object visit(WhileStmt node) {
-        newLine(node.getLineNum());
-        print("while (");
-
-        // visit predicate
-        node.getPredExpr().accept(this);
-        print(") {\n");
-
-        // indent the body, visit
-        indentLevel++;
-        node.getBodyStmt().accept(this);
-        indentLevel--;
-
-        newLine(node.getLineNum());
-        print("}\n\n");
-        return null;
-    }
-
-    /**
-     * Visit a for statement node
-     *
-     * @param node the for statement node
-     * @return result of the visit
-     */
-    public Object visit(ForStmt node) {
-        newLine(node.getLineNum());
-        print("for(");
-
-        // Init
-        if(node.getInitExpr()!= null) {
-            node.getInitExpr().accept(this);
-        }
-        print("; ");
-
-        // Predicate
-        if(node.getPredExpr()!=null) {
-            node.getPredExpr().accept(this);
-        }
-        print("; ");
-
-        // Update
-        if(node.getUpdateExpr() != null) {
-            node.getUpdateExpr().accept(this);
-        }
-        print(") {\n");
-
-        // indent body, visit
-        indentLevel++;
-        node.getBodyStmt().accept(this);
-        indentLevel--;
-
-        newLine(node.getLineNum());
-        print("}\n\n");
-        return null;
-    }
-
-    /**
-     * Visit a break statement node
-     *
-     * @param node the break statement node
-     * @return result of the visit
-     */
-    public Object visit(BreakStmt node) {
-        newLine(node.getLineNum());
-        print("break;\n");
-        return null;
-    }
-
-    /**
-     * Visit a return statement node
-     *
-     * @param node the return statement node
-     * @return result of the visit
-     */
-    public Object visit(ReturnStmt node) {
-        newLine(node.getLineNum());
-        print("return");
-
-        // handle/visit expr
-        if (node.getExpr() != null) {
-            print(" ");
-            node.getExpr().accept(this);
-        }
-        print(";\n");
-        return null;
-    }
-
-    /**
-     * Visit a dispatch expression node
-     *
-     * @param node the dispatch expression node
-     * @return the type of the expression
-     */
-    public Object visit(DispatchExpr node) {
-        // handle/visit reference
-        if(node.getRefExpr() != null){
-            node.getRefExpr().accept(this);
-            print(".");
-        }
-
-        print(node.getMethodName() + "(");
-        // handle/visit parameters
-        if(node.getActualList() != null){
-            node.getActualList().accept(this);
-        }
-
-        print(")");
-        return null;
-    }
-
-    /**
-     * Visit a list node of expressions
-     *
-     * @param node the expression list node
-     * @return the result of the visit
-     */
-    public Object visit(ExprList node) {
-        boolean comma = false;
-
-        for (ASTNode expr : node) {
-            // Place a comma if appropriate
-            if(comma){
-                print(", ");
-            } else { comma = true;}
-
-            // visit the expr
-            expr.accept(this);
-        }
-        return null;
-    }
-
-    /**
-     * Visit a new expression node
-     *
-     * @param node the new expression node
-     * @return the type of the expression
-     */
-    public Object visit(NewExpr node) {
-        print("new " + node.getType() + "()");
-        return null;
-    }
-
-    /**
-     * Visit an instanceof expression node
-     *
-     * @param node the instanceof expression node
-     * @return the type of the expression
-     */
-    public Object visit(InstanceofExpr node) {
-        node.getExpr().accept(this);
-        print(" instanceof " + node.getType());
-        return null;
-    }
-
-    /**
-     * Visit a cast expression node
-     *
-     * @param node the cast expression node
-     * @return the type of the expression
-     */
-    public Object visit(CastExpr node) {
-        print("cast(" + node.getType() + ", ");
-        node.getExpr().accept(this);
-        print(")");
-        return null;
-    }
-
-    /**
-     * Visit an assignment expression node
-     *
-     * @param node the assignment expression node
-     * @return the type of the expression
-     */
-    public Object visit(AssignExpr node) {
-        // handle/visit reference
-        if(node.getRefName() != null){
-            print(node.getRefName() + ".");
+     * Prints what comes before the children of a node
+     *
+     * @param node the node
+     * @return true, to print the children
+     */
+    @Override
+    protected boolean pre(ASTNode node) {
+        switch (node.getKind()) {
+            case CLASS:
+                Class_ aClass = (Class_) node;
+                // start class
+                newLine(aClass.getLineNum());
+                print("class " + aClass.getName());
+
+                // add extends clause and {
+                if(aClass.getParent() != null && !"Object".equals(aClass.getParent())){
+                    print(" extends " + aClass.getParent());
+                }
+                print(" {\n");
+
+                // add indent level for class body
+                indentLevel++;
+                break;
+            case FIELD:
+                // print field type and name
+                Field field = (Field) node;
+                newLine(field.getLineNum());
+                print(field.getType() + " " + field.getName());
+                break;
+            case METHOD:
+                // print method type and name
+                Method method = (Method) node;
+                print("\n");
+                newLine(method.getLineNum());
+                print(method.getReturnType() + " " + method.getName() + "(");
+                break;
+            case FORMAL:
+                Formal formal = (Formal) node;
+                print(formal.getType() + " " + formal.getName());
+                break;
+            case DECL_STMT:
+                newLine(node.getLineNum());
+                print("var " + ((DeclStmt) node).getName() + " = ");
+                break;
+            case EXPR_STMT:
+                newLine(node.getLineNum());
+                break;
+            case IF_STMT:
+                newLine(node.getLineNum());
+                print("if (");
+                break;
+            case WHILE_STMT:
+                newLine(node.getLineNum());
+                print("while (");
+                break;
+            case FOR_STMT:
+                newLine(node.getLineNum());
+                print("for(");
+                break;
+            case BREAK_STMT:
+                newLine(node.getLineNum());
+                print("break;\n");
+                break;
+            case RETURN_STMT:
+                newLine(node.getLineNum());
+                print("return");
+                break;
+            case NEW_EXPR:
+                print("new " + ((NewExpr) node).getType() + "()");
+                break;
+            case CAST_EXPR:
+                print("cast(" + ((CastExpr) node).getType() + ", ");
+                break;
+            case ASSIGN_EXPR:
+                // handle reference
+                AssignExpr assign = (AssignExpr) node;
+                if(assign.getRefName() != null){
+                    print(assign.getRefName() + ".");
+                }
+                print(assign.getName() + " = ");
+                break;
+            case UNARY_NEG_EXPR:
+                print("-");
+                break;
+            case UNARY_NOT_EXPR:
+                print("!");
+                break;
+            case UNARY_INCR_EXPR:
+                if(!((UnaryIncrExpr) node).isPostfix()){
+                    print("++");
+                }
+                break;
+            case UNARY_DECR_EXPR:
+                if(!((UnaryDecrExpr) node).isPostfix()){
+                    print("--");
+                }
+                break;
+            default:
+                break;
         }
-
-        print(node.getName() + " = ");
-        node.getExpr().accept(this);
-        return null;
-    }
-
-
-    /**
-     * Visit a variable expression node
-     *
-     * @param node the variable expression node
-     * @return the type of the expression
-     */
-    public Object visit(VarExpr node) {
-        // handle/visit reference
-        if(node.getRef() != null){
-            node.getRef().accept(this);
-            print(".");
+        return true;
+    }
+
+    /**
+     * Prints what comes before a child of a node
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     * @return true, to print the child
+     */
+    @Override
+    protected boolean beforeChild(ASTNode node, int index, ASTNode child) {
+        switch (node.getKind()) {
+            case FIELD:
+                // print initialization
+                if (child != null) {
+                    print(" = ");
+                }
+                break;
+            case IF_STMT:
+                // handle else statement if present
+                if (index == 2 && child != null) {
+                    newLine(node.getLineNum());
+                    print("else {\n");
+                    indentLevel++;
+                }
+                break;
+            case RETURN_STMT:
+                if (child != null) {
+                    print(" ");
+                }
+                break;
+            case DISPATCH_EXPR:
+                if (index == 1) {
+                    print(((DispatchExpr) node).getMethodName() + "(");
+                }
+                break;
+            case EXPR_LIST:
+                // Place a comma if appropriate
+                if (index > 0) {
+                    print(", ");
+                }
+                break;
+            default:
+                break;
         }
-
-        print(node.getName());
-        return null;
-    }
-
-    /**
-     * visits and prints binaryExpr inorder
-     * @param e the binary expression to visit inorder
-     */
-    private void visitInorder(BinaryExpr e){
-        e.getLeftExpr().accept(this);
-        print(" " + e.getOpName() + " ");
-        e.getRightExpr().accept(this);
-    }
-
-    /**
-     * Visit a binary comparison equals expression node
-     *
-     * @param node the binary comparison equals expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompEqExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison not equals expression node
-     *
-     * @param node the binary comparison not equals expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompNeExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison less than expression node
-     *
-     * @param node the binary comparison less than expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompLtExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison less than or equal to expression node
-     *
-     * @param node the binary comparison less than or equal to expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompLeqExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison greater than expression node
-     *
-     * @param node the binary comparison greater than expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompGtExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison greater than or equal to expression node
-     *
-     * @param node the binary comparison greater to or equal to expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompGeqExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic plus expression node
-     *
-     * @param node the binary arithmetic plus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithPlusExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic minus expression node
-     *
-     * @param node the binary arithmetic minus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithMinusExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic times expression node
-     *
-     * @param node the binary arithmetic times expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithTimesExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic divide expression node
-     *
-     * @param node the binary arithmetic divide expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithDivideExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic modulus expression node
-     *
-     * @param node the binary arithmetic modulus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithModulusExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary logical AND expression node
-     *
-     * @param node the binary logical AND expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryLogicAndExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a binary logical OR expression node
-     *
-     * @param node the binary logical OR expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryLogicOrExpr node) {
-        visitInorder(node);
-        return null;
-    }
-
-    /**
-     * Visit a unary negation expression node
-     *
-     * @param node the unary negation expression node
-     * @return the type of the expression
-     */
-    public Object visit(UnaryNegExpr node) {
-        print("-");
-        node.getExpr().accept(this);
-        return null;
-    }
-
-    /**
-     * Visit a unary NOT expression node
-     *
-     * @param node the unary NOT expression node
-     * @return the type of the expression
-     */
-    public Object visit(UnaryNotExpr node) {
-        print("!");
-        node.getExpr().accept(this);
-        return null;
-    }
-
-    /**
-     * Visit a unary increment expression node
-     *
-     * @param node the unary increment expression node
-     * @return the type of the expression
-     */
-    public Object visit(UnaryIncrExpr node) {
-        if(node.isPostfix()){
-            node.getExpr().accept(this);
-            print("++");
-        } else {
-            print("++");
-            node.getExpr().accept(this);
+        return true;
+    }
+
+    /**
+     * Prints what comes after a child of a node
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     */
+    @Override
+    protected void afterChild(ASTNode node, int index, ASTNode child) {
+        switch (node.getKind()) {
+            case METHOD:
+                if (index == 0) {
+                    print(") {\n");
+                    // indent for method body
+                    indentLevel++;
+                }
+                break;
+            case IF_STMT:
+                if (index == 0) {
+                    print(") {\n");
+                    // indent for the body
+                    indentLevel++;
+                }
+                else if (index == 1) {
+                    indentLevel--;
+                    newLine(node.getLineNum());
+                    print("}\n");
+                }
+                else if (child != null) {
+                    indentLevel--;
+                    newLine(node.getLineNum());
+                    print("}\n\n");
+                }
+                else { // no else, end
+                    print("\n");
+                }
+                break;
+            case WHILE_STMT:
+                if (index == 0) {
+                    print(") {\n");
+                    // indent the body
+                    indentLevel++;
+                }
+                break;
+            case FOR_STMT:
+                // Init, Predicate and Update, any of which may be missing
+                if (index < 2) {
+                    print("; ");
+                }
+                else if (index == 2) {
+                    print(") {\n");
+                    // indent body
+                    indentLevel++;
+                }
+                break;
+            case DISPATCH_EXPR:
+            case VAR_EXPR:
+                // handle reference
+                if (index == 0 && child != null) {
+                    print(".");
+                }
+                break;
+            default:
+                if (index == 0 && node instanceof BinaryExpr) {
+                    print(" " + ((BinaryExpr) node).getOpName() + " ");
+                }
+                break;
         }
-        return null;
     }
 
     /**
-     * Visit a unary decrement expression node
-     *
-     * @param node the unary decrement expression node
-     * @return the type of the expression
-     */
-    public Object visit(UnaryDecrExpr node) {
-        if(node.isPostfix()){
-            node.getExpr().accept(this);
-            print("--");
-        } else {
-            print("--");
-            node.getExpr().accept(this);
+     * Prints what comes after the children of a node
+     *
+     * @param node the node
+     */
+    @Override
+    protected void post(ASTNode node) {
+        switch (node.getKind()) {
+            case CLASS:
+                indentLevel--;
+
+                // end class
+                newLine(node.getLineNum());
+                print("}\n\n");
+                break;
+            case FIELD:
+            case DECL_STMT:
+            case EXPR_STMT:
+            case RETURN_STMT:
+                print(";\n");
+                break;
+            case METHOD:
+                indentLevel--;
+                newLine(node.getLineNum());
+                print("}\n");
+                break;
+            case WHILE_STMT:
+            case FOR_STMT:
+                indentLevel--;
+                newLine(node.getLineNum());
+                print("}\n\n");
+                break;
+            case DISPATCH_EXPR:
+            case CAST_EXPR:
+                print(")");
+                break;
+            case INSTANCEOF_EXPR:
+                print(" instanceof " + ((InstanceofExpr) node).getType());
+                break;
+            case VAR_EXPR:
+                print(((VarExpr) node).getName());
+                break;
+            case UNARY_INCR_EXPR:
+                if(((UnaryIncrExpr) node).isPostfix()){
+                    print("++");
+                }
+                break;
+            case UNARY_DECR_EXPR:
+                if(((UnaryDecrExpr) node).isPostfix()){
+                    print("--");
+                }
+                break;
+            case CONST_INT_EXPR:
+            case CONST_BOOLEAN_EXPR:
+            case CONST_STRING_EXPR:
+                print(((ConstExpr) node).getConstant());
+                break;
+            default:
+                break;
         }
-        return null;
-    }
-
-    /**
-     * Visit an int constant expression node
-     *
-     * @param node the int constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstIntExpr node) {
-        print(node.getConstant());
-        return null;
-    }
-
-    /**
-     * Visit a boolean constant expression node
-     *
-     * @param node the boolean constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstBooleanExpr node) {
-        print(node.getConstant());
-        return null;
-    }
-
-    /**
-     * Visit a string constant expression node
-     *
-     * @param node the string constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstStringExpr node) {
-        print(node.getConstant());
-        return null;
     }
 }
@@ -9,6 +9,7 @@ package proj10EnglishHillisonQian.bantam.printer;
 
 import javafx.util.Pair;
 import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.parser.ASTCache;
 import proj10EnglishHillisonQian.bantam.parser.Parser;
 import proj10EnglishHillisonQian.bantam.util.CompilationException;
 import proj10EnglishHillisonQian.bantam.util.Error;
@@ -25,10 +26,19 @@ public class PrettyPrinter {
     private List<Error> errors;
     private boolean returnOutput;
     private LinkedList<Pair<Integer, String>> commentQueue;
+    private ASTCache cache;
 
     public PrettyPrinter(){
     }
 
+    /**
+     * Sets the cache the ASTs of unchanged sources are loaded from.
+     * @param cache the cache, or null to always parse
+     */
+    public void setCache(ASTCache cache){
+        this.cache = cache;
+    }
+
     public void setReturnOutput(boolean returnOutput){
         this.returnOutput = returnOutput;
     }
@@ -50,7 +60,7 @@ public class PrettyPrinter {
             visitor.setCommentQueue(commentQueue);
         }
         // start printing
-        visitor.visit(program);
+        visitor.traverse(program);
 
         // get the output if necessary
         if(returnOutput){
@@ -65,13 +75,31 @@ public class PrettyPrinter {
      * @return the output string or null depending on returnOutput field
      */
     public String prettyPrint(String filename){
+        return prettyPrint(filename, null);
+    }
+
+    /**
+     * Generates a program from the given text, such as the unsaved contents
+     * of an editor, and calls prettyPrint for the program.
+     * @param filename the name to use for the text in error messages
+     * @param source the text to pretty print, or null to read the file
+     * @return the output string or null depending on returnOutput field
+     */
+    public String prettyPrint(String filename, CharSequence source){
         ErrorHandler errorHandler = new ErrorHandler();
         Parser parser = new Parser(errorHandler);
+        parser.setCache(cache);
         Program program;
         try {
-            // generate the program from the file and get the comments
-            program = parser.parse(filename);
-            this.commentQueue = parser.getCommentQueue();
+            // generate the program from the text and get the comments
+            LinkedList<Pair<Integer, String>> comments = new LinkedList<>();
+            parser.setCommentSink((line, text) -> comments.offer(new Pair<>(line, text)));
+            if(source == null){
+                program = parser.parse(filename);
+            } else {
+                program = parser.parse(filename, source);
+            }
+            this.commentQueue = comments;
 
             // pretty print the program
             return prettyPrint(program);
@@ -0,0 +1,130 @@
+/*
+ * File: CheckedClass.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.semant;
+
+import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.util.Error;
+import proj10EnglishHillisonQian.bantam.util.ErrorCollector;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What type checking one class found: its errors, the types it gave the
+ * expressions and declarations of the class, and the names of the classes
+ * it looked up along the way. A class whose text has not changed since it
+ * was checked, and none of whose looked up classes has changed, would be
+ * checked the same again, so its CheckedClass can be used instead.
+ *
+ * The errors are kept with line numbers relative to the first line of the
+ * class, so the result still holds when lines are added or removed above the
+ * class. The types are kept in the order a Traversal reaches the nodes,
+ * which is the same for any class with the same text.
+ */
+class CheckedClass
+{
+    /** the names of the classes looked up while checking the class */
+    private final Set<String> referencedClasses;
+    /** the errors found, with line numbers relative to the class */
+    private final List<Error> errors;
+    /** the type of each Expr and DeclStmt node of the class, in order */
+    private final String[] types;
+    /** the upCheck of each InstanceofExpr and upCast of each CastExpr, in order */
+    private final BitSet flags;
+
+    /**
+     * keeps the results of checking a class
+     * @param aClass the class, once it has been type checked
+     * @param referencedClasses the names of the classes looked up checking it
+     * @param errors the errors found checking it
+     */
+    CheckedClass(Class_ aClass, Set<String> referencedClasses, ErrorCollector errors) {
+        this.referencedClasses = referencedClasses;
+        this.errors = new ArrayList<>();
+        for (Error error : errors.getErrorList()) {
+            this.errors.add(new Error(error.getKind(), error.getFilename(),
+                    error.getLineNum() - aClass.getLineNum(), error.getMessage()));
+        }
+        List<String> typeList = new ArrayList<>();
+        BitSet flagSet = new BitSet();
+        new Traversal() {
+            private int flagCount;
+
+            @Override
+            protected boolean pre(ASTNode node) {
+                if (node instanceof Expr) {
+                    typeList.add(((Expr) node).getExprType());
+                }
+                else if (node instanceof DeclStmt) {
+                    typeList.add(((DeclStmt) node).getType());
+                }
+                if (node instanceof InstanceofExpr) {
+                    flagSet.set(flagCount++, ((InstanceofExpr) node).getUpCheck());
+                }
+                else if (node instanceof CastExpr) {
+                    flagSet.set(flagCount++, ((CastExpr) node).getUpCast());
+                }
+                return true;
+            }
+        }.traverse(aClass);
+        this.types = typeList.toArray(new String[0]);
+        this.flags = flagSet;
+    }
+
+    /**
+     * @param changed the names of the classes that changed since the class
+     *                was checked
+     * @return whether the class looked up any of them
+     */
+    boolean referencesAny(Set<String> changed) {
+        for (String name : referencedClasses) {
+            if (changed.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives a class with the same text as the checked one the types the
+     * checked one was given, and registers the errors found checking it
+     * as they would be found checking this one.
+     * @param aClass the class, which has the same text as the checked one
+     * @param errorHandler where the errors are registered
+     */
+    void applyTo(Class_ aClass, ErrorHandler errorHandler) {
+        for (Error error : errors) {
+            errorHandler.register(error.getKind(), error.getFilename(),
+                    error.getLineNum() + aClass.getLineNum(), error.getMessage());
+        }
+        new Traversal() {
+            private int typeCount;
+            private int flagCount;
+
+            @Override
+            protected boolean pre(ASTNode node) {
+                if (node instanceof Expr) {
+                    ((Expr) node).setExprType(types[typeCount++]);
+                }
+                else if (node instanceof DeclStmt) {
+                    ((DeclStmt) node).setType(types[typeCount++]);
+                }
+                if (node instanceof InstanceofExpr) {
+                    ((InstanceofExpr) node).setUpCheck(flags.get(flagCount++));
+                }
+                else if (node instanceof CastExpr) {
+                    ((CastExpr) node).setUpCast(flags.get(flagCount++));
+                }
+                return true;
+            }
+        }.traverse(aClass);
+    }
+}
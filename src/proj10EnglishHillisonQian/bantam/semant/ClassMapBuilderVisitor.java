@@ -8,21 +8,40 @@
 package proj10EnglishHillisonQian.bantam.semant;
 
 import proj10EnglishHillisonQian.bantam.ast.Class_;
+import proj10EnglishHillisonQian.bantam.ast.Field;
+import proj10EnglishHillisonQian.bantam.ast.Method;
 import proj10EnglishHillisonQian.bantam.util.ClassTreeNode;
+import proj10EnglishHillisonQian.bantam.util.ErrorCollector;
 import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
 import proj10EnglishHillisonQian.bantam.util.Error;
+import proj10EnglishHillisonQian.bantam.util.SymbolTable;
 import proj10EnglishHillisonQian.bantam.visitor.Visitor;
 
+import java.util.HashMap;
 import java.util.Hashtable;
 
 /**
  * This class visits the AST to find all class declarations and add an entry
- * for each of those classes in the classMap.
+ * for each of those classes in the classMap. In the same visit it adds the
+ * fields and methods of each class to the symbol tables of its ClassTreeNode
+ * and looks for the main method of the Main class, so the classes are only
+ * walked once before type checking. The bodies of the methods are not visited.
  */
 public class ClassMapBuilderVisitor extends Visitor {
     private Hashtable<String, ClassTreeNode> classMap;
     private ErrorHandler errorHandler;
 
+    /** the errors in the members of each class, kept apart from the class errors */
+    private HashMap<ClassTreeNode, ErrorCollector> memberErrors = new HashMap<>();
+    /** the class whose members are being added, or null if they are not added */
+    private ClassTreeNode currentClass;
+    /** where the errors in the members of the currentClass are registered */
+    private ErrorHandler currentErrors;
+    /** whether the class being visited is named Main */
+    private boolean inMainClass;
+    /** whether a main method has been found in a class named Main */
+    private boolean hasMain;
+
     ClassMapBuilderVisitor(Hashtable<String, ClassTreeNode> classMap, ErrorHandler
             errorHandler) {
         this.classMap = classMap;
@@ -30,11 +49,13 @@ public class ClassMapBuilderVisitor extends Visitor {
     }
 
     /**
-     * adds a new ClassTreeNode for this node to the classMap.
+     * adds a new ClassTreeNode for this node to the classMap and adds the
+     * members of the class to its tables.
      * @param node the class node
      * @return null
      */
     public Object visit(Class_ node) {
+        ClassTreeNode treeNode = null;
         if(classMap.containsKey(node.getName()))
             errorHandler.register(Error.Kind.SEMANT_ERROR,node.getFilename(),
                     node.getLineNum(),"Two classes declared with the same name; " +
@@ -45,9 +66,122 @@ public class ClassMapBuilderVisitor extends Visitor {
                             "'void', 'int', 'boolean', or 'null'; " +
                             node.getName());
         else {
-            ClassTreeNode treeNode = new ClassTreeNode(node, false, true, classMap);
+            treeNode = new ClassTreeNode(node, false, true, classMap);
             classMap.put(node.getName(), treeNode);
         }
+
+        inMainClass = node.getName().equals("Main");
+        if (treeNode != null) {
+            ErrorCollector errors = new ErrorCollector();
+            memberErrors.put(treeNode, errors);
+            addMembers(treeNode, errors);
+        }
+        else if (inMainClass) {
+            // a second Main class can still hold the main method
+            node.getMemberList().accept(this);
+        }
+        inMainClass = false;
+        return null;
+    }
+
+    /**
+     * enters the class scope of the treeNode's field and method tables and
+     * adds "this" and the class's own members to them
+     * @param treeNode The ClassTreeNode whose SymbolTables are being filled
+     * @param errors the ErrorHandler to register errors in the members with
+     */
+    void addMembers(ClassTreeNode treeNode, ErrorHandler errors) {
+        treeNode.getVarSymbolTable().enterScope();
+        treeNode.getVarSymbolTable().add("this", treeNode.getName());
+        treeNode.getMethodSymbolTable().enterScope();
+        currentClass = treeNode;
+        currentErrors = errors;
+        treeNode.getASTNode().getMemberList().accept(this);
+        currentClass = null;
+        currentErrors = null;
+    }
+
+    /**
+     * adds the field to the variable SymbolTable of the current class
+     * @param node the field node
+     * @return null
+     */
+    public Object visit(Field node) {
+        if (currentClass == null) {
+            return null;
+        }
+        SymbolTable fields = currentClass.getVarSymbolTable();
+        if (SemanticAnalyzer.reservedIdentifiers.contains(node.getName())) {
+            currentErrors.register(Error.Kind.SEMANT_ERROR,
+                    currentClass.getASTNode().getFilename(),
+                    node.getLineNum(), "Class " + currentClass.getName() + " "
+                            + "has a field " + "named: " + node.getName()
+                            + ", which is illegal.");
+        }
+        else if (fields.peek(node.getName()) != null) {
+            currentErrors.register(Error.Kind.SEMANT_ERROR,
+                    currentClass.getASTNode().getFilename(), node.getLineNum(),
+                    "Class " + currentClass.getName()
+                            + " has two fields of the same name: "
+                            + node.getName() + ".");
+        }
+        else {
+            fields.add(node.getName(), node.getType());
+        }
         return null;
     }
+
+    /**
+     * notes whether the method is the main method of the Main class and adds
+     * it to the method SymbolTable of the current class
+     * @param node the method node
+     * @return null
+     */
+    public Object visit(Method node) {
+        // a main method has return type void and no parameters
+        if (inMainClass && "main".equals(node.getName())
+                && "void".equals(node.getReturnType())
+                && node.getFormalList().getSize() == 0) {
+            hasMain = true;
+        }
+        if (currentClass == null) {
+            return null;
+        }
+        SymbolTable methods = currentClass.getMethodSymbolTable();
+        if (SemanticAnalyzer.reservedIdentifiers.contains(node.getName())) {
+            currentErrors.register(Error.Kind.SEMANT_ERROR,
+                    currentClass.getASTNode().getFilename(),
+                    node.getLineNum(), "Class " + currentClass.getName() + " "
+                            + "has a method named: "
+                            + node.getName() + ", which is illegal.");
+        }
+        else if (methods.peek(node.getName()) != null) {
+            currentErrors.register(Error.Kind.SEMANT_ERROR,
+                    currentClass.getASTNode().getFilename(), node.getLineNum(),
+                    "Class " + currentClass.getName()
+                            + " has two methods of the same name: "
+                            + node.getName() + ".");
+        }
+        else {
+            methods.add(node.getName(), node);
+        }
+        return null;
+    }
+
+    /**
+     * @param treeNode a class added to the classMap by this visitor
+     * @return the errors in the members of the class, or null if the class
+     * was not added by this visitor
+     */
+    ErrorCollector getMemberErrors(ClassTreeNode treeNode) {
+        return memberErrors.get(treeNode);
+    }
+
+    /**
+     * @return whether one of the classes visited is a Main class with a main
+     * method that has void return type and no parameters
+     */
+    boolean hasMain() {
+        return hasMain;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * File: Prelude.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.semant;
+
+import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.util.ClassTreeNode;
+import proj10EnglishHillisonQian.bantam.util.ErrorCollector;
+import proj10EnglishHillisonQian.bantam.util.SymbolTable;
+
+import java.util.Hashtable;
+
+/**
+ * The built-in classes Object, String, TextIO and Sys. Their ASTs and their
+ * field and method tables are built once, the first time they are needed,
+ * and then frozen and shared by every analysis, including analyses going on
+ * at the same time on other threads.
+ *
+ * A ClassTreeNode holds the classMap of its analysis and the subclasses
+ * of its class, so each analysis gets ClassTreeNodes of its own for the
+ * built-in classes from addTo. They share the Prelude's ASTs and tables,
+ * and the user-defined classes of the analysis are added under them.
+ */
+final class Prelude
+{
+    /** the names of the built-in classes, in the order they are added */
+    private static final String[] NAMES = {"Object", "String", "TextIO", "Sys"};
+
+    /** the prelude, built when the class is first used */
+    private static final Prelude PRELUDE = new Prelude();
+
+    /** the AST nodes of the classes, in the order of NAMES */
+    private final Class_[] astNodes = new Class_[NAMES.length];
+    /** whether each class can be extended */
+    private final boolean[] extendable = new boolean[NAMES.length];
+    /** the frozen variable symbol table of each class */
+    private final SymbolTable[] varSymbolTables = new SymbolTable[NAMES.length];
+    /** the frozen method symbol table of each class */
+    private final SymbolTable[] methodSymbolTables = new SymbolTable[NAMES.length];
+
+    /**
+     * builds the classes and their tables and freezes the tables
+     */
+    private Prelude() {
+        Hashtable<String, ClassTreeNode> classMap = new Hashtable<>();
+        buildClasses(classMap);
+        ClassMapBuilderVisitor builder = new ClassMapBuilderVisitor(classMap,
+                new ErrorCollector());
+        for (int i = 0; i < NAMES.length; i++) {
+            ClassTreeNode treeNode = classMap.get(NAMES[i]);
+            if (treeNode.getASTNode().getParent() != null) {
+                treeNode.setParent(classMap.get(treeNode.getASTNode().getParent()));
+            }
+            // the built-in classes have no errors in their members
+            builder.addMembers(treeNode, new ErrorCollector());
+            treeNode.getVarSymbolTable().add("super", (treeNode.getParent() == null ?
+                    "" : treeNode.getParent().getName()));
+            treeNode.getVarSymbolTable().freeze();
+            treeNode.getMethodSymbolTable().freeze();
+            astNodes[i] = treeNode.getASTNode();
+            extendable[i] = treeNode.isExtendable();
+            varSymbolTables[i] = treeNode.getVarSymbolTable();
+            methodSymbolTables[i] = treeNode.getMethodSymbolTable();
+        }
+    }
+
+    /**
+     * Adds ClassTreeNodes for the built-in classes to the classMap of an
+     * analysis. They are not yet linked to their parents; that is done
+     * along with the user-defined classes.
+     * @param classMap the classMap of the analysis
+     * @return the ClassTreeNode of Object, the root of the class hierarchy tree
+     */
+    static ClassTreeNode addTo(Hashtable<String, ClassTreeNode> classMap) {
+        for (int i = 0; i < NAMES.length; i++) {
+            classMap.put(NAMES[i], new ClassTreeNode(PRELUDE.astNodes[i], /*built-in?*/true,
+                    PRELUDE.extendable[i], classMap, PRELUDE.varSymbolTables[i],
+                    PRELUDE.methodSymbolTables[i]));
+        }
+        return classMap.get("Object");
+    }
+
+    /**
+     * Creates the AST nodes of the built-in classes and adds ClassTreeNodes
+     * for them to the classMap.
+     * @param classMap the map to add the classes to
+     */
+    private static void buildClasses(Hashtable<String, ClassTreeNode> classMap) {
+        // create AST node for the Object class
+        Class_ astNode = new Class_(-1, "<built-in class>", "Object", null,
+                (MemberList) (new MemberList(-1)).addElement(new Method(-1, "Object",
+                        "clone", new FormalList(-1),
+                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
+                                new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "boolean", "equals",
+                        (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "Object", "o")),
+                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
+                                new ConstBooleanExpr(-1, "false"))))).addElement(new Method(-1, "String", "toString",
+                        new FormalList(-1),
+                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
+        // create a class tree node for object, save in variable root
+        ClassTreeNode root = new ClassTreeNode(astNode, /*built-in?*/true, /*extendable?*/true,
+                classMap);
+        // add object class tree node to the mapping
+        classMap.put("Object", root);
+
+        // note: String, TextIO, and Sys all have fields that are not shown below.
+        // Because these classes cannot be extended and fields are protected, these
+        // fields cannot be accessed by other classes, so these fields do not have to be
+        // included in the AST.
+
+        // create AST node for String
+        astNode = new Class_(-1, "<built-in class>", "String", "Object",
+                (MemberList) (new MemberList(-1)).addElement(new Field(-1, "int",
+                        "length", /*0 by default*/null))
+                /* note: str is the character sequence -- no applicable type for a
+               character sequence so it is just made an int.  it's OK to
+               do this since this field is only accessed (directly) within
+               the runtime system */.addElement(new Method(-1, "int", "length",
+                                new FormalList(-1),
+                                (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "boolean", "equals", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "Object", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstBooleanExpr(-1, "false"))))).addElement(new Method(-1, "String", "toString", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "String", "substring", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "int", "beginIndex")).addElement(new Formal(-1, "int", "endIndex")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "String", "concat", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
+        // create class tree node for String, add it to the mapping
+        classMap.put("String", new ClassTreeNode(astNode, /*built-in?*/true,
+                /*extendable?*/false, classMap));
+
+        // create AST node for TextIO
+        astNode = new Class_(-1, "<built-in class>", "TextIO", "Object",
+                (MemberList) (new MemberList(-1)).addElement(new Field(-1, "int",
+                        "readFD", /*0 by default*/null)).addElement(new Field(-1, "int"
+                        , "writeFD", new ConstIntExpr(-1, "1"))).addElement(new Method(-1, "void", "readStdin", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "readFile", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "readFile")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeStdout", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeStderr", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeFile", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "writeFile")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "String", "getString", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "int", "getInt", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "TextIO", "putString", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "TextIO", "putInt", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "int", "n")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
+        // create class tree node for TextIO, add it to the mapping
+        classMap.put("TextIO", new ClassTreeNode(astNode, /*built-in?*/true,
+                /*extendable?*/false, classMap));
+
+        // create AST node for Sys
+        astNode = new Class_(-1, "<built-in class>", "Sys", "Object",
+                (MemberList) (new MemberList(-1)).addElement(new Method(-1, "void",
+                        "exit",
+                        (FormalList) (new FormalList(-1)).addElement(new Formal(-1,
+                                "int", "status")),
+                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
+                                null))))
+                /* MC: time() and random() requires modifying SPIM to add a time system
+                 call
+               (note: random() does not need its own system call although it uses the time
+               system call).  We have a version of SPIM with this system call available,
+               otherwise, just comment out. (For x86 and jvm there are no issues.)
+               */.addElement(new Method(-1, "int", "time", new FormalList(-1),
+                                (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "int", "random", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))));
+        // create class tree node for Sys, add it to the mapping
+        classMap.put("Sys", new ClassTreeNode(astNode, /*built-in?*/true, /*extendable
+        ?*/false, classMap));
+    }
+}
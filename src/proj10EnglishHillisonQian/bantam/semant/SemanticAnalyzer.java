@@ -36,11 +36,25 @@
 package proj10EnglishHillisonQian.bantam.semant;
 
 import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.lexer.TokenBuffer;
+import proj10EnglishHillisonQian.bantam.parser.ASTCache;
 import proj10EnglishHillisonQian.bantam.parser.Parser;
 import proj10EnglishHillisonQian.bantam.util.*;
 import proj10EnglishHillisonQian.bantam.util.Error;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The <tt>SemanticAnalyzer</tt> class performs semantic analysis.
@@ -85,6 +99,65 @@ public class SemanticAnalyzer
      */
     private ErrorHandler errorHandler;
 
+    /**
+     * Where the ASTs of unchanged sources are loaded from, or null
+     */
+    private ASTCache cache;
+
+    /**
+     * Whether the classes are type checked in parallel
+     */
+    private boolean parallel;
+
+    /**
+     * Whether the results of checking each class are kept and used again
+     */
+    private boolean incremental;
+
+    /**
+     * The text of the source being analyzed, or null if it is not known
+     */
+    private CharSequence source;
+
+    /**
+     * The results of the last analysis of each class, keyed by the name of
+     * its file and its text
+     */
+    private Map<String, CheckedClass> checkedClasses = new HashMap<>();
+
+    /**
+     * The signature of each class in the last analysis, by class name
+     */
+    private Map<String, String> signatures = new HashMap<>();
+
+    /**
+     * Adds the user-defined classes to the classMap and their members to
+     * their tables as they are parsed, and looks for the main method
+     */
+    private ClassMapBuilderVisitor classMapBuilder;
+
+    /**
+     * The errors found by the classMapBuilder, held back until the whole
+     * program has been parsed
+     */
+    private ErrorCollector classMapErrors;
+
+    /**
+     * Marks the end of the classes passed from the parser thread
+     */
+    private static final Class_ END_OF_CLASSES = new Class_(-1, null, null, null, null);
+
+    /**
+     * The daemon threads the sources are parsed on while they are analyzed,
+     * shared by all analyzers. A thread is only started when none is idle.
+     */
+    private static final ExecutorService PARSER_THREADS = Executors.newCachedThreadPool(
+            task -> {
+                Thread thread = new Thread(task, "parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     /**
      * Maximum number of inherited and non-inherited fields that can be defined for any
      * one class
@@ -102,18 +175,136 @@ public class SemanticAnalyzer
 
     public ErrorHandler getErrorHandler() { return errorHandler; }
 
+    /**
+     * Sets the cache the ASTs of unchanged sources are loaded from.
+     * @param cache the cache, or null to always parse
+     */
+    public void setCache(ASTCache cache) { this.cache = cache; }
+
+    /**
+     * Turns parallel type checking on or off. When it is on, each class of
+     * the program is type checked by a TypeCheckerVisitor of its own on the
+     * common ForkJoinPool. The class tables are only read once they are
+     * built and each visitor keeps its local scopes to itself, so the
+     * classes do not share anything they change. The errors are the same as
+     * when checking one class after the other.
+     * @param parallel true to type check the classes in parallel
+     */
+    public void setParallel(boolean parallel) { this.parallel = parallel; }
+
+    /**
+     * Turns incremental checking on or off. When it is on, the results of
+     * type checking each class are kept, along with the classes it looked
+     * up: its superclass, the types of its fields and methods, the classes
+     * it calls methods of and so on. The next analysis of the same source,
+     * such as the next check of an editor's text, type checks only the
+     * classes whose text has changed and the classes that looked up a class
+     * whose signature (its superclass, fields or method headers) or whose
+     * superclass's signature has changed. The rest get their old types and
+     * errors. Only analyses given a file or text are incremental, since the
+     * text of each class is needed to tell whether it changed.
+     * @param incremental true to check incrementally
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        checkedClasses.clear();
+        signatures.clear();
+    }
+
     /**
      * Build and then Analyze the AST for a given file.
      * @param filepath the file to check
      * @return the result of the check (root or null)
      */
     public ClassTreeNode analyze(String filepath){
+        return analyzeWhileParsing(filepath, null, null);
+    }
+
+    /**
+     * Build and then Analyze the AST for the given text, such as the unsaved
+     * contents of an editor.
+     * @param filename the name to use for the text in error messages
+     * @param text the source to check
+     * @return the result of the check (root or null)
+     */
+    public ClassTreeNode analyze(String filename, CharSequence text){
+        return analyzeWhileParsing(filename, text, null);
+    }
+
+    /**
+     * Build and then Analyze the AST for tokens that have already been
+     * scanned, such as those an IncrementalLexer keeps for an editor.
+     * @param filename the name to use for the source in error messages
+     * @param tokens the tokens of the source to check
+     * @return the result of the check (root or null)
+     */
+    public ClassTreeNode analyze(String filename, TokenBuffer tokens){
+        return analyzeWhileParsing(filename, tokens.getText(), tokens);
+    }
+
+    /**
+     * Parses the source on a parser thread and adds each class to the classMap
+     * and builds its member tables on this thread as soon as it is parsed.
+     * Only the checks that need the whole class hierarchy are left for after
+     * the parse. The errors are the same as parsing first and then calling
+     * analyze(Program).
+     * @param filename the name of the source
+     * @param text the text of the source, or null to read the file
+     * @param tokens the tokens of the text, or null to scan it
+     * @return the result of the check (root or null)
+     */
+    private ClassTreeNode analyzeWhileParsing(String filename, CharSequence text,
+                                              TokenBuffer tokens){
         errorHandler.clear();
+        if (incremental && text == null) {
+            // parse the same text the classes are compared by
+            try {
+                text = new String(Files.readAllBytes(Paths.get(filename)),
+                        Charset.defaultCharset());
+            } catch (IOException e) {
+                // the Scanner reports the missing file
+            }
+        }
+        CharSequence sourceText = text;
+        source = text;
+        BlockingQueue<Class_> parsedClasses = new LinkedBlockingQueue<>();
         Parser parser = new Parser(errorHandler);
+        parser.setCache(cache);
+        parser.setClassSink(parsedClasses::add);
+        Future<Program> parse = PARSER_THREADS.submit(() -> {
+            try {
+                if (tokens != null) {
+                    return parser.parse(filename, tokens);
+                }
+                return sourceText == null ? parser.parse(filename)
+                        : parser.parse(filename, sourceText);
+            } finally {
+                parsedClasses.add(END_OF_CLASSES);
+            }
+        });
+
+        startClassMap();
         try {
-            Program program = parser.parse(filepath);
-            return analyze(program);
-        } catch(CompilationException e) {
+            Class_ aClass = parsedClasses.take();
+            while (aClass != END_OF_CLASSES) {
+                addClass(aClass);
+                aClass = parsedClasses.take();
+            }
+            return finishAnalysis(parse.get());
+        } catch (ExecutionException e) {
+            // the parse failed; its errors are in the errorHandler
+            if (e.getCause() instanceof CompilationException) {
+                return null;
+            }
+            if (e.getCause() instanceof java.lang.Error) {
+                throw (java.lang.Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        } catch (InterruptedException e) {
+            parse.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (CompilationException e) {
             return null;
         }
     }
@@ -137,21 +328,59 @@ public class SemanticAnalyzer
      * See the lab manual for more details on these steps.
      */
     public ClassTreeNode analyze(Program program) {
-        this.program = program;
-        this.classMap.clear();
-
+        source = null;
         // step 1:  add built-in classes to classMap
+        startClassMap();
+
+        //step 2:  add user-defined classes to classMap
+        for (ASTNode aClass : program.getClassList()) {
+            addClass((Class_) aClass);
+        }
+        return finishAnalysis(program);
+    }
+
+    /**
+     * clears the classMap and adds the built-in classes to it, to get ready
+     * for the user-defined classes to be added
+     */
+    private void startClassMap() {
+        this.classMap.clear();
         addBuiltins();
+        classMapErrors = new ErrorCollector();
+        classMapBuilder = new ClassMapBuilderVisitor(classMap, classMapErrors);
+    }
+
+    /**
+     * adds a user-defined class to the classMap and fills in its member
+     * tables. Their errors are held back until finishAnalysis, so that they
+     * are registered in the same order as if all the classes had been added
+     * at once.
+     * @param aClass the AST node of the class
+     */
+    private void addClass(Class_ aClass) {
+        classMapBuilder.visit(aClass);
+    }
 
-        //step 2:  add user-defined classes to classMap and build the
-        // inheritance tree of ClassTreeNodes
+    /**
+     * does the rest of the analysis once all the classes of the program have
+     * been added to the classMap
+     * @param program root of the AST
+     * @return root of the class hierarchy tree
+     */
+    private ClassTreeNode finishAnalysis(Program program) {
+        this.program = program;
+        classMapErrors.registerWith(errorHandler);
+
+        //step 2 continued: build the inheritance tree of ClassTreeNodes
         buildInheritanceTree();
+        numberClassTree();
 
         //step 3: build the field and method symbol tables for each ClassTreeNode
         //        Just add the class's fields & methods and not the
         //        inherited ones since the SymbolTable's lookup method checks
         //        the superclasses for you.
         buildFieldAndMethodTables();
+        resolveMemberTables();
 
         //step 4: check whether there is a Main class with a main method.
         checkForMainClassWithMainMethod();
@@ -186,109 +415,307 @@ public class SemanticAnalyzer
      * Any errors are registered with the ErrorHandler.
      */
     private void doTypeChecking() {
+        if (incremental && source != null) {
+            doTypeCheckingIncrementally();
+            return;
+        }
+        if (parallel) {
+            doTypeCheckingInParallel();
+            return;
+        }
         TypeCheckerVisitor visitor = new TypeCheckerVisitor(errorHandler, root);
-        visitor.visit(program);
+        visitor.traverse(program);
     }
 
     /**
-     * checks that the program contains a Main class with a
-     * main method that has void return type and no parameters.
-     * If not, an error is registered with the ErrorHandler.
+     * Type checks the classes at the same time, each with its own
+     * TypeCheckerVisitor and ErrorCollector. The errors of the classes are
+     * then registered in the order of the classes, which is the order they
+     * are found in when checking one class after the other. If checking a
+     * class fails with an exception, the errors up to it are registered and
+     * the exception is thrown, as it would be by doTypeChecking.
      */
-    private void checkForMainClassWithMainMethod() {
-        // ... for you to implement ...
-        MainMethodFinder finder = new MainMethodFinder();
-        boolean hasMain = finder.hasMain(program);
+    private void doTypeCheckingInParallel() {
+        ClassList classes = program.getClassList();
+        int classCount = classes.getSize();
+        ErrorCollector[] errors = new ErrorCollector[classCount];
+        Throwable[] failures = new Throwable[classCount];
+        ForkJoinPool.commonPool().invoke(
+                new CheckClassesTask(classes, errors, failures, 0, classCount));
+
+        for (int i = 0; i < classCount; i++) {
+            errors[i].registerWith(errorHandler);
+            if (failures[i] instanceof RuntimeException) {
+                throw (RuntimeException) failures[i];
+            }
+            if (failures[i] != null) {
+                throw (java.lang.Error) failures[i];
+            }
+        }
+    }
 
-        if(!hasMain){
-            errorHandler.register(Error.Kind.PARSE_ERROR,"Main class not found");
+    /**
+     * Type checks the classes whose results from the last analysis might
+     * no longer hold, and uses the old results for the rest. The errors are
+     * registered in the order of the classes, as in doTypeCheckingInParallel.
+     * The results of this analysis are then kept for the next one.
+     */
+    private void doTypeCheckingIncrementally() {
+        Set<String> changed = findChangedClasses();
+        ClassList classes = program.getClassList();
+        int classCount = classes.getSize();
+        Map<String, CheckedClass> nowChecked = new HashMap<>();
+        ErrorCollector[] errors = new ErrorCollector[classCount];
+        Throwable failure = null;
+        int i = 0;
+        for (; i < classCount && failure == null; i++) {
+            Class_ aClass = (Class_) classes.get(i);
+            String key = classKey(aClass);
+            CheckedClass checked = key == null ? null : checkedClasses.get(key);
+            errors[i] = new ErrorCollector();
+            if (checked != null && !checked.referencesAny(changed)) {
+                checked.applyTo(aClass, errors[i]);
+            }
+            else {
+                Set<String> referenced = new HashSet<>();
+                TypeCheckerVisitor visitor = new TypeCheckerVisitor(errors[i], root);
+                visitor.recordReferencesIn(referenced);
+                try {
+                    visitor.traverse(aClass);
+                    checked = key == null ? null
+                            : new CheckedClass(aClass, referenced, errors[i]);
+                } catch (RuntimeException | java.lang.Error e) {
+                    failure = e;
+                    checked = null;
+                }
+            }
+            if (checked != null) {
+                nowChecked.put(key, checked);
+            }
+        }
+        checkedClasses = nowChecked;
+
+        for (int j = 0; j < i; j++) {
+            errors[j].registerWith(errorHandler);
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw (java.lang.Error) failure;
         }
     }
 
-    private void buildFieldAndMethodTables() {
-        /* NOTE:  To be elegant, this method should have
-                  been implemented as a visitor,
-                  such as part of the ClassMapBuilderVisitor.
-                  As part of Project 10, you are welcome to
-                  fix it.
-        */
+    /**
+     * @param aClass a class of the source
+     * @return the key of the class in checkedClasses, or null if its text
+     * is not known
+     */
+    private String classKey(Class_ aClass) {
+        int start = aClass.getStartOffset();
+        int end = aClass.getEndOffset();
+        if (start < 0 || end > source.length() || start > end) {
+            return null;
+        }
+        return aClass.getFilename() + '\0' + source.subSequence(start, end);
+    }
+
+    /**
+     * Works out the signature of every class and compares it to the one
+     * from the last analysis, keeping the new ones for the next analysis.
+     * A class whose results cannot be used again is one that looks up a
+     * class whose signature changed or whose superclass, or its superclass
+     * and so on, has a changed signature.
+     * @return the names of the classes such that looking one of them up
+     * could now give a different result
+     */
+    private Set<String> findChangedClasses() {
+        Map<String, String> nowSignatures = new HashMap<>();
+        Set<String> changed = new HashSet<>();
+        for (ClassTreeNode treeNode : classMap.values()) {
+            String signature = signature(treeNode);
+            nowSignatures.put(treeNode.getName(), signature);
+            if (!signature.equals(signatures.get(treeNode.getName()))) {
+                changed.add(treeNode.getName());
+            }
+        }
+        // classes that are gone changed too
+        for (String name : signatures.keySet()) {
+            if (!nowSignatures.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        signatures = nowSignatures;
+
+        // a class whose superclass changed behaves differently too
+        Set<String> chainChanged = new HashSet<>(changed);
         for (ClassTreeNode treeNode : classMap.values()) {
-            SymbolTable fields = treeNode.getVarSymbolTable();
-            SymbolTable methods = treeNode.getMethodSymbolTable();
-            fields.enterScope();
-            fields.add("this", treeNode.getName());
-            fields.add("super", (treeNode.getParent() == null ? "" :
-                    treeNode.getParent().getName()));
-            methods.enterScope();
-            MemberList list = treeNode.getASTNode().getMemberList();
-            for (ASTNode member : list) {
-                if (member instanceof Field) {
-                    addMemberToFieldTable(treeNode, member);
+            for (ClassTreeNode ancestor = treeNode.getParent(); ancestor != null;
+                 ancestor = ancestor.getParent()) {
+                if (changed.contains(ancestor.getName())) {
+                    chainChanged.add(treeNode.getName());
+                    break;
                 }
-                else { // if(member instanceof Method)
-                    addMemberToMethodTable(treeNode, member);
+            }
+        }
+        return chainChanged;
+    }
+
+    /**
+     * @param treeNode a class
+     * @return the parts of the class that other classes can see: its file,
+     * name and superclass and the headers of its members, in order
+     */
+    private static String signature(ClassTreeNode treeNode) {
+        Class_ astNode = treeNode.getASTNode();
+        StringBuilder signature = new StringBuilder();
+        signature.append(astNode.getFilename()).append(' ')
+                 .append(treeNode.getName()).append(' ')
+                 .append(treeNode.getParent() == null ? "" : treeNode.getParent().getName());
+        for (ASTNode member : astNode.getMemberList()) {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                signature.append(";field ").append(field.getType())
+                         .append(' ').append(field.getName());
+            }
+            else {
+                Method method = (Method) member;
+                signature.append(";method ").append(method.getReturnType())
+                         .append(' ').append(method.getName());
+                for (ASTNode formal : method.getFormalList()) {
+                    signature.append(' ').append(((Formal) formal).getType());
                 }
             }
         }
+        return signature.toString();
     }
 
     /**
-     * adds the ASTNode member to the treeNode's variable SymbolTable
-     * @param treeNode The ClassTreeNode whose variable SymbolTable is being added to
-     * @param member the method ASTNode that is being added to the table
+     * A task that type checks the classes in a range, splitting the range
+     * into smaller tasks while it is large.
      */
-    private void addMemberToFieldTable(ClassTreeNode treeNode, ASTNode member) {
-        SymbolTable fields = treeNode.getVarSymbolTable();
-        if (SemanticAnalyzer.reservedIdentifiers.contains(((Field) member).getName())) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
-                    treeNode.getASTNode().getFilename(),
-                    member.getLineNum(), "Class " + treeNode.getName() + " "
-                            + "has a field " + "named: " + ((Field) member).getName()
-                            + ", which is illegal.");
+    private class CheckClassesTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** the number of classes a task checks without splitting */
+        private static final int CLASSES_PER_TASK = 16;
+
+        private final ClassList classes;
+        private final ErrorCollector[] errors;
+        private final Throwable[] failures;
+        private final int from;
+        private final int to;
+
+        /**
+         * @param classes the classes of the program
+         * @param errors where the errors of each class go
+         * @param failures where the exception thrown checking each class goes
+         * @param from the index of the first class to check
+         * @param to the index after the last class to check
+         */
+        private CheckClassesTask(ClassList classes, ErrorCollector[] errors,
+                                 Throwable[] failures, int from, int to) {
+            this.classes = classes;
+            this.errors = errors;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
         }
-        else if (fields.peek(((Field) member).getName()) != null) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
-                    treeNode.getASTNode().getFilename(), member.getLineNum(),
-                    "Class " + treeNode.getName()
-                            + " has two fields of the same name: "
-                            + ((Field) member).getName() + ".");
+
+        @Override
+        protected void compute() {
+            if (to - from > CLASSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CheckClassesTask(classes, errors, failures, from, middle),
+                        new CheckClassesTask(classes, errors, failures, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                errors[i] = new ErrorCollector();
+                try {
+                    new TypeCheckerVisitor(errors[i], root).traverse(classes.get(i));
+                } catch (RuntimeException | java.lang.Error e) {
+                    failures[i] = e;
+                }
+            }
         }
-        else {
-            fields.add(((Field) member).getName(), ((Field) member).getType());
+    }
+
+    /**
+     * checks that the program contains a Main class with a
+     * main method that has void return type and no parameters.
+     * If not, an error is registered with the ErrorHandler.
+     */
+    private void checkForMainClassWithMainMethod() {
+        // the classMapBuilder looked for it as the classes were added
+        if(!classMapBuilder.hasMain()){
+            errorHandler.register(Error.Kind.PARSE_ERROR,"Main class not found");
         }
     }
 
     /**
-     * adds the ASTNode member to the methods SymbolTable
-     * @param treeNode The ClassTreeNode whose SymbolTable is being added to
-     * @param member the method ASTNode that is being added to the table
+     * Finishes the field and method tables of every class. The members of
+     * the user-defined classes were added when the classes were, so only
+     * their errors are registered and "super" is added now that the parents
+     * are known.
      */
-    private void addMemberToMethodTable(ClassTreeNode treeNode, ASTNode member) {
-        SymbolTable methods = treeNode.getMethodSymbolTable();
-        if (SemanticAnalyzer.reservedIdentifiers.contains(((Method) member).getName())) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
-                    treeNode.getASTNode().getFilename(),
-                    member.getLineNum(), "Class " + treeNode.getName() + " "
-                            + "has a method named: "
-                            + ((Method) member).getName() + ", which is illegal.");
+    private void buildFieldAndMethodTables() {
+        for (ClassTreeNode treeNode : classMap.values()) {
+            if (treeNode.isBuiltIn()) {
+                continue; // the Prelude finished their tables already
+            }
+            ErrorCollector errors = classMapBuilder.getMemberErrors(treeNode);
+            if (errors == null) {
+                classMapBuilder.addMembers(treeNode, errorHandler);
+            }
+            else {
+                errors.registerWith(errorHandler);
+            }
+            treeNode.getVarSymbolTable().add("super", (treeNode.getParent() == null ?
+                    "" : treeNode.getParent().getName()));
+        }
+    }
+
+    /**
+     * Numbers the classes in the inheritance tree so that subtype tests
+     * are two comparisons. A class whose superclass is final is left
+     * without a parent, so each class without one starts a tree of its own.
+     */
+    private void numberClassTree() {
+        int next = 0;
+        for (ClassTreeNode treeNode : classMap.values()) {
+            if (treeNode.getParent() == null) {
+                next = treeNode.numberSubtree(next);
+            }
         }
-        else if (methods.peek(((Method) member).getName()) != null) {
-            errorHandler.register(Error.Kind.SEMANT_ERROR,
-                    treeNode.getASTNode().getFilename(), member.getLineNum(),
-                    "Class " + treeNode.getName()
-                            + " has two methods of the same name: "
-                            + ((Method) member).getName() + ".");
+    }
+
+    /**
+     * Flattens the field and method tables of every class into resolved
+     * tables on its ClassTreeNode, with the methods and fields laid out in
+     * slots. A class's members are resolved after its parent's, going down
+     * the inheritance tree with a stack.
+     */
+    private void resolveMemberTables() {
+        Deque<ClassTreeNode> pending = new ArrayDeque<>();
+        for (ClassTreeNode treeNode : classMap.values()) {
+            if (treeNode.getParent() == null) {
+                pending.push(treeNode);
+            }
         }
-        else {
-            methods.add(((Method) member).getName(), member);
+        while (!pending.isEmpty()) {
+            ClassTreeNode treeNode = pending.pop();
+            treeNode.resolveMembers();
+            for (Iterator<ClassTreeNode> children = treeNode.getChildrenList();
+                 children.hasNext(); ) {
+                pending.push(children.next());
+            }
         }
     }
 
     private void buildInheritanceTree() {
-        // step 1: add all user-defined classes to classMap
-        ClassMapBuilderVisitor visitor = new ClassMapBuilderVisitor(classMap,
-                errorHandler);
-        visitor.visit(program);
+        // step 1, adding all user-defined classes to classMap, was done by addClass
 
         // step 2: fix parent pointers in all ClassTreeNodes in classMap
         for (ClassTreeNode treeNode : classMap.values()) {
@@ -347,74 +774,14 @@ public class SemanticAnalyzer
     }
 
     /**
-     * Add built-in classes to the classMap and create ASTNodes for each of them.
-     * There is no need to add these new ASTNodes to the AST generated by the parser.
+     * Add built-in classes to the classMap. Their ASTNodes and symbol tables
+     * come from the Prelude, which builds them once and shares them with
+     * every analysis; only their ClassTreeNodes are new.
+     * There is no need to add these ASTNodes to the AST generated by the parser.
      * You can access them, if necessary, through the classMap.
      */
     private void addBuiltins() {
-        // create AST node for the Object class
-        Class_ astNode = new Class_(-1, "<built-in class>", "Object", null,
-                (MemberList) (new MemberList(-1)).addElement(new Method(-1, "Object",
-                        "clone", new FormalList(-1),
-                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
-                                new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "boolean", "equals",
-                        (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "Object", "o")),
-                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
-                                new ConstBooleanExpr(-1, "false"))))).addElement(new Method(-1, "String", "toString",
-                        new FormalList(-1),
-                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
-        // create a class tree node for object, save in variable root
-        root = new ClassTreeNode(astNode, /*built-in?*/true, /*extendable?*/true,
-                classMap);
-        // add object class tree node to the mapping
-        classMap.put("Object", root);
-
-        // note: String, TextIO, and Sys all have fields that are not shown below.
-        // Because these classes cannot be extended and fields are protected, these
-        // fields cannot be accessed by other classes, so these fields do not have to be
-        // included in the AST.
-
-        // create AST node for String
-        astNode = new Class_(-1, "<built-in class>", "String", "Object",
-                (MemberList) (new MemberList(-1)).addElement(new Field(-1, "int",
-                        "length", /*0 by default*/null))
-                /* note: str is the character sequence -- no applicable type for a
-               character sequence so it is just made an int.  it's OK to
-               do this since this field is only accessed (directly) within
-               the runtime system */.addElement(new Method(-1, "int", "length",
-                                new FormalList(-1),
-                                (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "boolean", "equals", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "Object", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstBooleanExpr(-1, "false"))))).addElement(new Method(-1, "String", "toString", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "String", "substring", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "int", "beginIndex")).addElement(new Formal(-1, "int", "endIndex")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "String", "concat", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
-        // create class tree node for String, add it to the mapping
-        classMap.put("String", new ClassTreeNode(astNode, /*built-in?*/true,
-                /*extendable?*/false, classMap));
-
-        // create AST node for TextIO
-        astNode = new Class_(-1, "<built-in class>", "TextIO", "Object",
-                (MemberList) (new MemberList(-1)).addElement(new Field(-1, "int",
-                        "readFD", /*0 by default*/null)).addElement(new Field(-1, "int"
-                        , "writeFD", new ConstIntExpr(-1, "1"))).addElement(new Method(-1, "void", "readStdin", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "readFile", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "readFile")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeStdout", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeStderr", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "void", "writeFile", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "writeFile")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, null)))).addElement(new Method(-1, "String", "getString", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "int", "getInt", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "TextIO", "putString", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "String", "str")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))).addElement(new Method(-1, "TextIO", "putInt", (FormalList) (new FormalList(-1)).addElement(new Formal(-1, "int", "n")), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new VarExpr(-1, null, "null"))))));
-        // create class tree node for TextIO, add it to the mapping
-        classMap.put("TextIO", new ClassTreeNode(astNode, /*built-in?*/true,
-                /*extendable?*/false, classMap));
-
-        // create AST node for Sys
-        astNode = new Class_(-1, "<built-in class>", "Sys", "Object",
-                (MemberList) (new MemberList(-1)).addElement(new Method(-1, "void",
-                        "exit",
-                        (FormalList) (new FormalList(-1)).addElement(new Formal(-1,
-                                "int", "status")),
-                        (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1,
-                                null))))
-                /* MC: time() and random() requires modifying SPIM to add a time system
-                 call
-               (note: random() does not need its own system call although it uses the time
-               system call).  We have a version of SPIM with this system call available,
-               otherwise, just comment out. (For x86 and jvm there are no issues.)
-               */.addElement(new Method(-1, "int", "time", new FormalList(-1),
-                                (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))).addElement(new Method(-1, "int", "random", new FormalList(-1), (StmtList) (new StmtList(-1)).addElement(new ReturnStmt(-1, new ConstIntExpr(-1, "0"))))));
-        // create class tree node for Sys, add it to the mapping
-        classMap.put("Sys", new ClassTreeNode(astNode, /*built-in?*/true, /*extendable
-        ?*/false, classMap));
+        root = Prelude.addTo(classMap);
     }
 
 
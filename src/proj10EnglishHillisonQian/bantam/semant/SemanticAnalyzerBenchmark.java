@@ -0,0 +1,143 @@
+/*
+ * File: SemanticAnalyzerBenchmark.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.semant;
+
+import proj10EnglishHillisonQian.bantam.ast.Program;
+import proj10EnglishHillisonQian.bantam.parser.Parser;
+import proj10EnglishHillisonQian.bantam.util.CompilationException;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+import proj10EnglishHillisonQian.bantam.util.SymbolPool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how long the semantic phase takes on files. Each file is parsed
+ * once, and then its AST is analyzed a number of times, first to warm up the
+ * JIT and then timed, once type checking the classes one after the other and
+ * once in parallel. A program with semantic errors is timed all the same,
+ * up to the point where the analyzer gives up.
+ *
+ * Then an edit of the last class of the file is timed, as when a check is
+ * done in the editor after changing one method: the text with and without
+ * the edit is parsed and analyzed in turn, once analyzing the whole program
+ * each time and once incrementally.
+ */
+public class SemanticAnalyzerBenchmark
+{
+    /** number of untimed runs done before measuring */
+    private static final int WARMUP_RUNS = 5;
+    /** number of timed runs */
+    private static final int TIMED_RUNS = 10;
+
+    /**
+     * analyzes the program once
+     * @param program the AST of the program
+     * @param parallel whether the classes are type checked in parallel
+     * @return whether the program has no semantic errors
+     */
+    private static boolean analyze(Program program, boolean parallel) {
+        try {
+            SemanticAnalyzer analyzer = new SemanticAnalyzer(new ErrorHandler());
+            analyzer.setParallel(parallel);
+            analyzer.analyze(program);
+            return true;
+        } catch (CompilationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * times the analysis of the program and prints the results
+     * @param label what is being timed
+     * @param program the AST of the program
+     * @param parallel whether the classes are type checked in parallel
+     */
+    private static void time(String label, Program program, boolean parallel) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            analyze(program, parallel);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        boolean checked = true;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            checked = analyze(program, parallel);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("  %-10s %-7s best %8.2f ms  mean %8.2f ms%n",
+                label, checked ? "checked" : "errors", best / 1e6, total / 1e6 / TIMED_RUNS);
+    }
+
+    /**
+     * times parsing and analyzing the text with and without an edit in turn
+     * and prints the results
+     * @param label what is being timed
+     * @param file the name of the file
+     * @param text the text of the file
+     * @param incremental whether the analyzer checks incrementally
+     */
+    private static void timeEdits(String label, String file, String text,
+                                  boolean incremental) {
+        // a space in the last class, so it changes but not its signature
+        int last = text.lastIndexOf('}');
+        String[] texts = {text, last < 0 ? text + " "
+                : text.substring(0, last) + " " + text.substring(last)};
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(new ErrorHandler());
+        analyzer.setIncremental(incremental);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            analyzer.analyze(file, texts[i % 2]);
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        boolean checked = true;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            checked = analyzer.analyze(file, texts[(WARMUP_RUNS + i) % 2]) != null;
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("  %-10s %-7s best %8.2f ms  mean %8.2f ms%n",
+                label, checked ? "checked" : "errors", best / 1e6, total / 1e6 / TIMED_RUNS);
+    }
+
+    /**
+     * Analyzes each of the given files and prints how long it took.
+     * @param args the files to analyze
+     */
+    public static void main(String[] args) {
+        String[] files;
+        if (args.length < 1) {
+            files = new String[]{"ParserTestEnglishHillisonQian.btm"};
+        } else {
+            files = args;
+        }
+
+        System.out.println("parallelism " + ForkJoinPool.commonPool().getParallelism());
+        for (String file : files) {
+            System.out.println(file);
+            try {
+                Program program = new Parser(new ErrorHandler()).parse(file);
+                time("sequential", program, false);
+                time("parallel", program, true);
+                String text = new String(Files.readAllBytes(Paths.get(file)));
+                timeEdits("full edit", file, text, false);
+                timeEdits("incr edit", file, text, true);
+            } catch (CompilationException e) {
+                System.out.println("File " + file + " did not parse");
+            } catch (IOException e) {
+                System.out.println("File " + file + " could not be read");
+            }
+        }
+        System.out.println("symbols " + SymbolPool.size());
+    }
+}
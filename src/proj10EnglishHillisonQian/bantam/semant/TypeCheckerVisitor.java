@@ -12,17 +12,22 @@ import proj10EnglishHillisonQian.bantam.util.ClassTreeNode;
 import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
 import proj10EnglishHillisonQian.bantam.util.Error;
 import proj10EnglishHillisonQian.bantam.util.SymbolTable;
-import proj10EnglishHillisonQian.bantam.visitor.Visitor;
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.Stack;
 
 /**
  * This visitor find the types of all expression nodes and sets the type field
  * of the nodes.  It reports an error for any type incompatibility.
+ * It walks the AST with a Traversal, so deeply nested expressions do not
+ * overflow the Java stack; the checks at each node are split among the
+ * pre, beforeChild, afterChild and post hooks.
  */
-public class TypeCheckerVisitor extends Visitor
+public class TypeCheckerVisitor extends Traversal
 {
     /** the current class being visited */
     private ClassTreeNode currentClass;
@@ -30,11 +35,17 @@ public class TypeCheckerVisitor extends Visitor
     private Method currentMethod;
     /** the ErrorHandler that records the errors */
     private final ErrorHandler errorHandler;
-    /** the current symbolTable to use for checking types */
+    /** the current symbolTable to use for checking types, holding the local
+     scopes of the current class on top of the class's own table */
     private SymbolTable currentSymbolTable;
     /** a stack of the current nested for or while statements
      for checking whether a break statement is inside a loop. */
     private final Stack<Stmt> currentNestedLoops;
+    /** the methods called by the dispatch expressions whose actual parameters
+     are being checked, with null for a method that does not exist */
+    private final Stack<Method> currentDispatchedMethods;
+    /** where the names of the classes looked up are recorded, or null */
+    private Set<String> referencedClasses;
 
     public TypeCheckerVisitor(ErrorHandler errorHandler, ClassTreeNode root) {
         this.errorHandler = errorHandler;
@@ -42,10 +53,44 @@ public class TypeCheckerVisitor extends Visitor
         this.currentMethod = null;
         this.currentSymbolTable = null;
         this.currentNestedLoops = new Stack<>();
+        this.currentDispatchedMethods = new Stack<>();
+    }
+
+    /**
+     * Records the name of every class this visitor looks up from now on,
+     * including the classes it checks, in the given set. A class's errors
+     * and types can only change when one of the classes it looked up does.
+     * @param referencedClasses the set to add the names to
+     */
+    void recordReferencesIn(Set<String> referencedClasses) {
+        this.referencedClasses = referencedClasses;
+    }
+
+    /**
+     * looks up a class, recording its name if references are being recorded
+     * @param className the name of the class
+     * @return the ClassTreeNode of the class, or null if there is none
+     */
+    private ClassTreeNode lookupClass(String className) {
+        if (referencedClasses != null) {
+            referencedClasses.add(className);
+        }
+        return currentClass.lookupClass(className);
+    }
+
+    /**
+     * looks up a variable, first in the local scopes and then among the
+     * fields of the current class and its ancestors
+     * @param name the name of the variable
+     * @return the type of the variable, or null if it is not declared
+     */
+    private Object lookupVar(String name) {
+        Object type = currentSymbolTable.lookup(name);
+        return type != null ? type : currentClass.lookupVar(name);
     }
 
     /*
-     * CLASS INVARIANT:  Every visit method for Expr nodes sets the type field
+     * CLASS INVARIANT:  The post hook for every Expr node sets the type field
      *                   of the Expr node being visited to a valid type.
      *                   If the node's calculated type is illegal,
      *                   an error was reported and the node's type
@@ -53,16 +98,45 @@ public class TypeCheckerVisitor extends Visitor
      *                   a generic type like "Object" so that the visits can continue.
      */
 
+    /**
+     * returns true if the type of the expression is the same type as or a
+     * subtype of the given type
+     */
+    private boolean isSubtype(Expr expr, String type) {
+        return isSubtype(expr.getExprType(), expr, type, null);
+    }
+
+    /**
+     * returns true if the given type is the same type as or a subtype of the
+     * type of the expression
+     */
+    private boolean isSubtype(String type, Expr expr) {
+        return isSubtype(type, null, expr.getExprType(), expr);
+    }
+
+    /**
+     * returns true if the type of the first expression is the same type as
+     * or a subtype of the type of the second one
+     */
+    private boolean isSubtype(Expr expr1, Expr expr2) {
+        return isSubtype(expr1.getExprType(), expr1, expr2.getExprType(), expr2);
+    }
+
     /**
      * returns true if the first type is the same type or a subtype of the second type
      * It assumes t1 and t2 are legal types or null.  For the purpose of this
      * method, we are assuming null is a subtype of all non-primitive types.
+     * The classes of types that are the types of expressions are looked up
+     * through the expressions, which keep them, and the test itself compares
+     * the numbers of the classes in the class tree.
      *
      * @param t1 the String name of the first type
+     * @param expr1 the expression whose type is t1, or null
      * @param t2 the String name of the second type
+     * @param expr2 the expression whose type is t2, or null
      * @return true if t1 is a subtype of t2
      */
-    private boolean isSubtype(String t1, String t2) {
+    private boolean isSubtype(String t1, Expr expr1, String t2, Expr expr2) {
         if (t1.equals("null") && !isPrimitiveType(t2)) {
             return true;
         }
@@ -72,17 +146,28 @@ public class TypeCheckerVisitor extends Visitor
         if (t1.equals("boolean") || t2.equals("boolean")) {
             return t2.equals(t1);
         }
-        // go up the inheritance tree of t1 to see if you
-        // encounter t2
-        ClassTreeNode t1Node = currentClass.lookupClass(t1);
-        ClassTreeNode t2Node = currentClass.lookupClass(t2);
-        while (t1Node != null) {
-            if (t1Node == t2Node) {
-                return true;
-            }
-            t1Node = t1Node.getParent();
+        // see whether t2 is t1 or one of its ancestors
+        ClassTreeNode t1Node = expr1 == null ? lookupClass(t1) : classOf(expr1);
+        if (t1Node == null) {
+            return false;
+        }
+        ClassTreeNode t2Node = expr2 == null ? lookupClass(t2) : classOf(expr2);
+        return t2Node != null && t1Node.isSubclassOf(t2Node);
+    }
+
+    /**
+     * looks up the class named by the type of an expression, once for
+     * each time the type is set
+     * @param expr the expression, which has been checked
+     * @return the ClassTreeNode of the class, or null if there is none
+     */
+    private ClassTreeNode classOf(Expr expr) {
+        ClassTreeNode exprClass = expr.getExprClass();
+        if (exprClass == null) {
+            exprClass = lookupClass(expr.getExprType());
+            expr.setExprClass(exprClass);
         }
-        return false;
+        return exprClass;
     }
 
     /**
@@ -96,7 +181,7 @@ public class TypeCheckerVisitor extends Visitor
      * returns true if the given type is a primitive type or a declared class
      */
     private boolean typeHasBeenDeclared(String type) {
-        return isPrimitiveType(type) || currentClass.lookupClass(type) != null;
+        return isPrimitiveType(type) || lookupClass(type) != null;
     }
 
     /**
@@ -116,60 +201,318 @@ public class TypeCheckerVisitor extends Visitor
      * @param expected the expected type of the expr
      */
     private void validateExpr(ASTNode node, Expr expr, String expected){
-        if (!isSubtype(expr.getExprType(), expected)) {
+        if (!isSubtype(expr, expected)) {
             registerError(node,"The type of the expr is " +
                    expr.getExprType() + " which is not a " + expected + ".");
         }
     }
 
     /**
-     * Visit a class node
+     * Does the work at a node that has to come before its children are
+     * checked
+     *
+     * @param node the node
+     * @return true, to check the children
+     */
+    @Override
+    protected boolean pre(ASTNode node) {
+        if (node instanceof Expr) {
+            // forget a class looked up by an earlier analysis of the tree
+            ((Expr) node).setExprClass(null);
+        }
+        switch (node.getKind()) {
+            case CLASS:
+                enterClass((Class_) node);
+                break;
+            case FIELD:
+                checkFieldType((Field) node);
+                break;
+            case METHOD:
+                enterMethod((Method) node);
+                break;
+            case DECL_STMT:
+                checkNotDeclared((DeclStmt) node);
+                break;
+            case FOR_STMT:
+            case BLOCK_STMT:
+                currentSymbolTable.enterScope();
+                break;
+            case INSTANCEOF_EXPR:
+                checkInstanceofType((InstanceofExpr) node);
+                break;
+            case ASSIGN_EXPR:
+                checkAssignRef((AssignExpr) node);
+                break;
+            case UNARY_INCR_EXPR:
+            case UNARY_DECR_EXPR:
+                checkIncrDecrOperand((UnaryExpr) node);
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Enters the scopes and loops that a child of a node is checked in
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     * @return whether to check the child
+     */
+    @Override
+    protected boolean beforeChild(ASTNode node, int index, ASTNode child) {
+        switch (node.getKind()) {
+            case IF_STMT:
+                // the then and else parts each get their own scope
+                if (index > 0 && child != null) {
+                    currentSymbolTable.enterScope();
+                }
+                return true;
+            case WHILE_STMT:
+                if (index == 1) {
+                    currentSymbolTable.enterScope();
+                    currentNestedLoops.push((Stmt) node);
+                }
+                return true;
+            case FOR_STMT:
+                if (index == 3) {
+                    currentNestedLoops.push((Stmt) node);
+                }
+                return true;
+            case DISPATCH_EXPR:
+                // the actual parameters are only checked if the method exists
+                return index == 0 || enterDispatch((DispatchExpr) node);
+            case VAR_EXPR:
+                // the reference of a variable is not checked
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks the parts of statements whose types are known once a child has
+     * been checked, and leaves the scopes entered for the child
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     */
+    @Override
+    protected void afterChild(ASTNode node, int index, ASTNode child) {
+        switch (node.getKind()) {
+            case IF_STMT:
+                if (index == 0) {
+                    checkIfPredicate((IfStmt) node);
+                }
+                else if (child != null) {
+                    currentSymbolTable.exitScope();
+                }
+                break;
+            case WHILE_STMT:
+                if (index == 0) {
+                    checkWhilePredicate((WhileStmt) node);
+                }
+                break;
+            case FOR_STMT:
+                if (child != null && index < 3) {
+                    checkForExpr((ForStmt) node, index);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Does the work at a node that has to wait until its children have been
+     * checked. For an expression this sets its type.
+     *
+     * @param node the node
+     */
+    @Override
+    protected void post(ASTNode node) {
+        switch (node.getKind()) {
+            case FIELD:
+                checkFieldInit((Field) node);
+                break;
+            case METHOD:
+                exitMethod((Method) node);
+                break;
+            case FORMAL:
+                addFormal((Formal) node);
+                break;
+            case DECL_STMT:
+                addDecl((DeclStmt) node);
+                break;
+            case WHILE_STMT:
+            case FOR_STMT:
+                currentNestedLoops.pop();
+                currentSymbolTable.exitScope();
+                break;
+            case BREAK_STMT:
+                // Check if valid position for break
+                if(currentNestedLoops.isEmpty()){
+                    registerError(node,"Break statement outside of loop");
+                }
+                break;
+            case BLOCK_STMT:
+                currentSymbolTable.exitScope();
+                break;
+            case RETURN_STMT:
+                checkReturn((ReturnStmt) node);
+                break;
+            case DISPATCH_EXPR:
+                checkDispatch((DispatchExpr) node);
+                break;
+            case NEW_EXPR:
+                checkNew((NewExpr) node);
+                break;
+            case INSTANCEOF_EXPR:
+                checkInstanceof((InstanceofExpr) node);
+                break;
+            case CAST_EXPR:
+                checkCast((CastExpr) node);
+                break;
+            case ASSIGN_EXPR:
+                checkAssign((AssignExpr) node);
+                break;
+            case VAR_EXPR:
+                checkVar((VarExpr) node);
+                break;
+            case BINARY_COMP_EQ_EXPR:
+                checkCompEq((BinaryCompEqExpr) node);
+                break;
+            case BINARY_COMP_NE_EXPR:
+                checkCompNe((BinaryCompNeExpr) node);
+                break;
+            case BINARY_COMP_LT_EXPR:
+                checkOperands((BinaryExpr) node, "int", "boolean",
+                        "The two values being compared by \"<\" are not both ints.");
+                break;
+            case BINARY_COMP_LEQ_EXPR:
+                checkOperands((BinaryExpr) node, "int", "boolean",
+                        "The  two values being compared by \"<=\" are not both ints.");
+                break;
+            case BINARY_COMP_GT_EXPR:
+                checkOperands((BinaryExpr) node, "int", "boolean",
+                        "The two values being compared by \">\" are not both ints.");
+                break;
+            case BINARY_COMP_GEQ_EXPR:
+                checkOperands((BinaryExpr) node, "int", "boolean",
+                        "The  two values being compared by \">=\" are not both ints.");
+                break;
+            case BINARY_ARITH_PLUS_EXPR:
+                checkOperands((BinaryExpr) node, "int", "int",
+                        "The two values being added are not both ints.");
+                break;
+            case BINARY_ARITH_MINUS_EXPR:
+                checkOperands((BinaryExpr) node, "int", "int",
+                        "The two values being subtraced are not both ints.");
+                break;
+            case BINARY_ARITH_TIMES_EXPR:
+                checkOperands((BinaryExpr) node, "int", "int",
+                        "The two values being multiplied are not both ints.");
+                break;
+            case BINARY_ARITH_DIVIDE_EXPR:
+                checkOperands((BinaryExpr) node, "int", "int",
+                        "The two values being divided are not both ints.");
+                break;
+            case BINARY_ARITH_MODULUS_EXPR:
+                checkOperands((BinaryExpr) node, "int", "int",
+                        "The two values being operated on with % are not both ints.");
+                break;
+            case BINARY_LOGIC_AND_EXPR:
+                checkOperands((BinaryExpr) node, "boolean", "boolean",
+                        "The two values being operated on with && are not both booleans.");
+                break;
+            case BINARY_LOGIC_OR_EXPR:
+                checkOperands((BinaryExpr) node, "boolean", "boolean",
+                        "The two values being operated on with || are not both booleans.");
+                break;
+            case UNARY_NEG_EXPR:
+                checkNeg((UnaryNegExpr) node);
+                break;
+            case UNARY_NOT_EXPR:
+                checkNot((UnaryNotExpr) node);
+                break;
+            case UNARY_INCR_EXPR:
+                checkIncrDecr((UnaryExpr) node, "incremented");
+                break;
+            case UNARY_DECR_EXPR:
+                checkIncrDecr((UnaryExpr) node, "decremented");
+                break;
+            case CONST_INT_EXPR:
+                ((Expr) node).setExprType("int");
+                break;
+            case CONST_BOOLEAN_EXPR:
+                ((Expr) node).setExprType("boolean");
+                break;
+            case CONST_STRING_EXPR:
+                ((Expr) node).setExprType("String");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Enters a class node
      *
      * @param node the class node
-     * @return result of the visit
      */
-    public Object visit(Class_ node) {
+    private void enterClass(Class_ node) {
         // set the currentClass to this class
-        currentClass = currentClass.lookupClass(node.getName());
-        currentSymbolTable = currentClass.getVarSymbolTable();
-        node.getMemberList().accept(this);
-        return null;
+        currentClass = Objects.requireNonNull(lookupClass(node.getName()),
+                () -> "class " + node.getName() + " is not in the class map");
+        // the local scopes go in a table of this visitor's own, so the
+        // class's tables are only read and can be shared with visitors
+        // checking other classes at the same time; names not found in it
+        // are looked up in the class's resolved table by lookupVar
+        currentSymbolTable = new SymbolTable();
+        currentSymbolTable.enterScope();
     }
 
     /**
-     * Visit a field node
+     * Checks the declared type of a field node
      *
      * @param node the field node
-     * @return result of the visit
      */
-    public Object visit(Field node) {
+    private void checkFieldType(Field node) {
         //The fields have already been added to the symbol table by the SemanticAnalyzer,
-        // so the only thing to check is the compatibility of the init expr's type with
-        //the field's type.
+        // so the only things to check are the type and the compatibility of the init
+        // expr's type with the field's type.
         if (!typeHasBeenDeclared(node.getType())) {
             registerError(node,"The declared type " + node.getType() +
                     " of the field " + node.getName() + " is undefined.");
         }
+    }
+
+    /**
+     * Checks the initializer of a field node, once it has been checked itself
+     *
+     * @param node the field node
+     */
+    private void checkFieldInit(Field node) {
         Expr initExpr = node.getInit();
         if (initExpr != null) {
-            initExpr.accept(this);
-            if (!isSubtype(initExpr.getExprType(), node.getType())) {
+            if (!isSubtype(initExpr, node.getType())) {
                 registerError(node,"The type of the initializer is "
                         + initExpr.getExprType() + " which is not compatible with the "
                         + node.getName() + " field's type " + node.getType());
             }
         }
         //Note: if there is no initial value, then leave it with its default Java value
-        return null;
     }
 
     /**
-     * Visit a method node
+     * Enters a method node
      *
      * @param node the method node
-     * @return result of the visit
      */
-    public Object visit(Method node) {
+    private void enterMethod(Method node) {
         // is the return type a legitimate type
         if (!typeHasBeenDeclared(node.getReturnType()) && !node.getReturnType().equals(
                 "void")) {
@@ -180,9 +523,14 @@ public class TypeCheckerVisitor extends Visitor
         //create a new scope for the method
         currentSymbolTable.enterScope();
         currentMethod = node;
-        node.getFormalList().accept(this);
-        node.getStmtList().accept(this);
+    }
 
+    /**
+     * Leaves a method node, once its formals and body have been checked
+     *
+     * @param node the method node
+     */
+    private void exitMethod(Method node) {
         //check that non-void methods end with a return stmt
         if(! node.getReturnType().equals("void")) {
             StmtList sList = node.getStmtList();
@@ -194,16 +542,14 @@ public class TypeCheckerVisitor extends Visitor
         }
         currentMethod = null;
         currentSymbolTable.exitScope();
-        return null;
     }
 
     /**
-     * Visit a formal node
+     * Checks a formal node and adds it to the method's scope
      *
      * @param node the formal node
-     * @return result of the visit
      */
-    public Object visit(Formal node) {
+    private void addFormal(Formal node) {
         if (!typeHasBeenDeclared(node.getType())) {
             registerError(node,"The declared type " + node.getType() +
                     " of the formal parameter " + node.getName() + " is undefined.");
@@ -216,90 +562,66 @@ public class TypeCheckerVisitor extends Visitor
                     " parameter.");
         }
         currentSymbolTable.add(node.getName(), node.getType());
-        return null;
     }
 
     /**
-     * Visit a declaration statement node
+     * Checks that the name of a declaration statement is not declared yet
      *
      * @param node the declaration statement node
-     * @return result of the visit
      */
-    public Object visit(DeclStmt node) {
-        // Visit and save name
-        Expr init = node.getInit();
-        String name = node.getName();
-
+    private void checkNotDeclared(DeclStmt node) {
         // Check if already declared
-        if(currentSymbolTable.lookup(name) != null){
-            registerError(node, "Symbol " + name + " already declared");
+        if(lookupVar(node.getName()) != null){
+            registerError(node, "Symbol " + node.getName() + " already declared");
         }
+    }
 
+    /**
+     * Declares the variable of a declaration statement, once its initializer
+     * has been checked
+     *
+     * @param node the declaration statement node
+     */
+    private void addDecl(DeclStmt node) {
         // Update node type and the symbol table
-        init.accept(this);
-        node.setType(init.getExprType());
+        node.setType(node.getInit().getExprType());
         currentSymbolTable.add(node.getName(), node.getType());
-        return null;
     }
 
     /**
-     * Visit an if statement node
+     * Checks the predicate of an if statement node
      *
      * @param node the if statement node
-     * @return result of the visit
      */
-    public Object visit(IfStmt node) {
-        node.getPredExpr().accept(this);
+    private void checkIfPredicate(IfStmt node) {
         String predExprType = node.getPredExpr().getExprType();
         if (!"boolean".equals(predExprType)) {
             registerError(node,"The type of the predicate is " +
                     (predExprType != null ? predExprType : "unknown") + ", not boolean.");
         }
-        currentSymbolTable.enterScope();
-        node.getThenStmt().accept(this);
-        currentSymbolTable.exitScope();
-        if (node.getElseStmt() != null) {
-            currentSymbolTable.enterScope();
-            node.getElseStmt().accept(this);
-            currentSymbolTable.exitScope();
-        }
-        return null;
     }
 
     /**
-     * Visit a while statement node
+     * Checks the predicate of a while statement node
      *
      * @param node the while statement node
-     * @return result of the visit
      */
-    public Object visit(WhileStmt node) {
-        node.getPredExpr().accept(this);
-        if (!isSubtype(node.getPredExpr().getExprType(), "boolean")) {
+    private void checkWhilePredicate(WhileStmt node) {
+        if (!isSubtype(node.getPredExpr(), "boolean")) {
             registerError(node,"The type of the predicate is " +
                     node.getPredExpr().getExprType() + " which is not boolean.");
         }
-        currentSymbolTable.enterScope();
-        currentNestedLoops.push(node);
-        node.getBodyStmt().accept(this);
-        currentNestedLoops.pop();
-        currentSymbolTable.exitScope();
-        return null;
     }
 
     /**
-     * Visit a for statement node
+     * Checks one of the expressions of a for statement node
      *
      * @param node the for statement node
-     * @return result of the visit
+     * @param index 0 for the initializer, 1 for the predicate, 2 for the update
      */
-    public Object visit(ForStmt node) {
-        // Enter loop scope
-        currentSymbolTable.enterScope();
-
-        // Visit each part of stmt and check for errors
-        // Initializer
-        if(node.getInitExpr()!= null) {
-            node.getInitExpr().accept(this);
+    private void checkForExpr(ForStmt node, int index) {
+        if (index == 0) {
+            // Initializer
             validateExpr(node, node.getInitExpr(), "int");
 
             // Init must be an assignment
@@ -308,16 +630,12 @@ public class TypeCheckerVisitor extends Visitor
                         "be an integer assignment");
             }
         }
-
-        // Predicate
-        if(node.getPredExpr()!=null) {
-            node.getPredExpr().accept(this);
+        else if (index == 1) {
+            // Predicate
             validateExpr(node, node.getPredExpr(), "boolean");
         }
-
-        // Update
-        if(node.getUpdateExpr() != null) {
-            node.getUpdateExpr().accept(this);
+        else {
+            // Update
             validateExpr(node, node.getUpdateExpr(), "int");
 
             // Init can be an assignment or an increment/decrement
@@ -329,54 +647,16 @@ public class TypeCheckerVisitor extends Visitor
                         "UnaryIncr/UnaryDecr Expression");
             }
         }
-
-        // Loop is valid, so push onto loop stack and visit the body
-        currentNestedLoops.push(node);
-        node.getBodyStmt().accept(this);
-
-        // Leave the loop and remove it from scope/stack
-        currentNestedLoops.pop();
-        currentSymbolTable.exitScope();
-        return null;
-    }
-
-    /**
-     * Visit a break statement node
-     *
-     * @param node the break statement node
-     * @return result of the visit
-     */
-    public Object visit(BreakStmt node) {
-        // Check if valid position for break
-        if(currentNestedLoops.isEmpty()){
-            registerError(node,"Break statement outside of loop");
-        }
-        return null;
-    }
-
-    /**
-     * Visit a block statement node
-     *
-     * @param node the block statement node
-     * @return result of the visit
-     */
-    public Object visit(BlockStmt node) {
-        currentSymbolTable.enterScope();
-        node.getStmtList().accept(this);
-        currentSymbolTable.exitScope();
-        return null;
     }
 
     /**
-     * Visit a return statement node
+     * Checks a return statement node
      *
      * @param node the return statement node
-     * @return result of the visit
      */
-    public Object visit(ReturnStmt node) {
+    private void checkReturn(ReturnStmt node) {
         if (node.getExpr() != null) {
-            node.getExpr().accept(this);
-            if (!isSubtype(node.getExpr().getExprType(), currentMethod.getReturnType())) {
+            if (!isSubtype(node.getExpr(), currentMethod.getReturnType())) {
                 registerError(node,"The type of the return expr is " +
                         node.getExpr().getExprType() + " which is not compatible with the " +
                         currentMethod.getName() + " method's return type "
@@ -387,53 +667,59 @@ public class TypeCheckerVisitor extends Visitor
             registerError(node, "The type of the method " + currentMethod.getName() +
                     " is not void and so return statements in it must return a value.");
         }
-        return null;
     }
 
     /**
-     * Visit a dispatch expression node
+     * Finds the method called by a dispatch expression node, once its
+     * reference has been checked, and checks that it exists
      *
      * @param node the dispatch expression node
-     * @return the type of the expression
+     * @return whether the method exists
      */
-    public Object visit(DispatchExpr node) {
+    private boolean enterDispatch(DispatchExpr node) {
         ClassTreeNode destinedClass = currentClass;
 
         // switch classtreenode if the method belongs to another class
         if(node.getRefExpr() != null){
-            node.getRefExpr().accept(this);
-            String className = ((VarExpr)node.getRefExpr()).getExprType();
-
-            destinedClass = currentClass.lookupClass(className);
-        }
-
-        // if the method exists in the method symbol table, check the validity of the parameters
-        if(destinedClass.getMethodSymbolTable().lookup(node.getMethodName()) != null){
-            // get the targeted method
-            Method associatedMethod = (Method) destinedClass.getMethodSymbolTable()
-                    .lookup(node.getMethodName());
-
-            // check if the method usage is correct
-            // save method types list
-            List<String> typesList = (List<String>) node.getActualList().accept(this);
-            // set the return type of the dispatch expression
-            node.setExprType(associatedMethod.getReturnType());
-            // Error if params don't match args
-            if(!getFormalTypesList(associatedMethod).equals(typesList)){
-                registerError(node,"Invalid parameter type passed into " +
-                        "the Dispatch Expression");
-            }
-
+            destinedClass = classOf(node.getRefExpr());
         }
-        // set the type of expression to Object for the purpose of continue parsing
-        else{
+
+        Method associatedMethod = destinedClass.lookupMethod(node.getMethodName());
+        currentDispatchedMethods.push(associatedMethod);
+        if (associatedMethod == null) {
+            // set the type of expression to Object for the purpose of continue parsing
             node.setExprType("Object");
             registerError(node,"Method of name "+node.getMethodName()+" doesn't exist in " +
                     "the inheritance tree");
+            return false;
         }
+        return true;
+    }
 
-
-        return null;
+    /**
+     * Checks the actual parameters of a dispatch expression node against the
+     * formals of the method it calls
+     *
+     * @param node the dispatch expression node
+     */
+    private void checkDispatch(DispatchExpr node) {
+        // get the targeted method; if there is none, the error is registered already
+        Method associatedMethod = currentDispatchedMethods.pop();
+        if (associatedMethod == null) {
+            return;
+        }
+        // save the types of the actual parameters
+        List<String> typesList = new ArrayList<>();
+        for (ASTNode expr : node.getActualList()) {
+            typesList.add(((Expr) expr).getExprType());
+        }
+        // set the return type of the dispatch expression
+        node.setExprType(associatedMethod.getReturnType());
+        // Error if params don't match args
+        if(!getFormalTypesList(associatedMethod).equals(typesList)){
+            registerError(node,"Invalid parameter type passed into " +
+                    "the Dispatch Expression");
+        }
     }
 
     /**
@@ -450,54 +736,42 @@ public class TypeCheckerVisitor extends Visitor
     }
 
     /**
-     * Visit a list node of expressions
-     *
-     * @param node the expression list node
-     * @return a List<String> of the types of the expressions
-     */
-    public Object visit(ExprList node) {
-        List<String> typesList = new ArrayList<>();
-        for (ASTNode expr : node) {
-            expr.accept(this);
-            typesList.add(((Expr) expr).getExprType());
-        }
-        //return a List<String> of the types of the expressions
-        return typesList;
-    }
-
-    /**
-     * Visit a new expression node
+     * Checks a new expression node
      *
      * @param node the new expression node
-     * @return the type of the expression
      */
-    public Object visit(NewExpr node) {
-        if (currentClass.lookupClass(node.getType()) == null) {
+    private void checkNew(NewExpr node) {
+        if (lookupClass(node.getType()) == null) {
             registerError(node,"The type " + node.getType() + " does not exist.");
             node.setExprType("Object"); // to allow analysis to continue
         }
         else {
             node.setExprType(node.getType());
         }
-        return null;
     }
 
     /**
-     * Visit an instanceof expression node
+     * Checks the type named in an instanceof expression node
      *
      * @param node the instanceof expression node
-     * @return the type of the expression
      */
-    public Object visit(InstanceofExpr node) {
-        if (currentClass.lookupClass(node.getType()) == null) {
+    private void checkInstanceofType(InstanceofExpr node) {
+        if (lookupClass(node.getType()) == null) {
             registerError(node,"The reference type " + node.getType()
                     + " does not exist.");
         }
-        node.getExpr().accept(this);
-        if (isSubtype(node.getExpr().getExprType(), node.getType())) {
+    }
+
+    /**
+     * Checks an instanceof expression node, once its expr has been checked
+     *
+     * @param node the instanceof expression node
+     */
+    private void checkInstanceof(InstanceofExpr node) {
+        if (isSubtype(node.getExpr(), node.getType())) {
             node.setUpCheck(true);
         }
-        else if (isSubtype(node.getType(), node.getExpr().getExprType())) {
+        else if (isSubtype(node.getType(), node.getExpr())) {
             node.setUpCheck(false);
         }
         else {
@@ -506,18 +780,14 @@ public class TypeCheckerVisitor extends Visitor
                     + node.getType() + ".");
         }
         node.setExprType("boolean");
-        return null;
     }
 
     /**
-     * Visit a cast expression node
+     * Checks a cast expression node
      *
      * @param node the cast expression node
-     * @return the type of the expression
      */
-    public Object visit(CastExpr node) {
-        // Visit expression and save types
-        node.getExpr().accept(this);
+    private void checkCast(CastExpr node) {
         String targetType = node.getType();
         String currentType = node.getExpr().getExprType();
 
@@ -527,7 +797,7 @@ public class TypeCheckerVisitor extends Visitor
         }
 
         // Error if current is not a valid subtype of target
-        if(!isSubtype(currentType, targetType)){
+        if(!isSubtype(node.getExpr(), targetType)){
             registerError(node, "Invalid cast from " + currentType + " to " +
                     targetType);
         }
@@ -539,16 +809,14 @@ public class TypeCheckerVisitor extends Visitor
         }
 
         node.setExprType(targetType);
-        return null;
     }
 
     /**
-     * Visit an assignment expression node
+     * Checks the reference of an assignment expression node
      *
      * @param node the assignment expression node
-     * @return the type of the expression
      */
-    public Object visit(AssignExpr node) {
+    private void checkAssignRef(AssignExpr node) {
         // Check reference path
         if(node.getRefName() != null){
             String ref = node.getRefName();
@@ -557,19 +825,25 @@ public class TypeCheckerVisitor extends Visitor
                         "must be either this or " + "super");
             }
         }
+    }
 
-        // Visit and save assigned type
-        node.getExpr().accept(this);
+    /**
+     * Checks an assignment expression node, once its expr has been checked
+     *
+     * @param node the assignment expression node
+     */
+    private void checkAssign(AssignExpr node) {
         String assignType = node.getExpr().getExprType();
 
         // if the name is already declared, check types
-        if(currentSymbolTable.lookup(node.getName())!=null){
+        Object declaredType = lookupVar(node.getName());
+        if(declaredType!=null){
             // Save original type and update node
-            String originalType = currentSymbolTable.lookup(node.getName()).toString();
+            String originalType = declaredType.toString();
             node.setExprType(originalType);
 
             // check if assigned type ok
-            if(!(isSubtype(assignType,originalType))){
+            if(!(isSubtype(node.getExpr(), originalType))){
                 registerError(node,"Invalid assignment to variable of name "+
                         node.getName()+", which had type "+originalType);
             }
@@ -581,358 +855,134 @@ public class TypeCheckerVisitor extends Visitor
             // set the node expression type to continue analyzing
             node.setExprType(assignType);
         }
-        return null;
     }
 
-
     /**
-     * Visit a variable expression node
+     * Checks a variable expression node
      *
      * @param node the variable expression node
-     * @return the type of the expression
      */
-    public Object visit(VarExpr node) {
+    private void checkVar(VarExpr node) {
         // Error if not yet declared
-        if(currentSymbolTable.lookup(node.getName())==null){
+        Object declaredType = lookupVar(node.getName());
+        if(declaredType==null){
             registerError(node,"Variable of name "+node.getName()+" need to be declared before using it");
             // set the expression type to Object and continue analyzing
             node.setExprType("Object");
         }
         else{
             // Set the node exprtype
-            String varType = currentSymbolTable.lookup(node.getName()).toString();
+            String varType = declaredType.toString();
             node.setExprType(varType);
         }
-
-        return null;
     }
 
     /**
-     * returns an array of length 2 containing the types of
-     * the left and right children of the node.
-     * @param node The BinaryExpr whose children are to be typed
-     * @return A String[] of length 2 with the types of the 2 children
-     */
-    private String[] getLeftAndRightTypes(BinaryExpr node) {
-        node.getLeftExpr().accept(this);
-        node.getRightExpr().accept(this);
-        String type1 = node.getLeftExpr().getExprType();
-        String type2 = node.getRightExpr().getExprType();
-        return new String[]{type1,type2};
-    }
-
-    /**
-     * Visit a binary comparison equals expression node
+     * Checks a binary comparison equals expression node
      *
      * @param node the binary comparison equals expression node
-     * @return the type of the expression
      */
-    public Object visit(BinaryCompEqExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (types[0] == null || types[1] == null) {
-            return null; //error in one expr, so skip further checking
+    private void checkCompEq(BinaryCompEqExpr node) {
+        String left = node.getLeftExpr().getExprType();
+        String right = node.getRightExpr().getExprType();
+        if (left == null || right == null) {
+            return; //error in one expr, so skip further checking
         }
-        if (!(isSubtype(types[0], types[1]) || isSubtype(types[1], types[0]))) {
+        if (!(isSubtype(node.getLeftExpr(), node.getRightExpr())
+                || isSubtype(node.getRightExpr(), node.getLeftExpr()))) {
             registerError(node,"The " + "two values being compared for " +
                     "equality are not compatible types.");
         }
         node.setExprType("boolean");
-        return null;
     }
 
     /**
-     * Visit a binary comparison not equals expression node
+     * Checks a binary comparison not equals expression node
      *
      * @param node the binary comparison not equals expression node
-     * @return the type of the expression
      */
-    public Object visit(BinaryCompNeExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(isSubtype(types[0], types[1]) || isSubtype(types[1], types[0]))) {
+    private void checkCompNe(BinaryCompNeExpr node) {
+        if (!(isSubtype(node.getLeftExpr(), node.getRightExpr())
+                || isSubtype(node.getRightExpr(), node.getLeftExpr()))) {
             registerError(node,"The two values being compared for equality " +
                     "are not compatible types.");
         }
         node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison less than expression node
-     *
-     * @param node the binary comparison less than expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompLtExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being compared by \"<\" are " +
-                    "not both ints.");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison less than or equal to expression node
-     *
-     * @param node the binary comparison less than or equal to expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompLeqExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The  two values being compared by \"<=\" are" +
-                    " not both ints.");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison greater than expression node
-     *
-     * @param node the binary comparison greater than expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompGtExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being compared by \">\" are" +
-                    " not both ints.");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary comparison greater than or equal to expression node
-     *
-     * @param node the binary comparison greater to or equal to expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryCompGeqExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The  two values being compared by \">=\" are " +
-                    "not both ints.");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic plus expression node
-     *
-     * @param node the binary arithmetic plus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithPlusExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being added are not both ints.");
-        }
-        node.setExprType("int");
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic minus expression node
-     *
-     * @param node the binary arithmetic minus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithMinusExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being subtraced are not both ints.");
-        }
-        node.setExprType("int");
-        return null;
     }
 
     /**
-     * Visit a binary arithmetic times expression node
+     * Checks that both operands of a binary expression node have the given
+     * type and sets the type of the node
      *
-     * @param node the binary arithmetic times expression node
-     * @return the type of the expression
+     * @param node the binary expression node
+     * @param operandType the type both operands must have
+     * @param resultType the type of the expression
+     * @param message the error message if an operand has another type
      */
-    public Object visit(BinaryArithTimesExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being multiplied are not both ints.");
+    private void checkOperands(BinaryExpr node, String operandType, String resultType,
+                               String message) {
+        String left = node.getLeftExpr().getExprType();
+        String right = node.getRightExpr().getExprType();
+        if (!(left.equals(operandType) && right.equals(operandType))) {
+            registerError(node, message);
         }
-        node.setExprType("int");
-        return null;
+        node.setExprType(resultType);
     }
 
     /**
-     * Visit a binary arithmetic divide expression node
-     *
-     * @param node the binary arithmetic divide expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithDivideExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being divided are not both ints.");
-        }
-        node.setExprType("int");
-        return null;
-    }
-
-    /**
-     * Visit a binary arithmetic modulus expression node
-     *
-     * @param node the binary arithmetic modulus expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryArithModulusExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("int") && types[1].equals("int"))) {
-            registerError(node,"The two values being operated on with % are " +
-                    "not both ints.");
-        }
-        node.setExprType("int");
-        return null;
-    }
-
-    /**
-     * Visit a binary logical AND expression node
-     *
-     * @param node the binary logical AND expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryLogicAndExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("boolean") && types[1].equals("boolean"))) {
-            registerError(node,"The two values being operated on with && are not both booleans" + ".");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a binary logical OR expression node
-     *
-     * @param node the binary logical OR expression node
-     * @return the type of the expression
-     */
-    public Object visit(BinaryLogicOrExpr node) {
-        String[] types = getLeftAndRightTypes(node);
-        if (!(types[0].equals("boolean") && types[1].equals("boolean"))) {
-            registerError(node,"The two values being operated on with || are not both booleans" + ".");
-        }
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a unary negation expression node
+     * Checks a unary negation expression node
      *
      * @param node the unary negation expression node
-     * @return the type of the expression
      */
-    public Object visit(UnaryNegExpr node) {
-        node.getExpr().accept(this);
+    private void checkNeg(UnaryNegExpr node) {
         String type = node.getExpr().getExprType();
         if (!(type.equals("int"))) {
             registerError(node,"The value being negated is of type "
                     + type + ", not int.");
         }
         node.setExprType("int");
-        return null;
     }
 
     /**
-     * Visit a unary NOT expression node
+     * Checks a unary NOT expression node
      *
      * @param node the unary NOT expression node
-     * @return the type of the expression
      */
-    public Object visit(UnaryNotExpr node) {
-        node.getExpr().accept(this);
+    private void checkNot(UnaryNotExpr node) {
         String type = node.getExpr().getExprType();
         if (!type.equals("boolean")) {
             registerError(node,"The not (!) operator applies only to boolean " +
                     "expressions, not " + type + " expressions.");
         }
         node.setExprType("boolean");
-        return null;
     }
 
     /**
-     * Visit a unary increment expression node
+     * Checks that a unary increment or decrement expression node applies to
+     * a variable
      *
-     * @param node the unary increment expression node
-     * @return the type of the expression
+     * @param node the unary increment or decrement expression node
      */
-    public Object visit(UnaryIncrExpr node) {
+    private void checkIncrDecrOperand(UnaryExpr node) {
         if (!(node.getExpr() instanceof VarExpr)) {
             registerError(node,"The  expression being incremented can only be " +
                     "a variable name with an optional \"this.\" or \"super.\" prefix.");
         }
-        node.getExpr().accept(this);
-        String type = node.getExpr().getExprType();
-        if (!(type.equals("int"))) {
-            registerError(node,"The value being incremented is of type "
-                    + type + ", not int.");
-        }
-        node.setExprType("int");
-        return null;
     }
 
     /**
-     * Visit a unary decrement expression node
+     * Checks the type of the variable of a unary increment or decrement
+     * expression node
      *
-     * @param node the unary decrement expression node
-     * @return the type of the expression
+     * @param node the unary increment or decrement expression node
+     * @param verb "incremented" or "decremented"
      */
-    public Object visit(UnaryDecrExpr node) {
-        if (!(node.getExpr() instanceof VarExpr)) {
-            registerError(node,"The  expression being incremented can only be " +
-                    "a variable name with an optional \"this.\" or \"super.\" prefix.");
-        }
-        node.getExpr().accept(this);
+    private void checkIncrDecr(UnaryExpr node, String verb) {
         String type = node.getExpr().getExprType();
         if (!(type.equals("int"))) {
-            registerError(node,"The value being decremented is of type "
+            registerError(node,"The value being " + verb + " is of type "
                     + type + ", not int.");
         }
         node.setExprType("int");
-        return null;
     }
-
-    /**
-     * Visit an int constant expression node
-     *
-     * @param node the int constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstIntExpr node) {
-        node.setExprType("int");
-        return null;
-    }
-
-    /**
-     * Visit a boolean constant expression node
-     *
-     * @param node the boolean constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstBooleanExpr node) {
-        node.setExprType("boolean");
-        return null;
-    }
-
-    /**
-     * Visit a string constant expression node
-     *
-     * @param node the string constant expression node
-     * @return the type of the expression
-     */
-    public Object visit(ConstStringExpr node) {
-        node.setExprType("String");
-        return null;
-    }
-
-}
\ No newline at end of file
+}
@@ -15,6 +15,7 @@
 package proj10EnglishHillisonQian.bantam.treedrawer;
 
 import java.awt.*;
+import java.util.ArrayDeque;
 
 public class DrawingTree
 {
@@ -49,7 +50,37 @@ public class DrawingTree
     //private final int FIXED_FONT_ASCENT = 3; -- never used
     private final Color nodeColor = new Color(250, 220, 100);
 
+    /**
+     * Paints this tree. Each box is painted, then the subtrees of its
+     * children, then the line up to its parent. The tree is walked with a
+     * stack of its own, so a tree deeper than the call stack can be painted.
+     */
     public void paint(Graphics graphics)
+    {
+        ArrayDeque<DrawingTree> trees = new ArrayDeque<>();
+        // for each tree on the stack, whether its children have been pushed
+        ArrayDeque<Boolean> entered = new ArrayDeque<>();
+        trees.push(this);
+        entered.push(false);
+        while (!trees.isEmpty()) {
+            DrawingTree tree = trees.pop();
+            if (entered.pop()) {
+                tree.paintLineToParent(graphics);
+                continue;
+            }
+            tree.paintBox(graphics);
+            trees.push(tree);
+            entered.push(true);
+            if (tree.children != null) {
+                for (int i = tree.children.length - 1; i >= 0; i--) {
+                    trees.push(tree.children[i]);
+                    entered.push(false);
+                }
+            }
+        }
+    }
+
+    private void paintBox(Graphics graphics)
     {
         graphics.setColor(nodeColor);
         graphics.fillRect(pos.x, pos.y, width, height);
@@ -57,13 +88,10 @@ public class DrawingTree
         graphics.drawRect(pos.x, pos.y, width - 1, height - 1);
         graphics.drawString(caption, pos.x + 2,
                 pos.y + (height + FIXED_FONT_HEIGHT) / 2);
+    }
 
-        if (children != null) {
-            for (int i = 0; i < children.length; i++) {
-                children[i].paint(graphics);
-            }
-        }
-
+    private void paintLineToParent(Graphics graphics)
+    {
         if (parent != null) {
             graphics.drawLine(pos.x + width / 2, pos.y,
                     parent.pos.x + parent.width / 2,
@@ -71,19 +99,35 @@ public class DrawingTree
         }
     }
 
+    /**
+     * Places this tree with its offset from the given point, and each child
+     * with its offset from a point that moves along by the offsets of the
+     * children before it. The tree is walked with a stack of its own.
+     */
     public void position(Point pos)
     {
-
-        this.pos.x = pos.x + this.offset.x;
-        this.pos.y = pos.y + this.offset.y;
-
-        Point temp = new Point(this.pos.x, this.pos.y);
-
-        if (children != null) {
-            for (int i = 0; i < children.length; i++) {
-                children[i].position(temp);
-                temp.x += children[i].offset.x;
-                temp.y = this.pos.y + children[0].offset.y;
+        ArrayDeque<DrawingTree> trees = new ArrayDeque<>();
+        ArrayDeque<Point> origins = new ArrayDeque<>();
+        trees.push(this);
+        origins.push(pos);
+        while (!trees.isEmpty()) {
+            DrawingTree tree = trees.pop();
+            Point origin = origins.pop();
+            tree.pos.x = origin.x + tree.offset.x;
+            tree.pos.y = origin.y + tree.offset.y;
+            if (tree.children == null) {
+                continue;
+            }
+            Point temp = new Point(tree.pos.x, tree.pos.y);
+            Point[] childOrigins = new Point[tree.children.length];
+            for (int i = 0; i < tree.children.length; i++) {
+                childOrigins[i] = new Point(temp);
+                temp.x += tree.children[i].offset.x;
+                temp.y = tree.pos.y + tree.children[0].offset.y;
+            }
+            for (int i = tree.children.length - 1; i >= 0; i--) {
+                trees.push(tree.children[i]);
+                origins.push(childOrigins[i]);
             }
         }
     }
@@ -14,16 +14,28 @@
  * Modified by Dale Skrien to work with the Bantam Java compiler
  * --added layoutNary method
  * --changed all the visit methods to work with the Visitor class
+ * --walks the tree with a Traversal instead of visit methods, so trees
+ *   deeper than the call stack can be laid out
  */
 
 package proj10EnglishHillisonQian.bantam.treedrawer;
 
 import proj10EnglishHillisonQian.bantam.ast.*;
-import proj10EnglishHillisonQian.bantam.visitor.Visitor;
+import proj10EnglishHillisonQian.bantam.visitor.Traversal;
 
 import java.awt.*;
-
-public class LayoutVisitor extends Visitor
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Lays out an AST as a DrawingTree. The AST is walked with a Traversal: the
+ * drawing of each node is made in post out of the drawings of its children,
+ * which are kept on a stack of their own. A missing optional child, such as
+ * the initializer of a field, gets no drawing. The class list of a Program
+ * and the statement list of a block are not drawn as nodes of their own;
+ * their elements are drawn as children of the Program or block.
+ */
+public class LayoutVisitor extends Traversal
 {
 
     private final int BORDER = 5;
@@ -31,235 +43,192 @@ public class LayoutVisitor extends Visitor
 
     private FontMetrics fontMetrics;
 
+    /** the drawings of the children of the nodes on the path, in order */
+    private final ArrayList<DrawingTree> drawings = new ArrayList<>();
+    /** for each node on the path, the number of drawings before its children's */
+    private int[] firstDrawing = new int[64];
+    /** for each node on the path, whether it is a list drawn in its parent */
+    private boolean[] inlined = new boolean[64];
+    /** the number of nodes on the path */
+    private int depth;
+    /** the list about to be walked, if it is to be drawn in its parent */
+    private ASTNode nextInlined;
+
     public LayoutVisitor(FontMetrics fontMetrics)
     {
         this.fontMetrics = fontMetrics;
     }
 
-
-    // Programs, Classes, Methods, Fields
-
-    public Object visit(Program node)
+    /**
+     * lays out a tree
+     * @param root the root of the tree
+     * @return the drawing of the tree
+     */
+    public DrawingTree layout(ASTNode root)
     {
-        return layoutNary("Program", node.getClassList());
+        drawings.clear();
+        traverse(root);
+        return drawings.remove(drawings.size() - 1);
     }
 
-    public Object visit(Class_ node)
+    @Override
+    protected boolean pre(ASTNode node)
     {
-        return layoutUnary("Class " + node.getName(), node.getMemberList());
-    }
-
-    public Object visit(MemberList node) {
-        return layoutNary("MemberList", node);
-    }
-
-    public Object visit(Field node)
-    {
-        if(node.getInit() == null)
-            return layoutNullary("Field " + node.getName() + ":" + node.getType());
-        else
-            return layoutUnary("Field " + node.getName() + ":" + node.getType(),
-                    node.getInit());
+        if (depth == firstDrawing.length) {
+            firstDrawing = Arrays.copyOf(firstDrawing, depth * 2);
+            inlined = Arrays.copyOf(inlined, depth * 2);
+        }
+        firstDrawing[depth] = drawings.size();
+        inlined[depth] = node == nextInlined;
+        nextInlined = null;
+        depth++;
+        return true;
     }
 
-    public Object visit(Method node)
+    @Override
+    protected boolean beforeChild(ASTNode node, int index, ASTNode child)
     {
-        return layoutBinary("Method " + node.getName() + ":" + node.getReturnType(),
-                node.getFormalList(), node.getStmtList());
-    }
-
-    public Object visit(StmtList node) {
-        return layoutNary("StmtList",node);
-    }
-
-    public Object visit(FormalList node) {
-        return layoutNary("FormalList", node);
-    }
-
-    public Object visit(Formal node) {
-        return layoutNullary("Formal " + node.getName()+ ":" + node.getType());
+        if (node instanceof Program || node instanceof BlockStmt) {
+            nextInlined = child;
+        }
+        return true;
     }
 
-    // Statements
-
-    public Object visit(ReturnStmt node)
+    @Override
+    protected void post(ASTNode node)
     {
-        if(node.getExpr() == null)
-            return layoutNullary("Return");
-        else
-            return layoutUnary("Return", node.getExpr());
-    }
-
-    public Object visit(WhileStmt node) {
-        return layoutBinary("While",node.getPredExpr(),node.getBodyStmt());
+        depth--;
+        if (inlined[depth]) {
+            // the elements' drawings are left for the parent
+            return;
+        }
+        int first = firstDrawing[depth];
+        DrawingTree[] children = drawings.subList(first, drawings.size())
+                .toArray(new DrawingTree[0]);
+        drawings.subList(first, drawings.size()).clear();
+        String caption = caption(node);
+        if (children.length == 0 && (node instanceof ListNode
+                || node instanceof Program || node instanceof BlockStmt)) {
+            caption = "Empty" + caption;
+        }
+        drawings.add(layout(caption, children));
     }
 
-    public Object visit(DeclStmt node)
+    /**
+     * @param node a node
+     * @return the caption of the node's box
+     */
+    private String caption(ASTNode node)
     {
-            return layoutUnary("Var Decl " + node.getName(),
-                    node.getInit());
-    }
-
-    public Object visit(ExprStmt node) {
-        return layoutUnary("ExprStmt",node.getExpr());
+        switch (node.getKind()) {
+            case PROGRAM:
+                return "Program";
+            case CLASS_LIST:
+                return "ClassList";
+            case CLASS:
+                return "Class " + ((Class_) node).getName();
+            case MEMBER_LIST:
+                return "MemberList";
+            case FIELD:
+                Field field = (Field) node;
+                return "Field " + field.getName() + ":" + field.getType();
+            case METHOD:
+                Method method = (Method) node;
+                return "Method " + method.getName() + ":" + method.getReturnType();
+            case FORMAL_LIST:
+                return "FormalList";
+            case FORMAL:
+                Formal formal = (Formal) node;
+                return "Formal " + formal.getName() + ":" + formal.getType();
+            case STMT_LIST:
+                return "StmtList";
+            case DECL_STMT:
+                return "Var Decl " + ((DeclStmt) node).getName();
+            case EXPR_STMT:
+                return "ExprStmt";
+            case IF_STMT:
+                return "If";
+            case WHILE_STMT:
+                return "While";
+            case FOR_STMT:
+                return "For";
+            case BREAK_STMT:
+                return "Break";
+            case BLOCK_STMT:
+                return "Block";
+            case RETURN_STMT:
+                return "Return";
+            case EXPR_LIST:
+                return "ExprList";
+            case DISPATCH_EXPR:
+                return "Dispatch " + ((DispatchExpr) node).getMethodName();
+            case NEW_EXPR:
+                return "New " + ((NewExpr) node).getType();
+            case INSTANCEOF_EXPR:
+                return "Instanceof " + ((InstanceofExpr) node).getType();
+            case CAST_EXPR:
+                return "cast to " + ((CastExpr) node).getType();
+            case ASSIGN_EXPR:
+                AssignExpr assign = (AssignExpr) node;
+                return "Assign " + (assign.getRefName() != null ?
+                        assign.getRefName() + "." : "") + assign.getName();
+            case VAR_EXPR:
+                return "VarExpr " + ((VarExpr) node).getName();
+            case BINARY_ARITH_PLUS_EXPR:
+                return "+";
+            case BINARY_ARITH_MINUS_EXPR:
+                return "-";
+            case BINARY_ARITH_TIMES_EXPR:
+                return "*";
+            case BINARY_ARITH_DIVIDE_EXPR:
+                return "/";
+            case BINARY_ARITH_MODULUS_EXPR:
+                return "%";
+            case BINARY_COMP_EQ_EXPR:
+                return "==";
+            case BINARY_COMP_NE_EXPR:
+                return "!=";
+            case BINARY_COMP_LT_EXPR:
+                return "<";
+            case BINARY_COMP_LEQ_EXPR:
+                return "<=";
+            case BINARY_COMP_GT_EXPR:
+                return ">";
+            case BINARY_COMP_GEQ_EXPR:
+                return ">=";
+            case BINARY_LOGIC_AND_EXPR:
+                return "And";
+            case BINARY_LOGIC_OR_EXPR:
+                return "Or";
+            case UNARY_NEG_EXPR:
+                return "-";
+            case UNARY_NOT_EXPR:
+                return "!";
+            case UNARY_INCR_EXPR:
+                return (((UnaryExpr) node).isPostfix() ? "Post" : "Pre") + "++";
+            case UNARY_DECR_EXPR:
+                return (((UnaryExpr) node).isPostfix() ? "Post" : "Pre") + "--";
+            case CONST_INT_EXPR:
+                return "Int:" + ((ConstExpr) node).getConstant();
+            case CONST_BOOLEAN_EXPR:
+                return "Bool:" + ((ConstExpr) node).getConstant();
+            default: // CONST_STRING_EXPR
+                return "Str:" + ((ConstExpr) node).getConstant();
+        }
     }
 
-    public Object visit(IfStmt node)
-    {
-        if(node.getElseStmt() == null)
-            return layoutBinary("If",node.getPredExpr(),node.getThenStmt());
-        else
-            return layoutTernary("If",node.getPredExpr(),node.getThenStmt(),
-                    node.getElseStmt());
-    }
+    //-------- auxilliary methods ---------
 
-    public Object visit(ForStmt node)
+    private DrawingTree layout(String name, DrawingTree[] children)
     {
-        ListNode list = new ExprList(0);
-        if(node.getInitExpr() != null)
-            list.addElement(node.getInitExpr());
-        if(node.getPredExpr() != null)
-            list.addElement(node.getPredExpr());
-        if(node.getUpdateExpr() != null)
-            list.addElement(node.getUpdateExpr());
-        list.addElement(node.getBodyStmt());
-        return layoutNary("For",list);
-    }
-
-    public Object visit(BlockStmt node) {
-        return layoutNary("Block", node.getStmtList());
-    }
-
-    public Object visit(BreakStmt node) {
-        return layoutNullary("Break");
-    }
-
-    // Expressions
-
-    public Object visit(ExprList node) {
-        return layoutNary("ExprList", node);
-    }
-
-    public Object visit(AssignExpr node) {
-        return layoutUnary("Assign " + (node.getRefName() != null ?
-                node.getRefName() + "." : "") + node.getName(), node.getExpr());
-    }
-
-    public Object visit(InstanceofExpr node) {
-        return layoutUnary("Instanceof " + node.getType(), node.getExpr());
-    }
-
-    public Object visit(NewExpr node) {
-        return layoutNullary("New " + node.getType());
-    }
-
-    public Object visit(DispatchExpr node) {
-        if(node.getRefExpr() == null)
-            return layoutUnary("Dispatch "+node.getMethodName(),
-                    node.getActualList());
-        else
-            return layoutBinary("Dispatch " + node.getMethodName(),
-                    node.getRefExpr(), node.getActualList());
-    }
-
-    public Object visit(CastExpr node) {
-        return layoutUnary("cast to " + node.getType(), node.getExpr());
-    }
-
-    // Binary expressions
-
-    public Object visit(BinaryArithDivideExpr node) {
-        return layoutBinary("/", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryArithPlusExpr node) {
-        return layoutBinary("+", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryArithMinusExpr node) {
-        return layoutBinary("-", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryArithTimesExpr node) {
-        return layoutBinary("*", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryArithModulusExpr node) {
-        return layoutBinary("%", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompEqExpr node) {
-        return layoutBinary("==", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompNeExpr node) {
-        return layoutBinary("!=", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompGeqExpr node) {
-        return layoutBinary(">=", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompGtExpr node) {
-        return layoutBinary(">", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompLeqExpr node) {
-        return layoutBinary("<=", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryCompLtExpr node) {
-        return layoutBinary("<", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryLogicAndExpr node) {
-        return layoutBinary("And", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    public Object visit(BinaryLogicOrExpr node) {
-        return layoutBinary("Or", node.getLeftExpr(), node.getRightExpr());
-    }
-
-    // Other expressions
-
-    public Object visit(UnaryNegExpr node) {
-        return layoutUnary("-", node.getExpr());
-    }
-
-    public Object visit(UnaryNotExpr node) {
-        return layoutUnary("!", node.getExpr());
-    }
-
-    public Object visit(UnaryIncrExpr node) {
-        return layoutUnary((node.isPostfix()?"Post":"Pre")+"++", node.getExpr());
-    }
-
-    public Object visit(UnaryDecrExpr node) {
-        return layoutUnary((node.isPostfix()?"Post":"Pre")+"--", node.getExpr());
-    }
-
-    public Object visit(ConstIntExpr node) {
-        return layoutNullary("Int:" + node.getConstant());
-    }
-
-    public Object visit(ConstBooleanExpr node) {
-        return layoutNullary("Bool:" + node.getConstant());
-    }
-
-    public Object visit(ConstStringExpr node) {
-        return layoutNullary("Str:" + node.getConstant());
-    }
-
-    public Object visit(VarExpr node) {
-        if(node.getRef() == null)
-            return layoutNullary("VarExpr " + node.getName());
-        else
-            return layoutUnary("VarExpr " + node.getName(),node.getRef());
+        if (children.length == 0)
+            return layoutNullary(name);
+        DrawingTree dt = layoutCaption(name);
+        dt.setChildren(children);
+        attachParent(dt, join(dt));
+        return dt;
     }
 
-
-
-    //-------- auxilliary methods ---------
     private DrawingTree layoutCaption(String name)
     {
         int w = fontMetrics.stringWidth(name) + 14;
@@ -277,80 +246,6 @@ public class LayoutVisitor extends Visitor
         return dt;
     }
 
-    private DrawingTree layoutUnary(String name, ASTNode child1)
-    {
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree d1 = (DrawingTree) child1.accept(this);
-        dt.setChildren(new DrawingTree[]{d1});
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
-    private DrawingTree layoutBinary(String name, ASTNode child1, ASTNode child2)
-    {
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree d1 = (DrawingTree) child1.accept(this);
-        DrawingTree d2 = (DrawingTree) child2.accept(this);
-        dt.setChildren(new DrawingTree[]{d1, d2});
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
-    private DrawingTree layoutTernary(String name, ASTNode child1, ASTNode child2,
-                                      ASTNode child3)
-    {
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree d1 = (DrawingTree) child1.accept(this);
-        DrawingTree d2 = (DrawingTree) child2.accept(this);
-        DrawingTree d3 = (DrawingTree) child3.accept(this);
-        dt.setChildren(new DrawingTree[]{d1, d2, d3});
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
-    private DrawingTree layoutQuaternary(String name, ASTNode child1, ASTNode child2,
-                                         ASTNode child3, ASTNode child4)
-    {
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree d1 = (DrawingTree) child1.accept(this);
-        DrawingTree d2 = (DrawingTree) child2.accept(this);
-        DrawingTree d3 = (DrawingTree) child3.accept(this);
-        DrawingTree d4 = (DrawingTree) child4.accept(this);
-        dt.setChildren(new DrawingTree[]{d1, d2, d3, d4});
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
-    private DrawingTree layoutQuintenary(String name, ASTNode child1, ASTNode child2,
-                                         ASTNode child3, ASTNode child4, ASTNode child5)
-    {
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree d1 = (DrawingTree) child1.accept(this);
-        DrawingTree d2 = (DrawingTree) child2.accept(this);
-        DrawingTree d3 = (DrawingTree) child3.accept(this);
-        DrawingTree d4 = (DrawingTree) child4.accept(this);
-        DrawingTree d5 = (DrawingTree) child5.accept(this);
-        dt.setChildren(new DrawingTree[]{d1, d2, d3, d4, d5});
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
-    private DrawingTree layoutNary(String name, ListNode childNodes)
-    {
-        if(childNodes.getSize() == 0)
-            return layoutNullary("Empty" + name);
-        DrawingTree dt = layoutCaption(name);
-        DrawingTree[] childTrees = new DrawingTree[childNodes.getSize()];
-        int i = 0;
-        for(ASTNode childNode : childNodes) {
-            childTrees[i] = (DrawingTree) childNode.accept(this);
-            i++;
-        }
-        dt.setChildren(childTrees);
-        attachParent(dt, join(dt));
-        return dt;
-    }
-
     private void attachParent(DrawingTree dt, int w)
     {
         int y = PARENT_SEP;
@@ -26,10 +26,21 @@
 
 package proj10EnglishHillisonQian.bantam.util;
 
+import proj10EnglishHillisonQian.bantam.ast.ASTNode;
 import proj10EnglishHillisonQian.bantam.ast.Class_;
-
+import proj10EnglishHillisonQian.bantam.ast.Field;
+import proj10EnglishHillisonQian.bantam.ast.Method;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -78,6 +89,17 @@ public class ClassTreeNode {
      */
     private int numDescendants;
 
+    /**
+     * The number of this class in a preorder walk of the class hierarchy
+     * tree, or -1 if the tree has not been numbered
+     */
+    private int number = -1;
+
+    /**
+     * The largest number of this class and its descendants
+     */
+    private int lastNumber = -1;
+
     /**
      * The (scoped) variable symbol table for this class used for type checking this class
      */
@@ -88,6 +110,39 @@ public class ClassTreeNode {
      */
     private SymbolTable methodSymbolTable = new SymbolTable();
 
+    /**
+     * Where the members of the hierarchy this class is in are, shared by
+     * all its classes, or null until resolveMembers is called
+     */
+    private MemberIndex memberIndex;
+
+    /**
+     * The type of "this" in this class
+     */
+    private Object thisType;
+
+    /**
+     * The type of "super" in this class, or null if it has none
+     */
+    private Object superType;
+
+    /**
+     * The methods of this class and its ancestors by slot, the ancestors'
+     * first
+     */
+    private Method[] vtable;
+
+    /**
+     * The fields declared by this class itself; their slots follow the slots
+     * of the ancestors' fields
+     */
+    private Field[] ownFields;
+
+    /**
+     * The number of fields of this class and its ancestors
+     */
+    private int fieldCount;
+
     /**
      * ClassTreeNode constructor
      *
@@ -105,6 +160,26 @@ public class ClassTreeNode {
         numDescendants = 0;
     }
 
+    /**
+     * ClassTreeNode constructor for a class whose symbol tables are already
+     * built, such as a built-in class whose tables are shared by many class
+     * hierarchy trees
+     *
+     * @param astNode           the AST node for this class
+     * @param builtin           boolean indicating whether this class was built-in
+     * @param extendable        boolean indicating whether this class is extendable
+     * @param classMap          class map for accessing class tree nodes
+     * @param varSymbolTable    the variable symbol table of the class
+     * @param methodSymbolTable the method symbol table of the class
+     */
+    public ClassTreeNode(Class_ astNode, boolean builtin, boolean extendable,
+                         Hashtable<String, ClassTreeNode> classMap,
+                         SymbolTable varSymbolTable, SymbolTable methodSymbolTable) {
+        this(astNode, builtin, extendable, classMap);
+        this.varSymbolTable = varSymbolTable;
+        this.methodSymbolTable = methodSymbolTable;
+    }
+
     /**
      * Get the name of the class
      *
@@ -241,6 +316,59 @@ public class ClassTreeNode {
         return numDescendants;
     }
 
+    /**
+     * Numbers this class and its descendants in the order of a preorder walk
+     * of the class hierarchy tree, so that the numbers of the descendants of
+     * a class are the ones just after its own. The tree is walked with a
+     * stack instead of recursion, so a deep hierarchy cannot overflow the
+     * Java stack.
+     *
+     * @param first the number to give this class
+     * @return the number after the last one given out
+     */
+    public int numberSubtree(int first) {
+        int next = first;
+        Deque<ClassTreeNode> path = new ArrayDeque<>();
+        Deque<Iterator<ClassTreeNode>> remainingChildren = new ArrayDeque<>();
+        number = next++;
+        path.push(this);
+        remainingChildren.push(children.iterator());
+        while (!path.isEmpty()) {
+            Iterator<ClassTreeNode> remaining = remainingChildren.peek();
+            if (remaining.hasNext()) {
+                ClassTreeNode child = remaining.next();
+                child.number = next++;
+                path.push(child);
+                remainingChildren.push(child.children.iterator());
+            }
+            else {
+                path.pop().lastNumber = next - 1;
+                remainingChildren.pop();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Is this class the given class or one of its descendants?
+     * Once the tree is numbered this compares two numbers; before then it
+     * walks up the parents of this class.
+     *
+     * @param ancestor the class tree node of the other class
+     * @return whether this class is the other class or a subclass of it
+     */
+    public boolean isSubclassOf(ClassTreeNode ancestor) {
+        if (number >= 0 && ancestor.number >= 0) {
+            return ancestor.number <= number && number <= ancestor.lastNumber;
+        }
+        for (ClassTreeNode ctn = this; ctn != null; ctn = ctn.getParent()) {
+            if (ctn == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the variable symbol table of the class
      *
@@ -259,6 +387,201 @@ public class ClassTreeNode {
         return methodSymbolTable;
     }
 
+    /**
+     * Resolves the members of this class and lays out the methods and fields
+     * in slots as a vtable, so that looking up a member takes one hash probe
+     * instead of a search through the scopes of the symbol tables. The
+     * classes of a hierarchy share one index from each member name to the
+     * few places it is declared, so a class keeps no table of the members
+     * it inherits. A method that overrides another keeps the slot of the one
+     * it overrides. The symbol tables must be finished, the class tree must
+     * be numbered, and the parent's members must have been resolved already.
+     * A class whose members are resolved looks them up in the index from
+     * then on.
+     */
+    public void resolveMembers() {
+        if (parent != null && parent.memberIndex == null) {
+            throw new RuntimeException("Internal error: members of " + parent.getName()
+                    + " resolved after those of its subclass " + getName());
+        }
+        MemberIndex index = parent == null ? new MemberIndex() : parent.memberIndex;
+        HashSet<String> fieldNames = new HashSet<>();
+        ArrayList<Field> fields = new ArrayList<>();
+        ArrayList<Method> methods = new ArrayList<>();
+        int inheritedMethods = parent == null ? 0 : parent.vtable.length;
+        int inheritedFields = parent == null ? 0 : parent.fieldCount;
+
+        // the members that made it into the tables are the first of each name
+        for (ASTNode member : astNode.getMemberList()) {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                Object type = varSymbolTable.peek(field.getName());
+                if (type != null && fieldNames.add(field.getName())) {
+                    index.addVar(field.getName(),
+                            new VarEntry(this, type, inheritedFields + fields.size()));
+                    fields.add(field);
+                }
+            }
+            else {
+                Method method = (Method) member;
+                if (methodSymbolTable.peek(method.getName()) == method) {
+                    methods.add(method);
+                }
+            }
+        }
+
+        int newMethods = 0;
+        int[] slots = new int[methods.size()];
+        for (int i = 0; i < slots.length; i++) {
+            String name = methods.get(i).getName();
+            slots[i] = parent == null ? -1 : parent.getMethodSlot(name);
+            if (slots[i] < 0) {
+                slots[i] = inheritedMethods + newMethods++;
+                index.addMethodSlot(name, slots[i]);
+            }
+        }
+        vtable = new Method[inheritedMethods + newMethods];
+        if (parent != null) {
+            System.arraycopy(parent.vtable, 0, vtable, 0, inheritedMethods);
+        }
+        for (int i = 0; i < slots.length; i++) {
+            vtable[slots[i]] = methods.get(i);
+        }
+        thisType = varSymbolTable.peek("this");
+        superType = varSymbolTable.peek("super");
+        ownFields = fields.toArray(new Field[0]);
+        fieldCount = inheritedFields + ownFields.length;
+        memberIndex = index;
+    }
+
+    /**
+     * Lookup a variable ("this", "super" or a field) of this class or its
+     * ancestors
+     *
+     * @param name the name of the variable
+     * @return the type of the variable, or null if there is none
+     */
+    public Object lookupVar(String name) {
+        if (memberIndex == null) {
+            return varSymbolTable.lookup(name);
+        }
+        if ("this".equals(name)) {
+            return thisType;
+        }
+        if ("super".equals(name)) {
+            return superType;
+        }
+        VarEntry entry = findVar(name);
+        return entry == null ? null : entry.type;
+    }
+
+    /**
+     * Finds the field a name refers to in this class, which is the one
+     * declared by the nearest of this class and its ancestors. A class's
+     * ancestors come before it in the preorder numbering of the tree, so
+     * that is the one of them with the highest number.
+     *
+     * @param name the name of the field
+     * @return the field's entry, or null if there is no such field
+     */
+    private VarEntry findVar(String name) {
+        ArrayList<VarEntry> entries = memberIndex.vars.get(name);
+        if (entries == null) {
+            return null;
+        }
+        VarEntry nearest = null;
+        for (VarEntry entry : entries) {
+            if (isSubclassOf(entry.owner)
+                    && (nearest == null || entry.owner.number > nearest.owner.number)) {
+                nearest = entry;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Lookup a method of this class or its ancestors
+     *
+     * @param name the name of the method
+     * @return the AST node of the method, or null if there is none
+     */
+    public Method lookupMethod(String name) {
+        if (memberIndex == null) {
+            return (Method) methodSymbolTable.lookup(name);
+        }
+        int slot = getMethodSlot(name);
+        return slot < 0 ? null : vtable[slot];
+    }
+
+    /**
+     * Get the slot of a method in the vtable of this class
+     *
+     * @param name the name of the method
+     * @return the slot, or -1 if there is no such method or the members
+     * have not been resolved
+     */
+    public int getMethodSlot(String name) {
+        if (memberIndex == null) {
+            return -1;
+        }
+        // the classes of the hierarchy with a method of this name have it
+        // in one of these slots
+        int[] slots = memberIndex.methodSlots.get(name);
+        if (slots != null) {
+            for (int slot : slots) {
+                if (slot < vtable.length && name.equals(vtable[slot].getName())) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the vtable of this class
+     *
+     * @return the methods of this class and its ancestors by slot, with null
+     * in the slots of the names the class has no method of, or an empty list
+     * if the members have not been resolved
+     */
+    public List<Method> getMethods() {
+        return vtable == null ? Collections.<Method>emptyList()
+                : Collections.unmodifiableList(Arrays.asList(vtable));
+    }
+
+    /**
+     * Get the slot of a field in the objects of this class
+     *
+     * @param name the name of the field
+     * @return the slot, or -1 if there is no such field or the members
+     * have not been resolved
+     */
+    public int getFieldSlot(String name) {
+        if (memberIndex == null) {
+            return -1;
+        }
+        VarEntry entry = findVar(name);
+        return entry == null ? -1 : entry.slot;
+    }
+
+    /**
+     * Get the fields of the objects of this class
+     *
+     * @return the fields of this class and its ancestors by slot, or an
+     * empty list if the members have not been resolved
+     */
+    public List<Field> getFields() {
+        if (ownFields == null) {
+            return Collections.emptyList();
+        }
+        Field[] fields = new Field[fieldCount];
+        for (ClassTreeNode node = this; node != null; node = node.parent) {
+            System.arraycopy(node.ownFields, 0, fields,
+                    node.fieldCount - node.ownFields.length, node.ownFields.length);
+        }
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
     /**
      * Lookup a class tree node
      *
@@ -300,4 +623,57 @@ public class ClassTreeNode {
         }
         return false;
     }
+
+    /**
+     * Where the members of a class hierarchy are declared, by name
+     */
+    private static class MemberIndex {
+        /**
+         * the slots a method of each name has in the classes that have one,
+         * which is a single slot unless unrelated classes declare it
+         */
+        private final HashMap<String, int[]> methodSlots = new HashMap<>();
+        /** the fields of each name in the hierarchy */
+        private final HashMap<String, ArrayList<VarEntry>> vars = new HashMap<>();
+
+        private void addMethodSlot(String name, int slot) {
+            int[] slots = methodSlots.get(name);
+            if (slots == null) {
+                slots = new int[0];
+            }
+            for (int other : slots) {
+                if (other == slot) {
+                    return;
+                }
+            }
+            slots = Arrays.copyOf(slots, slots.length + 1);
+            slots[slots.length - 1] = slot;
+            methodSlots.put(name, slots);
+        }
+
+        private void addVar(String name, VarEntry entry) {
+            ArrayList<VarEntry> entries = vars.get(name);
+            if (entries == null) {
+                entries = new ArrayList<>(1);
+                vars.put(name, entries);
+            }
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * A field in a MemberIndex: the class that declares it, its type and
+     * its slot in the objects of that class and its descendants
+     */
+    private static class VarEntry {
+        private final ClassTreeNode owner;
+        private final Object type;
+        private final int slot;
+
+        private VarEntry(ClassTreeNode owner, Object type, int slot) {
+            this.owner = owner;
+            this.type = type;
+            this.slot = slot;
+        }
+    }
 }
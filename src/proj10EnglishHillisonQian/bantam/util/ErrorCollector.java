@@ -0,0 +1,63 @@
+/*
+ * File: ErrorCollector.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ErrorHandler that keeps all the errors in the order they are registered,
+ * instead of sorting them and keeping at most 100. It is used to hold errors
+ * back, to hand them out to the tokens that caused them or to register them
+ * with another ErrorHandler later.
+ */
+public class ErrorCollector extends ErrorHandler
+{
+    /** the errors registered, in order */
+    private final ArrayList<Error> errors = new ArrayList<>();
+
+    @Override
+    public void register(Error.Kind kind, String filename, int lineNum, String errorMessage) {
+        errors.add(new Error(kind, filename, lineNum, errorMessage));
+    }
+
+    @Override
+    public void register(Error.Kind kind, String errorMessage) {
+        errors.add(new Error(kind, null, -1, errorMessage));
+    }
+
+    @Override
+    public boolean errorsFound() {
+        return errors.size() > 0;
+    }
+
+    /**
+     * @return an unmodifiable view of the errors, in the order they were registered
+     */
+    @Override
+    public List<Error> getErrorList() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public void clear() {
+        errors.clear();
+    }
+
+    /**
+     * registers all the errors collected with another ErrorHandler, in the
+     * order they were registered here
+     * @param handler the ErrorHandler to register the errors with
+     */
+    public void registerWith(ErrorHandler handler) {
+        for (Error error : errors) {
+            handler.register(error.getKind(), error.getFilename(), error.getLineNum(),
+                    error.getMessage());
+        }
+    }
+}
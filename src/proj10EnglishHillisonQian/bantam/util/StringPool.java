@@ -0,0 +1,61 @@
+/*
+ * File: StringPool.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Gives each distinct string a small int id, so that a string used many
+ * times, such as a class or variable name, is stored once and referred to
+ * by its id. Ids are given out from 0 in the order the strings are added.
+ */
+public class StringPool
+{
+    /** the id of each string in the pool */
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    /** the string with each id */
+    private String[] strings = new String[64];
+    /** the number of strings in the pool */
+    private int size;
+
+    /**
+     * adds a string to the pool if it is not there yet
+     * @param string the string, or null
+     * @return the id of the string, or -1 for null
+     */
+    public int intern(String string) {
+        if (string == null) {
+            return -1;
+        }
+        Integer id = ids.get(string);
+        if (id != null) {
+            return id;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        strings[size] = string;
+        ids.put(string, size);
+        return size++;
+    }
+
+    /**
+     * @param id the id of a string in the pool, or -1
+     * @return the string with the id, or null for -1
+     */
+    public String get(int id) {
+        return id < 0 ? null : strings[id];
+    }
+
+    /**
+     * @return the number of distinct strings in the pool
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * File: SymbolPool.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.util;
+
+/**
+ * The one String instance of each identifier seen by the compiler, so that
+ * every use of a class, method or variable name in the AST is the same
+ * object. Comparing two names with equals then stops at the identity check
+ * whenever they are equal, and a name's hash code, which a String keeps once
+ * computed, is computed once for the whole run instead of once per use.
+ *
+ * The symbols are also interned with String.intern, so they are the same
+ * objects as the string literals of the same spelling in the compiler's own
+ * code, such as "Object" or "int".
+ *
+ * The pool is shared by all the threads of the compiler and never shrinks,
+ * which is fine for identifiers since a program has few distinct ones.
+ * Since nearly every lookup finds a symbol that is already there, lookups
+ * take no lock: they probe the table as it is, and only a lookup that does
+ * not find its symbol locks the pool to look again and add it. This works
+ * because the table only ever gains symbols, a String read from it is always
+ * complete since its contents are final, and a grown table is filled before
+ * it is published through a volatile field. A lookup that misses a symbol
+ * added at the same moment on another thread just finds it under the lock.
+ */
+public final class SymbolPool
+{
+    /**
+     * the symbols, in an open-addressing table with linear probing. Slots
+     * are only filled while holding the lock, and the array is replaced by
+     * a bigger one when it is half full.
+     */
+    private static volatile String[] symbols = new String[4096];
+    /** the number of symbols in the table, guarded by the lock */
+    private static int size;
+
+    private SymbolPool() {
+    }
+
+    /**
+     * finds or adds the symbol with the given chars, making a String only
+     * the first time the symbol is seen
+     * @param chars the buffer holding the chars of the symbol
+     * @param start the index of the first char of the symbol
+     * @param length the number of chars in the symbol
+     * @return the symbol
+     */
+    public static String intern(char[] chars, int start, int length) {
+        // the same hash as String.hashCode
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[start + i];
+        }
+        String symbol = find(symbols, hash, chars, start, length);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (SymbolPool.class) {
+            symbol = find(symbols, hash, chars, start, length);
+            if (symbol != null) {
+                return symbol;
+            }
+            return add(new String(chars, start, length).intern());
+        }
+    }
+
+    /**
+     * finds or adds the symbol equal to the given string
+     * @param string the string, or null
+     * @return the symbol, or null for null
+     */
+    public static String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        String symbol = find(symbols, string);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (SymbolPool.class) {
+            symbol = find(symbols, string);
+            if (symbol != null) {
+                return symbol;
+            }
+            return add(string.intern());
+        }
+    }
+
+    /**
+     * @return the number of distinct symbols seen so far
+     */
+    public static synchronized int size() {
+        return size;
+    }
+
+    /**
+     * looks for the symbol with the given chars in a table
+     * @return the symbol, or null if it is not in the table
+     */
+    private static String find(String[] table, int hash, char[] chars, int start,
+                               int length) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        String symbol;
+        while ((symbol = table[slot]) != null) {
+            if (symbol.hashCode() == hash && symbol.length() == length
+                    && matches(symbol, chars, start)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * looks for the symbol equal to the given string in a table
+     * @return the symbol, or null if it is not in the table
+     */
+    private static String find(String[] table, String string) {
+        int hash = string.hashCode();
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        String symbol;
+        while ((symbol = table[slot]) != null) {
+            if (symbol.hashCode() == hash && symbol.equals(string)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(String symbol, char[] chars, int start) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** mixes the high bits into the low ones, which pick the slot */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * puts a symbol that is not in the table into it, first publishing a
+     * table twice the size if the table would be more than half full.
+     * Must be called holding the lock.
+     */
+    private static String add(String symbol) {
+        String[] table = symbols;
+        if ((size + 1) * 2 > table.length) {
+            table = new String[table.length * 2];
+            for (String old : symbols) {
+                if (old != null) {
+                    put(table, old);
+                }
+            }
+            put(table, symbol);
+            symbols = table;
+        }
+        else {
+            put(table, symbol);
+        }
+        size++;
+        return symbol;
+    }
+
+    /** puts a symbol in the first empty slot of its probe sequence */
+    private static void put(String[] table, String symbol) {
+        int mask = table.length - 1;
+        int slot = spread(symbol.hashCode()) & mask;
+        while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = symbol;
+    }
+}
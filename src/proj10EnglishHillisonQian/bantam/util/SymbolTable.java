@@ -26,37 +26,88 @@
 
 package proj10EnglishHillisonQian.bantam.util;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Vector;
+import java.util.Arrays;
 
 /**
  * Class for representing a class symbol table
+ *
+ * All the scopes of a table share one hash table from each symbol to its
+ * innermost binding. The bindings are kept on a stack in the order they
+ * were added, each with the scope it is in and the binding of the same
+ * symbol it shadows, so exiting a scope pops its bindings and puts back the
+ * ones they shadowed, and looking up a symbol is a single probe of the hash
+ * table however many scopes are open.
  */
 public class SymbolTable {
     /**
-     * Hash table that maps strings to Objects.  The object value corresponds to
+     * the symbols in the hash table, which uses open addressing with linear
+     * probing; a symbol stays in its slot when its last binding is popped,
+     * so there are no deleted slots to skip, and is dropped when the table
+     * grows
+     */
+    private String[] slotSymbols;
+    /**
+     * for each slot of the hash table, the index of the innermost binding of
+     * its symbol, or -1 if the symbol is not bound
+     */
+    private int[] slotBindings;
+    /**
+     * number of slots of the hash table holding a symbol
+     */
+    private int slotsUsed;
+    /**
+     * The value of each binding.  The object value corresponds to
      * the type of the variable or method.  For variables it will be a String and
      * for methods it will be an AST node.
      */
-    private Hashtable<String, Object> hash;
+    private Object[] values;
+    /**
+     * the slot of the symbol of each binding
+     */
+    private int[] bindingSlots;
+    /**
+     * the binding of the same symbol each binding shadows, or -1
+     */
+    private int[] shadowed;
+    /**
+     * the scope each binding is in, the outermost scope of this table being 0
+     */
+    private int[] bindingScopes;
+    /**
+     * number of bindings
+     */
+    private int bindingCount;
     /**
-     * List that holds each scope
+     * the index of the first binding of each scope
      */
-    private Vector<Hashtable<String, Object>> scopes;
+    private int[] scopeStarts;
+    /**
+     * number of scopes entered and not yet exited
+     */
+    private int scopeCount;
     /**
      * Parent class symbol table (may be null)
      * If lookup fails in this symbol table should lookup in parent
      */
     private SymbolTable parent;
 
+    /**
+     * Whether the table can no longer be changed
+     */
+    private boolean frozen;
+
     /**
      * SymbolTable constructor
      * create an empty symbol table
      */
     public SymbolTable() {
-        hash = null;
-        scopes = new Vector<Hashtable<String, Object>>();
+        slotSymbols = new String[8];
+        slotBindings = new int[8];
+        values = new Object[4];
+        bindingSlots = new int[4];
+        shadowed = new int[4];
+        bindingScopes = new int[4];
+        scopeStarts = new int[4];
         parent = null;
     }
 
@@ -65,18 +116,20 @@ public class SymbolTable {
      * create a symbol table from an existing one
      * (used internally for cloning symbol tables
      *
-     * @param scopes the scopes of symbols
+     * @param table  the table whose scopes of symbols are copied
      * @param parent parent symbol table
      */
-    private SymbolTable(Vector<Hashtable<String, Object>> scopes,
-                        SymbolTable parent) {
-        this.scopes = scopes;
-        if (scopes.size() > 0) {
-            this.hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            this.hash = null;
-        }
+    private SymbolTable(SymbolTable table, SymbolTable parent) {
+        this.slotSymbols = table.slotSymbols.clone();
+        this.slotBindings = table.slotBindings.clone();
+        this.slotsUsed = table.slotsUsed;
+        this.values = table.values.clone();
+        this.bindingSlots = table.bindingSlots.clone();
+        this.shadowed = table.shadowed.clone();
+        this.bindingScopes = table.bindingScopes.clone();
+        this.bindingCount = table.bindingCount;
+        this.scopeStarts = table.scopeStarts.clone();
+        this.scopeCount = table.scopeCount;
         this.parent = parent;
     }
 
@@ -86,31 +139,178 @@ public class SymbolTable {
      * @param parent symbol table of the parent class
      */
     public void setParent(SymbolTable parent) {
+        if (this.parent != parent) {
+            checkNotFrozen();
+        }
         this.parent = parent;
     }
 
+    /**
+     * Stops the table from being changed, so that it can be shared, such as
+     * by analyses going on at the same time. Adding to it, entering or
+     * exiting a scope, setting a symbol in it or changing its parent throws
+     * an IllegalStateException from then on, though setting the parent it
+     * already has is allowed.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Is the table frozen?
+     *
+     * @return whether freeze has been called
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * throws an IllegalStateException if the table is frozen
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Symbol table is frozen");
+        }
+    }
+
+    /**
+     * @param s a symbol
+     * @return the slot of the hash table where the probe for the symbol starts
+     */
+    private int firstSlot(String s) {
+        int h = s.hashCode();
+        return (h ^ (h >>> 16)) & (slotSymbols.length - 1);
+    }
+
+    /**
+     * @param s a symbol
+     * @return the slot of the symbol, or -1 if it has never been added
+     */
+    private int findSlot(String s) {
+        int mask = slotSymbols.length - 1;
+        for (int i = firstSlot(s); ; i = (i + 1) & mask) {
+            String symbol = slotSymbols[i];
+            if (symbol == null) {
+                return -1;
+            }
+            if (symbol == s || symbol.equals(s)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * @param s a symbol
+     * @return the index of the innermost binding of the symbol in this
+     * table, or -1 if it has none
+     */
+    private int findBinding(String s) {
+        int slot = findSlot(s);
+        return slot < 0 ? -1 : slotBindings[slot];
+    }
+
+    /**
+     * @param s     a symbol
+     * @param scope a scope of this table
+     * @return the index of the innermost binding of the symbol in the scope
+     * or a scope outside it, or -1 if it has none
+     */
+    private int findBinding(String s, int scope) {
+        int binding = findBinding(s);
+        while (binding >= 0 && bindingScopes[binding] > scope) {
+            binding = shadowed[binding];
+        }
+        return binding;
+    }
+
+    /**
+     * finds the slot of a symbol, putting the symbol in a free slot if it
+     * has never been added
+     *
+     * @param s a symbol
+     * @return the slot of the symbol
+     */
+    private int addSlot(String s) {
+        int mask = slotSymbols.length - 1;
+        int i = firstSlot(s);
+        for (; slotSymbols[i] != null; i = (i + 1) & mask) {
+            if (slotSymbols[i] == s || slotSymbols[i].equals(s)) {
+                return i;
+            }
+        }
+        if (2 * (slotsUsed + 1) > slotSymbols.length) {
+            rehash();
+            return addSlot(s);
+        }
+        slotSymbols[i] = s;
+        slotBindings[i] = -1;
+        slotsUsed++;
+        return i;
+    }
+
+    /**
+     * Moves the bound symbols into a new hash table, at least twice as big
+     * as they need, and drops the ones no longer bound.
+     */
+    private void rehash() {
+        String[] oldSymbols = slotSymbols;
+        int[] oldBindings = slotBindings;
+        int bound = 0;
+        for (int binding : oldBindings) {
+            if (binding >= 0) {
+                bound++;
+            }
+        }
+        int capacity = 8;
+        while (capacity < 4 * (bound + 1)) {
+            capacity *= 2;
+        }
+        slotSymbols = new String[capacity];
+        slotBindings = new int[capacity];
+        slotsUsed = bound;
+        int mask = capacity - 1;
+        for (int i = 0; i < oldSymbols.length; i++) {
+            if (oldSymbols[i] == null || oldBindings[i] < 0) {
+                continue;
+            }
+            int slot = firstSlot(oldSymbols[i]);
+            while (slotSymbols[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotSymbols[slot] = oldSymbols[i];
+            slotBindings[slot] = oldBindings[i];
+            for (int b = oldBindings[i]; b >= 0; b = shadowed[b]) {
+                bindingSlots[b] = slot;
+            }
+        }
+    }
+
     /**
      * Enter a new scope
      */
     public void enterScope() {
-        hash = new Hashtable<String, Object>();
-        scopes.add(hash);
+        checkNotFrozen();
+        if (scopeCount == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, 2 * scopeCount);
+        }
+        scopeStarts[scopeCount++] = bindingCount;
     }
 
     /**
      * Exit a scope
      */
     public void exitScope() {
-        if (scopes.size() == 0) {
+        checkNotFrozen();
+        if (scopeCount == 0) {
             throw new RuntimeException("No scope to exit");
         }
-        scopes.removeElementAt(scopes.size() - 1);
-        if (scopes.size() > 0) {
-            hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            hash = null;
+        int start = scopeStarts[--scopeCount];
+        for (int b = bindingCount - 1; b >= start; b--) {
+            slotBindings[bindingSlots[b]] = shadowed[b];
+            values[b] = null;
         }
+        bindingCount = start;
     }
 
     /**
@@ -121,10 +321,32 @@ public class SymbolTable {
      * @param value value of symbol (i.e., type)
      */
     public void add(String s, Object value) {
-        if (scopes.size() == 0) {
+        checkNotFrozen();
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before adding to table");
         }
-        hash.put(s, value);
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        int slot = addSlot(s);
+        int innermost = slotBindings[slot];
+        if (innermost >= 0 && bindingScopes[innermost] == scopeCount - 1) {
+            values[innermost] = value;
+            return;
+        }
+        if (bindingCount == values.length) {
+            int length = 2 * bindingCount;
+            values = Arrays.copyOf(values, length);
+            bindingSlots = Arrays.copyOf(bindingSlots, length);
+            shadowed = Arrays.copyOf(shadowed, length);
+            bindingScopes = Arrays.copyOf(bindingScopes, length);
+        }
+        int binding = bindingCount++;
+        values[binding] = value;
+        bindingSlots[binding] = slot;
+        shadowed[binding] = innermost;
+        bindingScopes[binding] = scopeCount - 1;
+        slotBindings[slot] = binding;
     }
 
     /**
@@ -134,16 +356,13 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object lookup(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
 
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-            Object value = h.get(s);
-            if (value != null) {
-                return value;
-            }
+        int binding = findBinding(s);
+        if (binding >= 0) {
+            return values[binding];
         }
 
         if (parent != null) {
@@ -166,7 +385,7 @@ public class SymbolTable {
         int lastLevel = getCurrScopeLevel();
 
         // some error checking
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -176,25 +395,15 @@ public class SymbolTable {
                     lastLevel + ") minus one");
         }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // lookup in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        return h.get(s);
-                    }
+        // find the table holding the level, going out from this one
+        int firstLevel = lastLevel;
+        for (SymbolTable st = this; st != null; st = st.parent) {
+            firstLevel -= st.scopeCount;
+            if (level >= firstLevel) {
+                // lookup in this scope and earlier scopes of the table
+                int binding = st.findBinding(s, level - firstLevel);
+                if (binding >= 0) {
+                    return st.values[binding];
                 }
                 // if we make it here then we try looking up in parent table
                 // (if one exists)
@@ -204,9 +413,6 @@ public class SymbolTable {
                 // otherwise we return null (not found)
                 return null;
             }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
         }
 
         // we should never get here
@@ -220,10 +426,14 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object peek(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before peeking in table");
         }
-        return hash.get(s);
+        int binding = findBinding(s);
+        if (binding >= 0 && bindingScopes[binding] == scopeCount - 1) {
+            return values[binding];
+        }
+        return null;
     }
 
     /**
@@ -239,7 +449,7 @@ public class SymbolTable {
         int lastLevel = getCurrScopeLevel();
 
         // some error checking
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before peeking in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -249,24 +459,17 @@ public class SymbolTable {
                     lastLevel + ") minus one");
         }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                Hashtable<String, Object> h = st.scopes.elementAt(level);
-                return h.get(s);
+        // find the table holding the level, going out from this one
+        int firstLevel = lastLevel;
+        for (SymbolTable st = this; st != null; st = st.parent) {
+            firstLevel -= st.scopeCount;
+            if (level >= firstLevel) {
+                int binding = st.findBinding(s, level - firstLevel);
+                if (binding >= 0 && st.bindingScopes[binding] == level - firstLevel) {
+                    return st.values[binding];
+                }
+                return null;
             }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
         }
 
         // we should never get here
@@ -280,18 +483,19 @@ public class SymbolTable {
      * @param val value to set the symbol to
      */
     public void set(String s, Object val) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before setting in table");
         }
+        if (val == null) {
+            throw new NullPointerException();
+        }
 
         for (SymbolTable st = this; st != null; st = st.parent) {
-            for (int i = st.scopes.size() - 1; i >= 0; i--) {
-                Hashtable<String, Object> h = st.scopes.elementAt(i);
-                if (h.get(s) != null) {
-                    h.remove(s);
-                    h.put(s, val);
-                    return;
-                }
+            int binding = st.findBinding(s);
+            if (binding >= 0) {
+                st.checkNotFrozen();
+                st.values[binding] = val;
+                return;
             }
         }
 
@@ -310,7 +514,7 @@ public class SymbolTable {
     public void set(String s, Object val, int level) {
         int lastLevel = getCurrScopeLevel();
 
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before setting in table");
         }
         else if (level < 0 || level >= lastLevel) {
@@ -319,28 +523,21 @@ public class SymbolTable {
                     " between 0 and current level (" +
                     lastLevel + ") minus one");
         }
+        if (val == null) {
+            throw new NullPointerException();
+        }
 
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // look in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        h.remove(s);
-                        h.put(s, val);
-                        return;
-                    }
+        // find the table holding the level, going out from this one
+        int firstLevel = lastLevel;
+        for (SymbolTable st = this; st != null; st = st.parent) {
+            firstLevel -= st.scopeCount;
+            if (level >= firstLevel) {
+                // look in this scope and earlier scopes of the table
+                int binding = st.findBinding(s, level - firstLevel);
+                if (binding >= 0) {
+                    st.checkNotFrozen();
+                    st.values[binding] = val;
+                    return;
                 }
                 // if we make it here then we try setting in parent table
                 // (if one exists)
@@ -349,9 +546,6 @@ public class SymbolTable {
                 }
                 return;
             }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
         }
     }
 
@@ -363,19 +557,17 @@ public class SymbolTable {
      * @return scope level
      */
     public int getScopeLevel(String s) {
-        if (scopes.size() == 0) {
+        if (scopeCount == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
 
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-            if (h.get(s) != null) {
-                if (parent == null) {
-                    return (i + 1);
-                }
-                else {
-                    return (i + 1) + parent.getCurrScopeLevel();
-                }
+        int binding = findBinding(s);
+        if (binding >= 0) {
+            if (parent == null) {
+                return bindingScopes[binding] + 1;
+            }
+            else {
+                return bindingScopes[binding] + 1 + parent.getCurrScopeLevel();
             }
         }
 
@@ -393,15 +585,10 @@ public class SymbolTable {
      * @return size of current scope
      */
     public int getSize() {
-        int size = 0;
-
-        for (int i = 0; i < scopes.size(); i++)
-            size += scopes.elementAt(i).size();
-
         if (parent != null) {
-            return parent.getSize() + size;
+            return parent.getSize() + bindingCount;
         }
-        return size;
+        return bindingCount;
     }
 
     /**
@@ -410,8 +597,8 @@ public class SymbolTable {
      * @return size of current scope
      */
     public int getCurrScopeSize() {
-        if (hash != null) {
-            return hash.size();
+        if (scopeCount > 0) {
+            return bindingCount - scopeStarts[scopeCount - 1];
         }
         else {
             return 0;
@@ -426,9 +613,9 @@ public class SymbolTable {
      */
     public int getCurrScopeLevel() {
         if (parent != null) {
-            return scopes.size() + parent.getCurrScopeLevel();
+            return scopeCount + parent.getCurrScopeLevel();
         }
-        return scopes.size();
+        return scopeCount;
     }
 
     /**
@@ -445,14 +632,8 @@ public class SymbolTable {
             newParent = parent.clone();
         }
 
-        // create new set of clone scopes
-        Vector<Hashtable<String, Object>> newScopes
-                = new Vector<Hashtable<String, Object>>();
-        for (int i = 0; i < scopes.size(); i++)
-            newScopes.add((Hashtable<String, Object>) scopes.elementAt(i).clone());
-
-        // use these to create a new symbol table
-        SymbolTable st = new SymbolTable(newScopes, newParent);
+        // use it and copies of the scopes to create a new symbol table
+        SymbolTable st = new SymbolTable(this, newParent);
 
         // return cloned symbol table
         return st;
@@ -468,8 +649,16 @@ public class SymbolTable {
             parent.dump();
         }
 
-        Enumeration e = scopes.elements();
-        while (e.hasMoreElements())
-            System.out.println(e.nextElement());
+        for (int scope = 0; scope < scopeCount; scope++) {
+            int end = scope + 1 < scopeCount ? scopeStarts[scope + 1] : bindingCount;
+            StringBuilder line = new StringBuilder("{");
+            for (int b = scopeStarts[scope]; b < end; b++) {
+                if (b > scopeStarts[scope]) {
+                    line.append(", ");
+                }
+                line.append(slotSymbols[bindingSlots[b]]).append('=').append(values[b]);
+            }
+            System.out.println(line.append('}'));
+        }
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * File: SymbolTableBenchmark.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.util;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Measures the SymbolTable the way the type checker uses it in a method
+ * with deeply nested blocks, against a table kept as a Vector of one
+ * Hashtable per scope, as SymbolTable used to be. The method enters one
+ * block after another down to a given depth, declaring a few locals in each
+ * and looking up every local in view and a field of the class, then leaves
+ * the blocks one by one.
+ */
+public class SymbolTableBenchmark
+{
+    /** number of untimed runs done before measuring */
+    private static final int WARMUP_RUNS = 5;
+    /** number of timed runs */
+    private static final int TIMED_RUNS = 10;
+    /** number of locals declared in each block */
+    private static final int LOCALS_PER_BLOCK = 3;
+
+    /**
+     * The scoped operations the type checker does on a table
+     */
+    private interface Table
+    {
+        void enterScope();
+
+        void exitScope();
+
+        void add(String s, Object value);
+
+        Object lookup(String s);
+    }
+
+    /**
+     * a SymbolTable
+     */
+    private static class Scoped implements Table
+    {
+        private final SymbolTable table = new SymbolTable();
+
+        Scoped(SymbolTable fields) {
+            table.setParent(fields);
+        }
+
+        public void enterScope() {
+            table.enterScope();
+        }
+
+        public void exitScope() {
+            table.exitScope();
+        }
+
+        public void add(String s, Object value) {
+            table.add(s, value);
+        }
+
+        public Object lookup(String s) {
+            return table.lookup(s);
+        }
+    }
+
+    /**
+     * a Vector of one Hashtable per scope, searched from the innermost
+     */
+    private static class Layered implements Table
+    {
+        private final Vector<Hashtable<String, Object>> scopes = new Vector<>();
+        private final Layered parent;
+
+        Layered(Layered parent) {
+            this.parent = parent;
+        }
+
+        public void enterScope() {
+            scopes.add(new Hashtable<>());
+        }
+
+        public void exitScope() {
+            scopes.removeElementAt(scopes.size() - 1);
+        }
+
+        public void add(String s, Object value) {
+            scopes.lastElement().put(s, value);
+        }
+
+        public Object lookup(String s) {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                Object value = scopes.elementAt(i).get(s);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return parent == null ? null : parent.lookup(s);
+        }
+    }
+
+    /**
+     * checks one method with nested blocks
+     * @param table the table of the method, its fields already added
+     * @param names the names of the locals, LOCALS_PER_BLOCK per block
+     * @param depth the number of nested blocks
+     * @return the number of names found, so the work is not optimized away
+     */
+    private static int checkMethod(Table table, String[] names, int depth) {
+        int found = 0;
+        for (int level = 0; level < depth; level++) {
+            table.enterScope();
+            for (int i = 0; i < LOCALS_PER_BLOCK; i++) {
+                table.add(names[level * LOCALS_PER_BLOCK + i], "int");
+            }
+            // the block uses a local of each enclosing block and a field
+            for (int outer = 0; outer <= level; outer++) {
+                if (table.lookup(names[outer * LOCALS_PER_BLOCK]) != null) {
+                    found++;
+                }
+            }
+            if (table.lookup("field") != null) {
+                found++;
+            }
+        }
+        for (int level = 0; level < depth; level++) {
+            table.exitScope();
+        }
+        return found;
+    }
+
+    /**
+     * times checking a method with nested blocks and prints the results
+     * @param label which table is timed
+     * @param scoped whether to time SymbolTable rather than the old layout
+     * @param depth the number of nested blocks
+     * @param methods the number of methods checked per run
+     */
+    private static void time(String label, boolean scoped, int depth, int methods) {
+        String[] names = new String[depth * LOCALS_PER_BLOCK];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = SymbolPool.intern("local" + i);
+        }
+        SymbolTable fields = new SymbolTable();
+        fields.enterScope();
+        fields.add("field", "String");
+        Layered layeredFields = new Layered(null);
+        layeredFields.enterScope();
+        layeredFields.add("field", "String");
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        int found = 0;
+        for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+            long start = System.nanoTime();
+            for (int m = 0; m < methods; m++) {
+                Table table = scoped ? new Scoped(fields) : new Layered(layeredFields);
+                table.enterScope();
+                found = checkMethod(table, names, depth);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (run >= WARMUP_RUNS) {
+                best = Math.min(best, elapsed);
+                total += elapsed;
+            }
+        }
+        System.out.printf("  %-10s depth %5d  found %8d  best %8.2f ms  mean %8.2f ms%n",
+                label, depth, found, best / 1e6, total / 1e6 / TIMED_RUNS);
+    }
+
+    /**
+     * Times both tables for methods nested to a few depths.
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        int[] depths = {4, 16, 64, 256};
+        for (int depth : depths) {
+            // about the same number of lookups at each depth
+            int methods = Math.max(1, 1_000_000 / (depth * depth));
+            System.out.println(methods + " methods");
+            time("scoped", true, depth, methods);
+            time("hashtables", false, depth, methods);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * File: Traversal.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.visitor;
+
+import proj10EnglishHillisonQian.bantam.ast.*;
+
+import java.util.Arrays;
+
+/**
+ * Walks an AST in the same order as a Visitor, but with a stack of its own
+ * instead of the Java call stack. A Visitor makes one nested call for each
+ * level of the tree, so a machine-made program with a chain of 50000 "+"s
+ * overflows the call stack, while a Traversal keeps one frame per level in
+ * an array on the heap and can go as deep as memory allows.
+ *
+ * Since there is no visit method to hold the work done at a node until its
+ * children are done, the work is split among hooks that a subclass
+ * overrides. For each node the traversal calls pre, then for each of the
+ * node's children in order it calls beforeChild, walks the child and calls
+ * afterChild, and last it calls post. The children of a node are numbered
+ * from 0 in the order a Visitor visits them, as listed by child. A missing
+ * optional child, such as the else part of an if statement, keeps its number
+ * and still gets its beforeChild and afterChild calls with a null child.
+ */
+public abstract class Traversal
+{
+    /** the nodes on the path from the root to the node being walked */
+    private ASTNode[] nodes = new ASTNode[64];
+    /** for each node on the path, the number of the next child to walk */
+    private int[] nextChild = new int[64];
+    /** for each node on the path, the number of children it has */
+    private int[] childCount = new int[64];
+    /** the number of nodes on the path */
+    private int depth;
+
+    /**
+     * Walks the tree below the given node, calling the hooks.
+     * A hook may start another traversal of some other tree with this
+     * method; it is finished before the first one goes on.
+     * @param root the node to start at, or null to do nothing
+     */
+    public void traverse(ASTNode root) {
+        if (root == null) {
+            return;
+        }
+        int base = depth;
+        push(root);
+        while (depth > base) {
+            int top = depth - 1;
+            ASTNode node = nodes[top];
+            int index = nextChild[top];
+            if (index < childCount[top]) {
+                nextChild[top] = index + 1;
+                ASTNode child = child(node, index);
+                if (beforeChild(node, index, child) && child != null) {
+                    push(child);
+                }
+                else {
+                    afterChild(node, index, child);
+                }
+            }
+            else {
+                nodes[top] = null;
+                depth = top;
+                post(node);
+                if (depth > base) {
+                    ASTNode parent = nodes[depth - 1];
+                    afterChild(parent, nextChild[depth - 1] - 1, node);
+                }
+            }
+        }
+    }
+
+    /**
+     * calls pre for a node and puts it on the path
+     */
+    private void push(ASTNode node) {
+        int count = pre(node) ? childCount(node) : 0;
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, depth * 2);
+            nextChild = Arrays.copyOf(nextChild, depth * 2);
+            childCount = Arrays.copyOf(childCount, depth * 2);
+        }
+        nodes[depth] = node;
+        nextChild[depth] = 0;
+        childCount[depth] = count;
+        depth++;
+    }
+
+    /**
+     * Called when a node is reached, before any of its children
+     *
+     * @param node the node
+     * @return whether to walk the children of the node
+     */
+    protected boolean pre(ASTNode node) {
+        return true;
+    }
+
+    /**
+     * Called before each child of a node is walked
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     * @return whether to walk the child; afterChild is called either way
+     */
+    protected boolean beforeChild(ASTNode node, int index, ASTNode child) {
+        return true;
+    }
+
+    /**
+     * Called after each child of a node has been walked
+     *
+     * @param node the parent node
+     * @param index the number of the child
+     * @param child the child, or null if it is missing
+     */
+    protected void afterChild(ASTNode node, int index, ASTNode child) {
+    }
+
+    /**
+     * Called when a node is left, after all of its children
+     *
+     * @param node the node
+     */
+    protected void post(ASTNode node) {
+    }
+
+    /**
+     * @param node a node
+     * @return the number of children of the node, counting missing ones
+     */
+    public static int childCount(ASTNode node) {
+        switch (node.getKind()) {
+            case CLASS_LIST:
+            case MEMBER_LIST:
+            case FORMAL_LIST:
+            case STMT_LIST:
+            case EXPR_LIST:
+                return ((ListNode) node).getSize();
+            case FORMAL:
+            case BREAK_STMT:
+            case NEW_EXPR:
+            case CONST_INT_EXPR:
+            case CONST_BOOLEAN_EXPR:
+            case CONST_STRING_EXPR:
+                return 0;
+            case METHOD:
+            case WHILE_STMT:
+            case DISPATCH_EXPR:
+            case BINARY_ARITH_PLUS_EXPR:
+            case BINARY_ARITH_MINUS_EXPR:
+            case BINARY_ARITH_TIMES_EXPR:
+            case BINARY_ARITH_DIVIDE_EXPR:
+            case BINARY_ARITH_MODULUS_EXPR:
+            case BINARY_COMP_EQ_EXPR:
+            case BINARY_COMP_NE_EXPR:
+            case BINARY_COMP_LT_EXPR:
+            case BINARY_COMP_LEQ_EXPR:
+            case BINARY_COMP_GT_EXPR:
+            case BINARY_COMP_GEQ_EXPR:
+            case BINARY_LOGIC_AND_EXPR:
+            case BINARY_LOGIC_OR_EXPR:
+                return 2;
+            case IF_STMT:
+                return 3;
+            case FOR_STMT:
+                return 4;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * @param node a node
+     * @param index the number of one of its children
+     * @return the child with that number, or null if it is missing
+     */
+    public static ASTNode child(ASTNode node, int index) {
+        switch (node.getKind()) {
+            case CLASS_LIST:
+            case MEMBER_LIST:
+            case FORMAL_LIST:
+            case STMT_LIST:
+            case EXPR_LIST:
+                return ((ListNode) node).get(index);
+            case BINARY_ARITH_PLUS_EXPR:
+            case BINARY_ARITH_MINUS_EXPR:
+            case BINARY_ARITH_TIMES_EXPR:
+            case BINARY_ARITH_DIVIDE_EXPR:
+            case BINARY_ARITH_MODULUS_EXPR:
+            case BINARY_COMP_EQ_EXPR:
+            case BINARY_COMP_NE_EXPR:
+            case BINARY_COMP_LT_EXPR:
+            case BINARY_COMP_LEQ_EXPR:
+            case BINARY_COMP_GT_EXPR:
+            case BINARY_COMP_GEQ_EXPR:
+            case BINARY_LOGIC_AND_EXPR:
+            case BINARY_LOGIC_OR_EXPR:
+                BinaryExpr binary = (BinaryExpr) node;
+                return index == 0 ? binary.getLeftExpr() : binary.getRightExpr();
+            case UNARY_NEG_EXPR:
+            case UNARY_NOT_EXPR:
+            case UNARY_INCR_EXPR:
+            case UNARY_DECR_EXPR:
+                return ((UnaryExpr) node).getExpr();
+            case PROGRAM:
+                return ((Program) node).getClassList();
+            case CLASS:
+                return ((Class_) node).getMemberList();
+            case FIELD:
+                return ((Field) node).getInit();
+            case METHOD:
+                Method method = (Method) node;
+                return index == 0 ? method.getFormalList() : method.getStmtList();
+            case DECL_STMT:
+                return ((DeclStmt) node).getInit();
+            case EXPR_STMT:
+                return ((ExprStmt) node).getExpr();
+            case IF_STMT:
+                IfStmt ifStmt = (IfStmt) node;
+                return index == 0 ? ifStmt.getPredExpr()
+                        : index == 1 ? ifStmt.getThenStmt() : ifStmt.getElseStmt();
+            case WHILE_STMT:
+                WhileStmt whileStmt = (WhileStmt) node;
+                return index == 0 ? whileStmt.getPredExpr() : whileStmt.getBodyStmt();
+            case FOR_STMT:
+                ForStmt forStmt = (ForStmt) node;
+                switch (index) {
+                    case 0:
+                        return forStmt.getInitExpr();
+                    case 1:
+                        return forStmt.getPredExpr();
+                    case 2:
+                        return forStmt.getUpdateExpr();
+                    default:
+                        return forStmt.getBodyStmt();
+                }
+            case BLOCK_STMT:
+                return ((BlockStmt) node).getStmtList();
+            case RETURN_STMT:
+                return ((ReturnStmt) node).getExpr();
+            case DISPATCH_EXPR:
+                DispatchExpr dispatch = (DispatchExpr) node;
+                return index == 0 ? dispatch.getRefExpr() : dispatch.getActualList();
+            case INSTANCEOF_EXPR:
+                return ((InstanceofExpr) node).getExpr();
+            case CAST_EXPR:
+                return ((CastExpr) node).getExpr();
+            case ASSIGN_EXPR:
+                return ((AssignExpr) node).getExpr();
+            case VAR_EXPR:
+                return ((VarExpr) node).getRef();
+            default:
+                throw new IllegalArgumentException("no child " + index + " in "
+                        + node.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * File: TraversalBenchmark.java
+ * Authors: Nick English, Nico Hillison, Leo Qian
+ * Date: 10/17/26
+ */
+
+package proj10EnglishHillisonQian.bantam.visitor;
+
+import proj10EnglishHillisonQian.bantam.ast.*;
+import proj10EnglishHillisonQian.bantam.parser.Parser;
+import proj10EnglishHillisonQian.bantam.util.CompilationException;
+import proj10EnglishHillisonQian.bantam.util.ErrorHandler;
+
+/**
+ * Compares walking an AST with accept and visit against walking it with
+ * the explicit stack of a Traversal. Both walks do the same small
+ * amount of work at each node, so the difference is the cost of getting
+ * from a node to its visit method. Each walk is run a number of times,
+ * first to warm up the JIT and then timed.
+ */
+public class TraversalBenchmark
+{
+    /** number of untimed runs done before measuring */
+    private static final int WARMUP_RUNS = 10;
+    /** number of timed runs */
+    private static final int TIMED_RUNS = 20;
+
+    /**
+     * Counts some of the kinds of nodes, going through accept.
+     */
+    private static class AcceptCounter extends Visitor
+    {
+        private int count;
+
+        public Object visit(VarExpr node) {
+            count++;
+            return super.visit(node);
+        }
+
+        public Object visit(DispatchExpr node) {
+            count++;
+            return super.visit(node);
+        }
+
+        public Object visit(ConstIntExpr node) {
+            count++;
+            return null;
+        }
+    }
+
+    /**
+     * Counts the same kinds of nodes, going through a Traversal.
+     */
+    private static class TraversalCounter extends Traversal
+    {
+        private int count;
+
+        @Override
+        protected void post(ASTNode node) {
+            switch (node.getKind()) {
+                case VAR_EXPR:
+                case DISPATCH_EXPR:
+                case CONST_INT_EXPR:
+                    count++;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * times one way of walking the AST and prints the results
+     * @param label the name of the way
+     * @param program the AST
+     * @param traversal whether to walk it with a Traversal rather than accept
+     */
+    private static void time(String label, Program program, boolean traversal) {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < WARMUP_RUNS + TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            if (traversal) {
+                TraversalCounter counter = new TraversalCounter();
+                counter.traverse(program);
+                count = counter.count;
+            } else {
+                AcceptCounter counter = new AcceptCounter();
+                program.accept(counter);
+                count = counter.count;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP_RUNS) {
+                best = Math.min(best, elapsed);
+                total += elapsed;
+            }
+        }
+        System.out.printf("  %-14s %8d counted  best %8.2f ms  mean %8.2f ms%n",
+                label, count, best / 1e6, total / 1e6 / TIMED_RUNS);
+    }
+
+    /**
+     * Parses each of the given files and times both ways of walking its AST.
+     * @param args the files to use
+     */
+    public static void main(String[] args) {
+        String[] files;
+        if (args.length < 1) {
+            files = new String[]{"ParserTestEnglishHillisonQian.btm"};
+        } else {
+            files = args;
+        }
+
+        for (String file : files) {
+            System.out.println(file);
+            try {
+                Program program = new Parser(new ErrorHandler()).parse(file);
+                // alternate, so neither way always runs on a warmer machine
+                for (int round = 0; round < 2; round++) {
+                    time("accept/visit", program, false);
+                    time("traversal", program, true);
+                }
+            } catch (CompilationException e) {
+                System.out.println("File " + file + " did not parse");
+            }
+        }
+    }
+}